@@ -1,7 +1,9 @@
 package com.example.chronographapp;
 
 import android.content.Intent;
+import android.net.Uri;
 import android.os.Bundle;
+import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
 import android.widget.TextView;
@@ -10,25 +12,90 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
+import androidx.core.content.FileProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
+import java.io.File;
+import java.io.IOException;
+import java.text.DecimalFormatSymbols;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class HistoryActivity extends AppCompatActivity {
 
     private RecyclerView recyclerView;
     private ShotHistoryAdapter adapter;
     private TextView statsText;
+    private VelocityHistogramView histogramView;
     private View emptyState;
 
-    private List<ShotData> shotList = new ArrayList<>();
-    private int totalShots = 0;
+    private final ShotRepository repository = ShotRepository.getInstance();
+    private ShotStore shotStore;
+    private RunningStats velocityStats;
+    private RunningStats energyStats;
+    private VelocityHistogram velocityHistogram;
     private float currentMass = 0.25f;
 
+    // Открытая архивная сессия; null - показываем текущую
+    private SessionSummary viewedSession;
+    // Страницы архивной сессии, читаются по мере прокрутки
+    private ShotPager pager;
+    // Чтение архива и экспорт, по очереди и не на главном потоке
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+    // Страницы читаются отдельно, чтобы прокрутку не задерживали экспорт и подсчет статистики
+    private final ExecutorService pageExecutor = Executors.newSingleThreadExecutor();
+    private boolean exporting;
+
+    private static final String EXPORT_DIR_NAME = "exports";
+    private static final long EXPORT_MAX_AGE_MILLIS = 24L * 60 * 60 * 1000;
+
+    private final ShotPager.Listener pageListener = new ShotPager.Listener() {
+        @Override
+        public void onPageLoaded(int firstPosition, int count) {
+            adapter.onPageLoaded(firstPosition, count);
+        }
+
+        @Override
+        public void onPageFailed(int firstPosition, IOException e) {
+            Toast.makeText(HistoryActivity.this,
+                    "Не удалось прочитать выстрелы с #" + (firstPosition + 1) + ": " + e.getMessage()
+                            + ". Повтор - при возврате на экран",
+                    Toast.LENGTH_SHORT).show();
+        }
+    };
+
+    private final ShotRepository.Listener historyListener = new ShotRepository.Listener() {
+        @Override
+        public void onShotsAppended(int count) {
+            if (viewedSession != null) {
+                return;
+            }
+            // Хронограф продолжает стрелять, пока открыта история
+            adapter.appendFrom(shotStore);
+            updateStatistics();
+            checkEmptyState();
+        }
+
+        @Override
+        public void onHistoryChanged() {
+            if (viewedSession != null) {
+                return;
+            }
+            // Удаление, очистка, новая сессия или пересчет энергии: адаптер сам найдет разницу
+            currentMass = repository.getCurrentMass();
+            adapter.submitData(shotStore);
+            updateStatistics();
+            checkEmptyState();
+        }
+    };
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -36,10 +103,29 @@ public class HistoryActivity extends AppCompatActivity {
 
         setupToolbar();
         initViews();
-        getIntentData();
+        attachToRepository();
         setupRecyclerView();
         updateStatistics();
         checkEmptyState();
+        repository.addListener(historyListener);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // Возврат на экран - явный повод перечитать страницы архива, которые не прочитались
+        if (pager != null) {
+            pager.retryFailed();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        repository.removeListener(historyListener);
+        closePager();
+        ioExecutor.shutdownNow();
+        pageExecutor.shutdownNow();
     }
 
     private void setupToolbar() {
@@ -55,6 +141,7 @@ public class HistoryActivity extends AppCompatActivity {
     private void initViews() {
         recyclerView = findViewById(R.id.shotsRecyclerView);
         statsText = findViewById(R.id.statsText);
+        histogramView = findViewById(R.id.velocityHistogram);
         emptyState = findViewById(R.id.emptyState);
 
         // Кнопки уже есть в новом макете, они настраиваются в XML
@@ -70,41 +157,150 @@ public class HistoryActivity extends AppCompatActivity {
         }
     }
 
-    private void getIntentData() {
-        Bundle extras = getIntent().getExtras();
-        if (extras != null) {
-            totalShots = extras.getInt("shot_count", 0);
-            currentMass = extras.getFloat("mass", 0.25f);
+    private void attachToRepository() {
+        // История берется по ссылке, без копирования через Intent
+        shotStore = repository.getShotStore();
+        velocityStats = repository.getVelocityStats();
+        energyStats = repository.getEnergyStats();
+        velocityHistogram = repository.getVelocityHistogram();
+        currentMass = repository.getCurrentMass();
+    }
 
-            float[] velocityArray = extras.getFloatArray("velocity_history");
-            float[] energyArray = extras.getFloatArray("energy_history");
+    private void showSessionsList() {
+        SessionArchive archive = repository.getArchive();
+        if (archive == null) {
+            Toast.makeText(this, "Архив сессий недоступен", Toast.LENGTH_SHORT).show();
+            return;
+        }
 
-            if (velocityArray != null && energyArray != null && velocityArray.length > 0) {
-                createShotListFromArrays(velocityArray, energyArray);
+        // Индекс читается целиком одним чтением, статистика в нем уже посчитана
+        ioExecutor.execute(() -> {
+            try {
+                List<SessionSummary> sessions = archive.listSessions();
+                runOnUiThread(() -> {
+                    if (!isDestroyed()) {
+                        showSessionsDialog(sessions);
+                    }
+                });
+            } catch (IOException e) {
+                runOnUiThread(() -> Toast.makeText(HistoryActivity.this,
+                        "Не удалось прочитать архив: " + e.getMessage(),
+                        Toast.LENGTH_LONG).show());
             }
+        });
+    }
+
+    private void showSessionsDialog(List<SessionSummary> sessions) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("dd.MM.yy HH:mm", Locale.getDefault());
+        Date date = new Date();
+
+        // Сначала текущая сессия, затем архив от новых к старым
+        String[] items = new String[sessions.size() + 1];
+        items[0] = String.format(Locale.getDefault(), "Текущая сессия · %d выстр.",
+                repository.getShotStore().size());
+        for (int i = 0; i < sessions.size(); i++) {
+            SessionSummary session = sessions.get(sessions.size() - 1 - i);
+            date.setTime(session.getStartMillis());
+            items[i + 1] = String.format(Locale.getDefault(),
+                    "%s · %d выстр. · ср. %.1f м/с · %.2f г",
+                    dateFormat.format(date), session.getShotCount(),
+                    session.getMeanVelocity(), session.getMass());
+        }
+
+        new AlertDialog.Builder(this)
+                .setTitle("Сессии")
+                .setItems(items, (dialog, which) -> {
+                    if (which == 0) {
+                        showCurrentSession();
+                    } else {
+                        openArchivedSession(sessions.get(sessions.size() - which));
+                    }
+                })
+                .show();
+    }
+
+    private void openArchivedSession(SessionSummary session) {
+        File journal = repository.getArchive().getJournalFile(session.getId());
+        // Журнал целиком не читается: размер файла дает число строк, остальное - страницами
+        ioExecutor.execute(() -> {
+            int count = ShotJournal.recordCount(journal);
+            runOnUiThread(() -> {
+                if (!isDestroyed()) {
+                    showArchivedSession(session, journal, count);
+                }
+            });
+
+            // Процентили и SD - по счетчикам, сохраненным при закрытии сессии, без чтения журнала
+            try {
+                VelocityHistogram histogram = repository.getArchive().loadHistogram(session.getId());
+                runOnUiThread(() -> {
+                    if (viewedSession == session) {
+                        velocityHistogram = histogram;
+                        updateStatistics();
+                    }
+                });
+            } catch (IOException e) {
+                runOnUiThread(() -> Toast.makeText(HistoryActivity.this,
+                        "Не удалось прочитать сессию: " + e.getMessage(),
+                        Toast.LENGTH_LONG).show());
+            }
+        });
+    }
+
+    private void showArchivedSession(SessionSummary session, File journal, int count) {
+        closePager();
+        viewedSession = session;
+        currentMass = session.getMass();
+        // Статистика из индекса архива, гистограмма подгружается следом
+        velocityStats = null;
+        energyStats = null;
+        velocityHistogram = null;
+        pager = new ShotPager(journal, count, pageExecutor, this::runOnUiThread, pageListener);
+        adapter.showPaged(pager);
+
+        if (getSupportActionBar() != null) {
+            SimpleDateFormat dateFormat = new SimpleDateFormat("dd.MM.yy HH:mm", Locale.getDefault());
+            getSupportActionBar().setTitle("Сессия " + dateFormat.format(new Date(session.getStartMillis())));
+        }
+        updateStatistics();
+        checkEmptyState();
+    }
+
+    private void showCurrentSession() {
+        closePager();
+        viewedSession = null;
+        attachToRepository();
+        adapter.submitData(shotStore);
+
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setTitle("История выстрелов");
+        }
+        updateStatistics();
+        checkEmptyState();
+    }
+
+    private void closePager() {
+        if (pager != null) {
+            pager.close();
+            pager = null;
         }
     }
 
-    private void createShotListFromArrays(float[] velocityArray, float[] energyArray) {
-        shotList.clear();
-        for (int i = 0; i < velocityArray.length; i++) {
-            String timestamp = new SimpleDateFormat("HH:mm:ss", Locale.getDefault())
-                    .format(new Date(System.currentTimeMillis() - (velocityArray.length - i) * 3000));
-
-            ShotData shot = new ShotData(
-                    i + 1,
-                    velocityArray[i],
-                    energyArray[i],
-                    timestamp
-            );
-            shotList.add(shot);
+    private boolean checkEditable() {
+        if (exporting) {
+            Toast.makeText(this, "Дождитесь окончания экспорта", Toast.LENGTH_SHORT).show();
+            return false;
+        }
+        if (viewedSession != null) {
+            Toast.makeText(this, "Архивная сессия доступна только для чтения", Toast.LENGTH_SHORT).show();
+            return false;
         }
-        totalShots = shotList.size();
+        return true;
     }
 
     private void setupRecyclerView() {
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
-        adapter = new ShotHistoryAdapter(shotList);
+        adapter = new ShotHistoryAdapter(shotStore);
         recyclerView.setAdapter(adapter);
 
         adapter.setOnShotClickListener(new ShotHistoryAdapter.OnShotClickListener() {
@@ -141,9 +337,16 @@ public class HistoryActivity extends AppCompatActivity {
                 .setItems(actions, (dialog, which) -> {
                     switch (which) {
                         case 0:
-                            adapter.removeShot(position);
-                            updateStatistics();
-                            checkEmptyState();
+                            if (!checkEditable()) {
+                                break;
+                            }
+                            if (adapter.isUpdatePending()) {
+                                // Позиция в списке еще может не совпадать с историей
+                                Toast.makeText(HistoryActivity.this, "История обновляется, повторите",
+                                        Toast.LENGTH_SHORT).show();
+                                break;
+                            }
+                            repository.removeShot(position);
                             Toast.makeText(HistoryActivity.this, "Выстрел удален", Toast.LENGTH_SHORT).show();
                             break;
                         case 1:
@@ -166,44 +369,61 @@ public class HistoryActivity extends AppCompatActivity {
     }
 
     private void updateStatistics() {
-        if (shotList.isEmpty()) {
+        if (histogramView != null) {
+            // Счетчики уже актуальны, здесь только сборка столбцов без прохода по истории
+            histogramView.setHistogram(velocityHistogram);
+        }
+        if (velocityStats == null) {
+            updateArchivedStatistics(viewedSession);
+            return;
+        }
+        if (velocityStats.isEmpty()) {
             statsText.setText("Нет данных о выстрелах");
             return;
         }
 
-        float maxVelocity = 0;
-        float minVelocity = Float.MAX_VALUE;
-        float totalVelocity = 0;
-        float maxEnergy = 0;
-        float minEnergy = Float.MAX_VALUE;
-        float totalEnergy = 0;
-
-        for (ShotData shot : shotList) {
-            float velocity = shot.getVelocity();
-            float energy = shot.getEnergy();
+        // Статистика ведется инкрементально, здесь только форматирование
+        String stats = String.format(Locale.getDefault(),
+                "Всего: %d | Скорость: макс %.1f/мин %.1f/ср %.1f м/с | ES %.1f | SD %.2f | Энергия: макс %.2f/ср %.2f Дж",
+                velocityStats.getCount(), velocityStats.getMax(), velocityStats.getMin(),
+                velocityStats.getMean(), velocityStats.getExtremeSpread(),
+                velocityStats.getStandardDeviation(), energyStats.getMax(), energyStats.getMean());
+        if (velocityHistogram != null && !velocityHistogram.isEmpty()) {
+            // Процентили по счетчикам гистограммы, без сортировки истории
+            stats += String.format(Locale.getDefault(), "\nP5 %.1f · медиана %.1f · P95 %.1f м/с",
+                    velocityHistogram.getQuantile(0.05), velocityHistogram.getQuantile(0.5),
+                    velocityHistogram.getQuantile(0.95));
+        }
 
-            if (velocity > maxVelocity) maxVelocity = velocity;
-            if (velocity < minVelocity) minVelocity = velocity;
-            totalVelocity += velocity;
+        statsText.setText(stats);
+    }
 
-            if (energy > maxEnergy) maxEnergy = energy;
-            if (energy < minEnergy) minEnergy = energy;
-            totalEnergy += energy;
+    private void updateArchivedStatistics(SessionSummary session) {
+        if (session.getShotCount() == 0) {
+            statsText.setText("Нет данных о выстрелах");
+            return;
         }
 
-        float avgVelocity = totalVelocity / shotList.size();
-        float avgEnergy = totalEnergy / shotList.size();
-
+        boolean loaded = velocityHistogram != null && !velocityHistogram.isEmpty();
+        String sd = loaded ? String.format(Locale.getDefault(), "%.2f",
+                velocityHistogram.getStandardDeviation()) : "…";
         String stats = String.format(Locale.getDefault(),
-                "Всего: %d | Скорость: макс %.1f/мин %.1f/ср %.1f м/с | Энергия: макс %.2f/ср %.2f Дж",
-                shotList.size(), maxVelocity, minVelocity, avgVelocity, maxEnergy, avgEnergy);
+                "Всего: %d | Скорость: макс %.1f/мин %.1f/ср %.1f м/с | ES %.1f | SD %s | Энергия: макс %.2f/ср %.2f Дж",
+                session.getShotCount(), session.getMaxVelocity(), session.getMinVelocity(),
+                session.getMeanVelocity(), session.getMaxVelocity() - session.getMinVelocity(),
+                sd, session.getMaxEnergy(), session.getMeanEnergy());
+        if (loaded) {
+            stats += String.format(Locale.getDefault(), "\nP5 %.1f · медиана %.1f · P95 %.1f м/с",
+                    velocityHistogram.getQuantile(0.05), velocityHistogram.getQuantile(0.5),
+                    velocityHistogram.getQuantile(0.95));
+        }
 
         statsText.setText(stats);
     }
 
     private void checkEmptyState() {
         if (emptyState != null) {
-            if (shotList.isEmpty()) {
+            if (adapter.getItemCount() == 0) {
                 emptyState.setVisibility(View.VISIBLE);
                 recyclerView.setVisibility(View.GONE);
             } else {
@@ -214,34 +434,106 @@ public class HistoryActivity extends AppCompatActivity {
     }
 
     private void exportData() {
-        if (shotList.isEmpty()) {
+        if (adapter.getItemCount() == 0) {
             Toast.makeText(this, "Нет данных для экспорта", Toast.LENGTH_SHORT).show();
             return;
         }
+        if (exporting) {
+            Toast.makeText(this, "Экспорт уже выполняется", Toast.LENGTH_SHORT).show();
+            return;
+        }
 
-        StringBuilder csv = new StringBuilder();
-        csv.append("Номер;Время;Скорость (м/с);Энергия (Дж)\n");
+        String[] formats = {"CSV (таблица)", "Бинарный по столбцам"};
+        new AlertDialog.Builder(this)
+                .setTitle("Формат экспорта")
+                .setItems(formats, (dialog, which) -> startExport(
+                        which == 0 ? ShotExporter.Format.CSV : ShotExporter.Format.COLUMNS))
+                .show();
+    }
+
+    private void startExport(ShotExporter.Format format) {
+        // Выгружаем из журнала сессии: он читается блоками и не зависит от экрана
+        File journal;
+        Future<?> synced;
+        if (viewedSession != null) {
+            journal = repository.getArchive().getJournalFile(viewedSession.getId());
+            synced = CompletableFuture.completedFuture(null);
+        } else {
+            journal = repository.getActiveJournalFile();
+            synced = repository.syncJournal();
+        }
+        if (journal == null) {
+            Toast.makeText(this, "Журнал сессии недоступен", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        exporting = true;
+        File exportDir = new File(getCacheDir(), EXPORT_DIR_NAME);
+        File target = new File(exportDir, "shots_"
+                + new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date())
+                + "." + format.getExtension());
+        char decimalSeparator = DecimalFormatSymbols.getInstance().getDecimalSeparator();
+
+        ioExecutor.execute(() -> {
+            try {
+                synced.get();
+                prepareExportDir(exportDir);
+                int count = ShotExporter.export(journal, format, target, decimalSeparator);
+                runOnUiThread(() -> {
+                    exporting = false;
+                    if (!isDestroyed()) {
+                        shareExport(target, format, count);
+                    }
+                });
+            } catch (IOException | ExecutionException e) {
+                runOnUiThread(() -> {
+                    exporting = false;
+                    Toast.makeText(HistoryActivity.this,
+                            "Ошибка экспорта: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
 
-        for (ShotData shot : shotList) {
-            csv.append(shot.getShotNumber()).append(";")
-                    .append(shot.getTimestamp()).append(";")
-                    .append(String.format(Locale.getDefault(), "%.1f", shot.getVelocity())).append(";")
-                    .append(String.format(Locale.getDefault(), "%.2f", shot.getEnergy())).append("\n");
+    private static void prepareExportDir(File exportDir) throws IOException {
+        if (!exportDir.isDirectory() && !exportDir.mkdirs()) {
+            throw new IOException("Не удалось создать папку " + exportDir);
         }
+        // Старые выгрузки получатели уже забрали, кэш не должен расти
+        File[] old = exportDir.listFiles();
+        if (old != null) {
+            long threshold = System.currentTimeMillis() - EXPORT_MAX_AGE_MILLIS;
+            for (File file : old) {
+                if (file.lastModified() < threshold) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    private void shareExport(File file, ShotExporter.Format format, int count) {
+        Uri uri = FileProvider.getUriForFile(this,
+                getPackageName() + ".fileprovider", file);
 
         Intent shareIntent = new Intent(Intent.ACTION_SEND);
-        shareIntent.setType("text/plain");
+        shareIntent.setType(format.getMimeType());
         shareIntent.putExtra(Intent.EXTRA_SUBJECT, "Данные хронографа");
-        shareIntent.putExtra(Intent.EXTRA_TEXT, csv.toString());
+        shareIntent.putExtra(Intent.EXTRA_STREAM, uri);
+        shareIntent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
         startActivity(Intent.createChooser(shareIntent, "Экспорт данных"));
 
         Toast.makeText(this,
-                "Экспортировано " + shotList.size() + " записей",
+                "Экспортировано " + count + " записей",
                 Toast.LENGTH_SHORT).show();
     }
 
     private void clearHistory() {
-        if (shotList.isEmpty()) {
+        if (!checkEditable()) {
+            return;
+        }
+        if (shotStore.isEmpty()) {
             Toast.makeText(this, "История уже пуста", Toast.LENGTH_SHORT).show();
             return;
         }
@@ -250,20 +542,27 @@ public class HistoryActivity extends AppCompatActivity {
                 .setTitle("Очистка истории")
                 .setMessage("Вы уверены, что хотите очистить всю историю выстрелов?")
                 .setPositiveButton("Очистить", (dialog, which) -> {
-                    adapter.clearData();
-                    updateStatistics();
-                    checkEmptyState();
+                    repository.clear();
                     Toast.makeText(HistoryActivity.this, "История очищена", Toast.LENGTH_SHORT).show();
                 })
                 .setNegativeButton("Отмена", null)
                 .show();
     }
 
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_history, menu);
+        return true;
+    }
+
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
         if (item.getItemId() == android.R.id.home) {
             finish();
             return true;
+        } else if (item.getItemId() == R.id.action_sessions) {
+            showSessionsList();
+            return true;
         }
         return super.onOptionsItemSelected(item);
     }
@@ -1,18 +1,20 @@
 package com.example.chronographapp;
 
 import android.Manifest;
-import android.bluetooth.BluetoothSocket;
 import android.bluetooth.BluetoothAdapter;
-import android.bluetooth.BluetoothDevice;
 import android.content.Intent;
+import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
+import android.view.Choreographer;
 import android.view.Menu;
 import android.view.MenuItem;
+import android.view.View;
 import android.widget.Button;
 import android.widget.ImageView;
 import android.widget.TextView;
@@ -26,42 +28,77 @@ import androidx.cardview.widget.CardView;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.lang.ref.WeakReference;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.File;
 import java.util.Locale;
-import java.util.UUID;
+import java.util.Random;
 
 public class MainActivity extends AppCompatActivity {
 
     // UI элементы
-    private TextView velocityText, energyText, rpmText, shotCountText, massText;
-    private TextView connectionStatusText, deviceNameText, connectionHintText;
+    private TextView velocityText, energyText, rpmText, shotCountText, massText, seriesStatsText;
+    private VelocityChartView velocityChart;
+    private TextView connectionStatusText, deviceNameText, connectionHintText, linkQualityText;
     private ImageView connectionStatusIcon;
     private Button historyButton, massButton, resetButton;
     private CardView connectionCard;
 
     // Bluetooth
     private BluetoothAdapter bluetoothAdapter;
-    private BluetoothSocket bluetoothSocket;
-    private ConnectedThread connectedThread;
-    private static final UUID MY_UUID = UUID.fromString("00001101-0000-1000-8000-00805F9B34FB");
     private static final String HC05_MAC_ADDRESS = "00:18:E4:34:EF:18";
+    // Разбор кадров идет на потоке соединения, на главный поток уходят только выстрелы
+    private final ShotFrameDecoder frameDecoder = new ShotFrameDecoder(this::onShotDecoded);
+    private ConnectionManager connectionManager;
+    private CommandQueue commandQueue;
+    private ConnectionManager.State connectionState = ConnectionManager.State.IDLE;
+    // Отладочный хронограф внутри процесса вместо HC-05; читается потоком соединения
+    private volatile boolean useSimulator;
+    private static final String SIMULATOR_DEVICE = "Симулятор";
+    private static final int SIMULATOR_SHOTS_PER_SECOND = 2;
+
+    // Качество связи: счетчики разборщика проверяются раз в секунду, пока есть соединение
+    private static final long LINK_CHECK_INTERVAL_MILLIS = 1_000;
+    // Сколько держать предупреждение после последней потери
+    private static final long LINK_LOSS_HOLD_MILLIS = 10_000;
+    private final Runnable linkQualityCheck = this::checkLinkQuality;
+    private long lastLinkLosses;
+    private long linkLossSeenAtMillis;
+
+    // Двоичные кадры с CRC; прошивка без их поддержки просто продолжит слать текст
+    private volatile boolean useBinaryProtocol;
+    private static final String MODE_COMMAND_KEY =
+            CommandQueue.keyOf(ShotFrameDecoder.BINARY_MODE_COMMAND);
 
     // Данные
-    private int shotCount = 0;
-    private float currentMass = 0.25f;
-    private List<Float> velocityHistory = new ArrayList<>();
-    private List<Float> energyHistory = new ArrayList<>();
-    private StringBuilder dataBuffer = new StringBuilder();
+    private final ShotRepository repository = ShotRepository.getInstance();
+    private final ShotStore shotStore = repository.getShotStore();
+    private float currentMass = repository.getCurrentMass();
+    private final ShotRepository.Listener historyListener = new ShotRepository.Listener() {
+        @Override
+        public void onShotsAppended(int count) {
+        }
+
+        @Override
+        public void onHistoryChanged() {
+            // Удаления на экране истории отражаются в счетчиках
+            refreshCounters();
+        }
+    };
     private Handler mainHandler = new Handler(Looper.getMainLooper());
 
+    // Выстрелы из потока чтения, ожидающие ближайшего кадра
+    private final ShotEventBatcher shotBatcher = new ShotEventBatcher();
+    private final RateOfFireEstimator rateOfFire = new RateOfFireEstimator();
+    private final ShotEventBatcher.Sink shotSink = this::onNewShotData;
+    private final Choreographer.FrameCallback shotFrameCallback = frameTimeNanos -> drainDecodedShots();
+    private final Runnable scheduleShotFrame =
+            () -> Choreographer.getInstance().postFrameCallback(shotFrameCallback);
+    private float lastVelocity, lastEnergy;
+
     // Разрешения
     private static final int PERMISSION_REQUEST_CODE = 1001;
 
+    private static final String SESSIONS_DIR_NAME = "sessions";
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -74,8 +111,14 @@ public class MainActivity extends AppCompatActivity {
         checkPermissionsOnStart();
 
         setupBluetooth();
+        setupConnectionManager();
         setupClickListeners();
+        // Архив открывается в фоне и отвечает через главный поток
+        repository.setMainExecutor(mainHandler::post);
+        repository.addListener(historyListener);
+        openSessionArchive();
         updateUI();
+        refreshCounters();
         updateConnectionStatus(false);
     }
 
@@ -199,10 +242,13 @@ public class MainActivity extends AppCompatActivity {
         rpmText = findViewById(R.id.rpmText);
         shotCountText = findViewById(R.id.shotCountText);
         massText = findViewById(R.id.massText);
+        seriesStatsText = findViewById(R.id.seriesStatsText);
+        velocityChart = findViewById(R.id.velocityChart);
         connectionStatusText = findViewById(R.id.connectionStatusText);
         connectionStatusIcon = findViewById(R.id.connectionStatusIcon);
         deviceNameText = findViewById(R.id.deviceNameText);
         connectionHintText = findViewById(R.id.connectionHintText);
+        linkQualityText = findViewById(R.id.linkQualityText);
         connectionCard = findViewById(R.id.connectionCard);
         historyButton = findViewById(R.id.historyButton);
         massButton = findViewById(R.id.massButton);
@@ -264,15 +310,72 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    private void setupConnectionManager() {
+        ChronographTransport.Factory transportFactory = () -> {
+            if (useSimulator) {
+                return new SimulatedTransport(
+                        SimulatedTransport.syntheticFrames(150f, 2f, currentMass, new Random()),
+                        SIMULATOR_SHOTS_PER_SECOND, 64, new Random());
+            }
+            if (!hasBluetoothPermissions()) {
+                throw new SecurityException("Нет разрешений для Bluetooth");
+            }
+            return new RfcommTransport(bluetoothAdapter, HC05_MAC_ADDRESS);
+        };
+
+        ConnectionManager.DataSink dataSink = new ConnectionManager.DataSink() {
+            @Override
+            public void onConnected() {
+                frameDecoder.reset();
+                commandQueue.onConnected();
+                // Ответ OK:BIN переключит разборщик прямо в потоке данных и подтвердит команду
+                commandQueue.submit(useBinaryProtocol
+                        ? ShotFrameDecoder.BINARY_MODE_COMMAND : ShotFrameDecoder.TEXT_MODE_COMMAND);
+            }
+
+            @Override
+            public void onData(byte[] buffer, int length) {
+                frameDecoder.feed(buffer, 0, length);
+            }
+        };
+
+        ConnectionManager.Listener connectionListener = new ConnectionManager.Listener() {
+            @Override
+            public void onStateChanged(ConnectionManager.State state, int attempt, long retryDelayMillis) {
+                if (!isDestroyed()) {
+                    updateConnectionStatus(state, attempt, retryDelayMillis);
+                }
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                if (!isDestroyed()) {
+                    onConnectionFailed(e);
+                }
+            }
+        };
+
+        frameDecoder.setMassGrams(currentMass);
+        connectionManager = new ConnectionManager(transportFactory, dataSink, connectionListener,
+                mainHandler::post);
+        commandQueue = new CommandQueue(bytes -> connectionManager.send(bytes), (command, delivery, attempt) -> {
+            if (!isDestroyed()) {
+                onCommandDelivery(command, delivery, attempt);
+            }
+        }, mainHandler::post);
+        frameDecoder.setAckListener(commandQueue::onAck);
+    }
+
     private void setupClickListeners() {
         if (connectionCard != null) {
             connectionCard.setOnClickListener(v -> {
                 // Проверяем разрешения перед подключением
-                if (!checkPermissionsBeforeBluetooth()) {
+                if (!useSimulator && !checkPermissionsBeforeBluetooth()) {
                     return;
                 }
 
-                if (connectedThread != null && bluetoothSocket != null && bluetoothSocket.isConnected()) {
+                // Во время переподключения нажатие тоже отменяет попытки
+                if (connectionState != ConnectionManager.State.IDLE) {
                     disconnectFromBluetoothDevice();
                 } else {
                     connectToBluetoothDevice();
@@ -294,6 +397,11 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void connectToBluetoothDevice() {
+        if (useSimulator) {
+            connectionManager.connect();
+            return;
+        }
+
         // Проверяем разрешения
         if (!checkPermissionsBeforeBluetooth()) {
             return;
@@ -304,181 +412,97 @@ public class MainActivity extends AppCompatActivity {
             return;
         }
 
-        updateConnectionText("Подключение...");
-        if (connectionCard != null) {
-            connectionCard.setEnabled(false);
-        }
-
-        new Thread(() -> {
-            try {
-                // Проверяем разрешения в потоке
-                MainActivity activity = MainActivity.this;
-                if (!activity.hasBluetoothPermissions()) {
-                    mainHandler.post(() -> {
-                        Toast.makeText(activity,
-                                "Нет разрешений для Bluetooth",
-                                Toast.LENGTH_SHORT).show();
-                    });
-                    return;
-                }
-
-                // Получаем устройство с проверкой разрешений
-                BluetoothDevice device;
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
-                    // Для Android 12+ проверяем разрешение BLUETOOTH_CONNECT
-                    if (ContextCompat.checkSelfPermission(activity,
-                            Manifest.permission.BLUETOOTH_CONNECT) != PackageManager.PERMISSION_GRANTED) {
-                        mainHandler.post(() -> {
-                            Toast.makeText(activity,
-                                    "Нет разрешения на подключение Bluetooth",
-                                    Toast.LENGTH_SHORT).show();
-                        });
-                        return;
-                    }
-                    device = bluetoothAdapter.getRemoteDevice(HC05_MAC_ADDRESS);
-                } else {
-                    device = bluetoothAdapter.getRemoteDevice(HC05_MAC_ADDRESS);
-                }
-
-                // Создаем и подключаем сокет
-                bluetoothSocket = device.createRfcommSocketToServiceRecord(MY_UUID);
-                bluetoothSocket.connect();
+        // Подключение, чтение и переподключение идут на потоке менеджера
+        connectionManager.connect();
+    }
 
-                mainHandler.post(() -> {
-                    updateConnectionStatus(true);
-                    if (connectionCard != null) {
-                        connectionCard.setEnabled(true);
-                    }
-                    Toast.makeText(MainActivity.this, "Подключено к HC-05", Toast.LENGTH_SHORT).show();
-                });
+    private void onConnectionFailed(Exception e) {
+        if (e instanceof SecurityException) {
+            Log.e("Bluetooth", "SecurityException", e);
+            Toast.makeText(this,
+                    "Ошибка безопасности: " + e.getMessage(),
+                    Toast.LENGTH_LONG).show();
+        } else if (e instanceof IllegalArgumentException) {
+            Log.e("Bluetooth", "Неверный MAC-адрес", e);
+            Toast.makeText(this,
+                    "Проверьте MAC-адрес HC-05",
+                    Toast.LENGTH_LONG).show();
+        } else {
+            Log.e("Bluetooth", "Ошибка подключения", e);
+            Toast.makeText(this,
+                    "Не удалось подключиться: " + e.getMessage(),
+                    Toast.LENGTH_LONG).show();
+        }
+    }
 
-                connectedThread = new ConnectedThread(bluetoothSocket, this);
-                connectedThread.start();
+    private void disconnectFromBluetoothDevice() {
+        connectionManager.disconnect();
+        Toast.makeText(this, "Отключено от HC-05", Toast.LENGTH_SHORT).show();
+    }
 
-            } catch (SecurityException e) {
-                mainHandler.post(() -> {
-                    updateConnectionStatus(false);
-                    if (connectionCard != null) {
-                        connectionCard.setEnabled(true);
-                    }
-                    Toast.makeText(MainActivity.this,
-                            "Ошибка безопасности: " + e.getMessage(),
-                            Toast.LENGTH_LONG).show();
-                    Log.e("Bluetooth", "SecurityException", e);
-                });
-            } catch (IOException e) {
-                mainHandler.post(() -> {
-                    updateConnectionStatus(false);
-                    if (connectionCard != null) {
-                        connectionCard.setEnabled(true);
-                    }
-                    Toast.makeText(MainActivity.this,
-                            "Не удалось подключиться: " + e.getMessage(),
-                            Toast.LENGTH_LONG).show();
-                    Log.e("Bluetooth", "Ошибка подключения", e);
-                });
-            } catch (IllegalArgumentException e) {
-                mainHandler.post(() -> {
-                    updateConnectionStatus(false);
-                    if (connectionCard != null) {
-                        connectionCard.setEnabled(true);
-                    }
-                    Toast.makeText(MainActivity.this,
-                            "Проверьте MAC-адрес HC-05",
-                            Toast.LENGTH_LONG).show();
-                    Log.e("Bluetooth", "Неверный MAC-адрес", e);
-                });
-            }
-        }).start();
+    // Команда уходит с потока очереди; повторная команда того же вида вытесняет прежнюю
+    public void sendCommandToArduino(String command) {
+        commandQueue.submit(command);
     }
 
-    private void disconnectFromBluetoothDevice() {
-        try {
-            if (connectedThread != null) {
-                connectedThread.cancel();
-                connectedThread = null;
+    private void onCommandDelivery(String command, CommandQueue.Delivery delivery, int attempt) {
+        if (CommandQueue.keyOf(command).equals(MODE_COMMAND_KEY)) {
+            // Режим согласуется на каждом подключении, тосты тут только мешают
+            if (delivery == CommandQueue.Delivery.FAILED) {
+                Log.w("Bluetooth", "Прошивка не подтвердила " + command + ", остаемся на тексте");
             }
-
-            if (bluetoothSocket != null) {
-                try {
-                    bluetoothSocket.close();
-                } catch (IOException e) {
-                    Log.e("Bluetooth", "Ошибка закрытия сокета", e);
+            return;
+        }
+        switch (delivery) {
+            case QUEUED:
+                if (attempt == 0) {
+                    Toast.makeText(this, "Команда уйдет после подключения", Toast.LENGTH_SHORT).show();
                 }
-                bluetoothSocket = null;
-            }
-
-            updateConnectionStatus(false);
-            Toast.makeText(this, "Отключено от HC-05", Toast.LENGTH_SHORT).show();
-        } catch (SecurityException e) {
-            Log.e("Bluetooth", "SecurityException при отключении", e);
-            Toast.makeText(this, "Ошибка при отключении: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                break;
+            case ACKNOWLEDGED:
+                Toast.makeText(this, "Хронограф принял " + command, Toast.LENGTH_SHORT).show();
+                break;
+            case FAILED:
+                Log.w("Bluetooth", "Нет подтверждения команды " + command + " после " + attempt + " попыток");
+                Toast.makeText(this, "Хронограф не подтвердил " + command, Toast.LENGTH_LONG).show();
+                break;
+            default:
+                break;
         }
     }
 
-    public void sendCommandToArduino(String command) {
-        if (connectedThread != null && bluetoothSocket != null && bluetoothSocket.isConnected()) {
-            connectedThread.write((command + "\n").getBytes());
-            Log.d("Bluetooth", "Отправлена команда: " + command);
-        } else {
-            mainHandler.post(() -> {
-                Toast.makeText(this, "Не подключено к Arduino", Toast.LENGTH_SHORT).show();
-            });
+    // Вызывается из потока чтения для каждого декодированного выстрела
+    void onShotDecoded(int shotNumber, float velocity, float energy) {
+        // Время снимаем сразу, а не когда пачку разберет главный поток
+        rateOfFire.onShot(SystemClock.elapsedRealtimeNanos());
+        if (shotBatcher.offer(shotNumber, velocity, energy, System.currentTimeMillis())) {
+            mainHandler.post(scheduleShotFrame);
         }
     }
 
-    private void onNewShotData(float velocity, float energy) {
-        shotCount++;
-        velocityHistory.add(velocity);
-        energyHistory.add(energy);
+    // Разбирает все выстрелы, накопившиеся к кадру, и обновляет экран один раз
+    private void drainDecodedShots() {
+        int drained = shotBatcher.drainTo(shotSink);
+        if (drained == 0) {
+            return;
+        }
 
-        mainHandler.post(() -> {
-            updateShotData(velocity, energy);
-            Toast.makeText(MainActivity.this,
-                    String.format("Выстрел #%d: %.1f м/с", shotCount, velocity),
-                    Toast.LENGTH_SHORT).show();
-        });
+        repository.notifyShotsAppended(drained);
+        if (velocityChart != null) {
+            velocityChart.appendShots(shotStore);
+        }
+        updateShotData(lastVelocity, lastEnergy);
+        Toast.makeText(MainActivity.this,
+                String.format("Выстрел #%d: %.1f м/с", shotStore.size(), lastVelocity),
+                Toast.LENGTH_SHORT).show();
     }
 
-    public void processReceivedData(String rawData) {
-        dataBuffer.append(rawData);
-        String bufferContent = dataBuffer.toString();
-        Log.d("Bluetooth", "Получено: " + bufferContent);
-
-        if (bufferContent.contains("Shot #") &&
-                bufferContent.contains("Speed: ") &&
-                bufferContent.contains("Energy: ")) {
-
-            try {
-                int shotIndex = bufferContent.indexOf("Shot #") + 6;
-                int shotEndLine = bufferContent.indexOf("\n", shotIndex);
-                if (shotEndLine == -1) return;
-
-                String shotStr = bufferContent.substring(shotIndex, shotEndLine).trim();
-                int shotNumber = Integer.parseInt(shotStr);
-
-                int speedIndex = bufferContent.indexOf("Speed: ") + 7;
-                int speedEndLine = bufferContent.indexOf("\n", speedIndex);
-                if (speedEndLine == -1) return;
-
-                String speedStr = bufferContent.substring(speedIndex, speedEndLine).trim();
-                float velocity = Float.parseFloat(speedStr);
-
-                int energyIndex = bufferContent.indexOf("Energy: ") + 8;
-                int energyEndLine = bufferContent.indexOf("\n", energyIndex);
-                if (energyEndLine == -1) energyEndLine = bufferContent.length();
+    private void onNewShotData(int shotNumber, float velocity, float energy, long timeMillis) {
+        // Энергию хронографа не храним: приложение считает ее по массе сессии
+        repository.addShot(shotNumber, velocity, timeMillis);
 
-                String energyStr = bufferContent.substring(energyIndex, energyEndLine).trim();
-                float energy = Float.parseFloat(energyStr);
-
-                onNewShotData(velocity, energy);
-
-            } catch (Exception e) {
-                Log.e("Bluetooth", "Ошибка парсинга данных: " + bufferContent, e);
-            } finally {
-                dataBuffer.setLength(0);
-            }
-        }
+        lastVelocity = velocity;
+        lastEnergy = shotStore.getEnergy(shotStore.size() - 1);
     }
 
     private void updateUI() {
@@ -498,6 +522,9 @@ public class MainActivity extends AppCompatActivity {
         if (shotCountText != null) {
             shotCountText.setText("0");
         }
+        if (seriesStatsText != null) {
+            seriesStatsText.setText("ES --- · SD ---");
+        }
     }
 
     private void updateShotData(float velocity, float energy) {
@@ -508,34 +535,145 @@ public class MainActivity extends AppCompatActivity {
             energyText.setText(String.format(Locale.getDefault(), "%.2f", energy));
         }
         if (shotCountText != null) {
-            shotCountText.setText(String.valueOf(shotCount));
+            shotCountText.setText(String.valueOf(shotStore.size()));
+        }
+        if (seriesStatsText != null) {
+            RunningStats stats = repository.getVelocityStats();
+            seriesStatsText.setText(String.format(Locale.getDefault(),
+                    "ES %.1f · SD %.2f м/с", stats.getExtremeSpread(), stats.getStandardDeviation()));
         }
 
-        if (velocityHistory.size() >= 2) {
-            float rpm = 20.0f;
-            if (rpmText != null) {
-                rpmText.setText(String.format(Locale.getDefault(), "%.0f", rpm));
-            }
+        if (rpmText != null) {
+            // Средний по окну темп устойчивее мгновенного к дрожанию Bluetooth
+            float rpm = rateOfFire.getAverageRpm();
+            rpmText.setText(rpm > 0 ? String.format(Locale.getDefault(), "%.0f", rpm) : "---");
         }
     }
 
+    private void openSessionArchive() {
+        repository.openArchive(new File(getFilesDir(), SESSIONS_DIR_NAME),
+                e -> Log.e("Journal", "Ошибка архива сессий", e),
+                loaded -> {
+                    if (loaded > 0) {
+                        Log.d("Journal", "Восстановлено выстрелов: " + loaded);
+                    }
+                    if (isDestroyed()) {
+                        return;
+                    }
+                    // Масса продолжаемой сессии важнее значения по умолчанию
+                    currentMass = repository.getCurrentMass();
+                    frameDecoder.setMassGrams(currentMass);
+                    if (massText != null) {
+                        massText.setText(String.format(Locale.getDefault(), "%.2f", currentMass));
+                    }
+                });
+    }
+
+    private void refreshCounters() {
+        if (velocityChart != null) {
+            velocityChart.setShots(shotStore);
+        }
+        if (shotStore.isEmpty()) {
+            updateUI();
+            return;
+        }
+        ShotCursor last = shotStore.cursor().moveTo(shotStore.size() - 1);
+        updateShotData(last.velocity(), last.energy());
+    }
+
     private void resetCounter() {
-        shotCount = 0;
-        velocityHistory.clear();
-        energyHistory.clear();
-        updateUI();
-        Toast.makeText(this, "Счетчик сброшен", Toast.LENGTH_SHORT).show();
+        // Сброс закрывает текущую сессию в архив и начинает новую
+        repository.startNewSession();
+        rateOfFire.reset();
+        Toast.makeText(this, "Сессия сохранена, счетчик сброшен", Toast.LENGTH_SHORT).show();
     }
 
-    private void updateConnectionText(String text) {
-        if (connectionStatusText != null) {
-            connectionStatusText.setText(text);
+    private void updateConnectionStatus(ConnectionManager.State state, int attempt,
+                                        long retryDelayMillis) {
+        ConnectionManager.State previous = connectionState;
+        connectionState = state;
+        if (state != ConnectionManager.State.CONNECTED) {
+            stopLinkQualityChecks();
+        }
+
+        switch (state) {
+            case CONNECTED:
+                repository.setDevice(useSimulator ? SIMULATOR_DEVICE : HC05_MAC_ADDRESS);
+                startLinkQualityChecks();
+                updateConnectionStatus(true);
+                Toast.makeText(this, useSimulator ? "Подключено к симулятору" : "Подключено к HC-05",
+                        Toast.LENGTH_SHORT).show();
+                break;
+            case CONNECTING:
+                updateConnectionStatus(false);
+                if (connectionStatusText != null) {
+                    connectionStatusText.setText(attempt == 0 ? "Подключение..."
+                            : String.format(Locale.getDefault(), "Подключение... (попытка %d)", attempt + 1));
+                }
+                if (connectionHintText != null) {
+                    connectionHintText.setText("ОТМЕНА");
+                }
+                break;
+            case BACKOFF:
+                if (previous == ConnectionManager.State.CONNECTED) {
+                    Toast.makeText(this, "Соединение разорвано, переподключение", Toast.LENGTH_SHORT).show();
+                }
+                updateConnectionStatus(false);
+                if (connectionStatusText != null) {
+                    connectionStatusText.setText(String.format(Locale.getDefault(),
+                            "Повтор через %.1f с", retryDelayMillis / 1000f));
+                }
+                if (connectionHintText != null) {
+                    connectionHintText.setText("ОТМЕНА");
+                }
+                break;
+            default:
+                updateConnectionStatus(false);
+                break;
         }
-        if (connectionHintText != null) {
-            connectionHintText.setText(text);
+    }
+
+    private void startLinkQualityChecks() {
+        lastLinkLosses = linkLosses();
+        linkLossSeenAtMillis = 0;
+        mainHandler.removeCallbacks(linkQualityCheck);
+        mainHandler.postDelayed(linkQualityCheck, LINK_CHECK_INTERVAL_MILLIS);
+    }
+
+    private void stopLinkQualityChecks() {
+        mainHandler.removeCallbacks(linkQualityCheck);
+        if (linkQualityText != null) {
+            linkQualityText.setVisibility(View.GONE);
         }
     }
 
+    // Пропущенные номера и кадры, которые не удалось разобрать
+    private long linkLosses() {
+        return frameDecoder.getDroppedCount() + frameDecoder.getCrcErrorCount()
+                + frameDecoder.getMalformedCount();
+    }
+
+    private void checkLinkQuality() {
+        long losses = linkLosses();
+        long now = SystemClock.elapsedRealtime();
+        if (losses > lastLinkLosses) {
+            lastLinkLosses = losses;
+            linkLossSeenAtMillis = now;
+        }
+
+        boolean losing = linkLossSeenAtMillis != 0 && now - linkLossSeenAtMillis < LINK_LOSS_HOLD_MILLIS;
+        if (linkQualityText != null) {
+            if (losing) {
+                linkQualityText.setText(String.format(Locale.getDefault(),
+                        "Потери связи: %d выстр., %d битых кадров",
+                        frameDecoder.getDroppedCount(),
+                        frameDecoder.getCrcErrorCount() + frameDecoder.getMalformedCount()));
+            }
+            linkQualityText.setVisibility(losing ? View.VISIBLE : View.GONE);
+        }
+        mainHandler.postDelayed(linkQualityCheck, LINK_CHECK_INTERVAL_MILLIS);
+    }
+
     private void updateConnectionStatus(boolean connected) {
         if (connected) {
             if (connectionStatusText != null) {
@@ -566,19 +704,6 @@ public class MainActivity extends AppCompatActivity {
 
     private void openHistoryActivity() {
         Intent intent = new Intent(this, HistoryActivity.class);
-        intent.putExtra("shot_count", shotCount);
-        intent.putExtra("mass", currentMass);
-
-        float[] velocityArray = new float[velocityHistory.size()];
-        float[] energyArray = new float[energyHistory.size()];
-        for (int i = 0; i < velocityHistory.size(); i++) {
-            velocityArray[i] = velocityHistory.get(i);
-            energyArray[i] = energyHistory.get(i);
-        }
-
-        intent.putExtra("velocity_history", velocityArray);
-        intent.putExtra("energy_history", energyArray);
-
         startActivity(intent);
     }
 
@@ -591,6 +716,9 @@ public class MainActivity extends AppCompatActivity {
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.menu_main, menu);
+        // Симулятор нужен только для отладки без хронографа
+        boolean debuggable = (getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        menu.findItem(R.id.action_simulator).setVisible(debuggable);
         return true;
     }
 
@@ -604,11 +732,37 @@ public class MainActivity extends AppCompatActivity {
         } else if (id == R.id.action_about) {
             showAboutDialog();
             return true;
+        } else if (id == R.id.action_simulator) {
+            toggleSimulator(item);
+            return true;
+        } else if (id == R.id.action_binary_protocol) {
+            toggleBinaryProtocol(item);
+            return true;
         }
 
         return super.onOptionsItemSelected(item);
     }
 
+    private void toggleBinaryProtocol(MenuItem item) {
+        useBinaryProtocol = !useBinaryProtocol;
+        item.setChecked(useBinaryProtocol);
+        // Режим согласуется при подключении, иначе переход разорвет кадр посередине
+        Toast.makeText(this, connectionState == ConnectionManager.State.IDLE
+                        ? (useBinaryProtocol ? "Двоичный протокол включен" : "Текстовый протокол")
+                        : "Протокол сменится при следующем подключении",
+                Toast.LENGTH_SHORT).show();
+    }
+
+    private void toggleSimulator(MenuItem item) {
+        if (connectionState != ConnectionManager.State.IDLE) {
+            connectionManager.disconnect();
+        }
+        useSimulator = !useSimulator;
+        item.setChecked(useSimulator);
+        Toast.makeText(this, useSimulator ? "Источник: симулятор" : "Источник: HC-05",
+                Toast.LENGTH_SHORT).show();
+    }
+
     private void showAboutDialog() {
         new AlertDialog.Builder(this)
                 .setTitle("О программе")
@@ -631,6 +785,8 @@ public class MainActivity extends AppCompatActivity {
 
         if (requestCode == 1 && resultCode == RESULT_OK && data != null) {
             currentMass = data.getFloatExtra("new_mass", 0.25f);
+            repository.setCurrentMass(currentMass);
+            frameDecoder.setMassGrams(currentMass);
             if (massText != null) {
                 massText.setText(String.format(Locale.getDefault(), "%.2f", currentMass));
             }
@@ -645,117 +801,35 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onSaveInstanceState(@NonNull Bundle outState) {
         super.onSaveInstanceState(outState);
-        outState.putInt("shotCount", shotCount);
         outState.putFloat("currentMass", currentMass);
     }
 
     @Override
     protected void onRestoreInstanceState(@NonNull Bundle savedInstanceState) {
         super.onRestoreInstanceState(savedInstanceState);
-        shotCount = savedInstanceState.getInt("shotCount", 0);
         currentMass = savedInstanceState.getFloat("currentMass", 0.25f);
-        if (shotCountText != null) {
-            shotCountText.setText(String.valueOf(shotCount));
-        }
+        repository.setCurrentMass(currentMass);
+        frameDecoder.setMassGrams(currentMass);
         if (massText != null) {
             massText.setText(String.format(Locale.getDefault(), "%.2f", currentMass));
         }
     }
 
     @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        if (connectedThread != null) {
-            connectedThread.cancel();
-        }
-        if (bluetoothSocket != null) {
-            try {
-                bluetoothSocket.close();
-            } catch (IOException e) {
-                Log.e("Bluetooth", "Ошибка закрытия сокета", e);
-            }
-        }
+    protected void onStop() {
+        super.onStop();
+        // Уходя в фон, не держим выстрелы только в памяти
+        repository.flushJournal();
     }
 
-    private static class ConnectedThread extends Thread {
-        private final WeakReference<MainActivity> activityRef;
-        private final BluetoothSocket socket;
-        private final InputStream inputStream;
-        private final OutputStream outputStream;
-        private volatile boolean isRunning = true;
-
-        public ConnectedThread(BluetoothSocket socket, MainActivity activity) {
-            this.socket = socket;
-            this.activityRef = new WeakReference<>(activity);
-
-            InputStream tmpIn = null;
-            OutputStream tmpOut = null;
-
-            try {
-                tmpIn = socket.getInputStream();
-                tmpOut = socket.getOutputStream();
-            } catch (IOException e) {
-                Log.e("Bluetooth", "Ошибка создания потоков", e);
-            }
-
-            this.inputStream = tmpIn;
-            this.outputStream = tmpOut;
-        }
-
-        @Override
-        public void run() {
-            byte[] buffer = new byte[1024];
-            int numBytes;
-
-            while (isRunning) {
-                try {
-                    numBytes = inputStream.read(buffer);
-                    if (numBytes > 0) {
-                        final String receivedData = new String(buffer, 0, numBytes);
-
-                        MainActivity activity = activityRef.get();
-                        if (activity != null) {
-                            new Handler(Looper.getMainLooper()).post(() -> {
-                                activity.processReceivedData(receivedData);
-                            });
-                        }
-                    }
-                } catch (IOException e) {
-                    if (isRunning) {
-                        Log.e("Bluetooth", "Поток чтения прерван", e);
-                        MainActivity activity = activityRef.get();
-                        if (activity != null) {
-                            new Handler(Looper.getMainLooper()).post(() -> {
-                                activity.updateConnectionStatus(false);
-                                Toast.makeText(activity,
-                                        "Соединение разорвано",
-                                        Toast.LENGTH_SHORT).show();
-                            });
-                        }
-                    }
-                    break;
-                }
-            }
-        }
-
-        public void write(byte[] bytes) {
-            try {
-                outputStream.write(bytes);
-                Log.d("Bluetooth", "Данные отправлены: " + new String(bytes));
-            } catch (IOException e) {
-                Log.e("Bluetooth", "Ошибка отправки данных", e);
-            }
-        }
-
-        public void cancel() {
-            isRunning = false;
-            try {
-                if (inputStream != null) inputStream.close();
-                if (outputStream != null) outputStream.close();
-                if (socket != null) socket.close();
-            } catch (IOException e) {
-                Log.e("Bluetooth", "Ошибка закрытия потоков", e);
-            }
-        }
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        repository.removeListener(historyListener);
+        mainHandler.removeCallbacks(scheduleShotFrame);
+        mainHandler.removeCallbacks(linkQualityCheck);
+        Choreographer.getInstance().removeFrameCallback(shotFrameCallback);
+        commandQueue.shutdown();
+        connectionManager.shutdown();
     }
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.example.chronographapp;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothSocket;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.UUID;
+
+/**
+ * Канал Bluetooth SPP (RFCOMM) до модуля HC-05.
+ */
+class RfcommTransport implements ChronographTransport {
+
+    static final UUID SPP_UUID = UUID.fromString("00001101-0000-1000-8000-00805F9B34FB");
+
+    private final BluetoothAdapter adapter;
+    private final BluetoothSocket socket;
+
+    /**
+     * @throws SecurityException        нет разрешения BLUETOOTH_CONNECT
+     * @throws IllegalArgumentException неверный MAC-адрес
+     */
+    RfcommTransport(BluetoothAdapter adapter, String address) throws IOException {
+        this.adapter = adapter;
+        BluetoothDevice device = adapter.getRemoteDevice(address);
+        this.socket = device.createRfcommSocketToServiceRecord(SPP_UUID);
+    }
+
+    @Override
+    public void connect() throws IOException {
+        // Поиск устройств замедляет и рвет подключение
+        adapter.cancelDiscovery();
+        socket.connect();
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return socket.getInputStream();
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        return socket.getOutputStream();
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
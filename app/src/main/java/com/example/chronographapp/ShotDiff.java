@@ -0,0 +1,64 @@
+package com.example.chronographapp;
+
+import androidx.recyclerview.widget.DiffUtil;
+
+/**
+ * Разница между двумя снимками истории для {@link ShotHistoryAdapter}.
+ *
+ * Сравнивает колонки {@link ShotStore} напрямую, без списка объектов. Выстрел
+ * опознается по ключу из номера и времени: номера повторяются после перезапуска
+ * хронографа, а вместе со временем выстрела ключ уникален.
+ */
+final class ShotDiff {
+
+    private ShotDiff() {
+    }
+
+    /**
+     * Стабильный id выстрела: время в старших битах, младшие 16 бит номера - в младших.
+     */
+    static long keyOf(ShotCursor shot) {
+        return (shot.timeMillis() << 16) ^ (shot.shotNumber() & 0xFFFF);
+    }
+
+    /**
+     * Считает разницу; тяжелая часть, вызывается не с главного потока.
+     * Порядок выстрелов не меняется, поэтому перемещения не ищутся.
+     */
+    static DiffUtil.DiffResult calculate(ShotStore oldStore, ShotStore newStore) {
+        return DiffUtil.calculateDiff(new Callback(oldStore, newStore), false);
+    }
+
+    private static final class Callback extends DiffUtil.Callback {
+        private final ShotCursor oldShots;
+        private final ShotCursor newShots;
+
+        Callback(ShotStore oldStore, ShotStore newStore) {
+            this.oldShots = oldStore.cursor();
+            this.newShots = newStore.cursor();
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldShots.getCount();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newShots.getCount();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return keyOf(oldShots.moveTo(oldItemPosition)) == keyOf(newShots.moveTo(newItemPosition));
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            oldShots.moveTo(oldItemPosition);
+            newShots.moveTo(newItemPosition);
+            return Float.compare(oldShots.velocity(), newShots.velocity()) == 0
+                    && Float.compare(oldShots.energy(), newShots.energy()) == 0;
+        }
+    }
+}
@@ -1,29 +1,77 @@
 package com.example.chronographapp;
 
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
-import java.util.List;
+import java.text.DecimalFormatSymbols;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+/**
+ * Список выстрелов истории.
+ *
+ * Адаптер показывает собственный снимок {@link ShotStore#snapshot()}: он берется без
+ * копирования, так что открытие истории и обновления не зависят от числа выстрелов.
+ * Новые данные приходят через {@link #submitData(ShotStore)}, разница со снимком
+ * считается {@link ShotDiff} в фоне, и в RecyclerView уходят только точечные изменения.
+ * Дописывание в конец без ожидающих пересчетов обходится без сравнения.
+ *
+ * Архивные сессии показываются через {@link #showPaged(ShotPager)}: строки читаются
+ * из журнала страницами, а пока страница не загружена, строка показывает заглушку.
+ */
 public class ShotHistoryAdapter extends RecyclerView.Adapter<ShotHistoryAdapter.ViewHolder> {
 
-    private List<ShotData> shotList;
+    // Общий фоновый поток для пересчета разницы, как у AsyncListDiffer
+    private static final ExecutorService DIFF_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "shot-diff");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private ShotStore shotStore;
+    // Курсор по показанному снимку, переставляется на каждой привязке
+    private ShotCursor shots;
+    // Постраничный источник архивной сессии; null - показываем снимок
+    private ShotPager pager;
+    // Номер последнего запрошенного и последнего примененного пересчета
+    private int submittedGeneration;
+    private int appliedGeneration;
     private OnShotClickListener onShotClickListener;
 
     private static final float HIGH_VELOCITY = 180f;
     private static final float MEDIUM_VELOCITY = 160f;
     private static final float LOW_VELOCITY = 140f;
 
+    private static final char[] VELOCITY_SUFFIX = " м/с".toCharArray();
+    private static final char[] ENERGY_SUFFIX = " Дж".toCharArray();
+    private static final String PLACEHOLDER = "…";
+
+    // Цвета и формат разрешаются один раз, а не на каждой привязке строки
+    private int highVelocityColor;
+    private int mediumVelocityColor;
+    private int lowVelocityColor;
+    private int slowVelocityColor;
+    private boolean colorsResolved;
+    private final char decimalSeparator = DecimalFormatSymbols.getInstance().getDecimalSeparator();
+    private final TimeZone timeZone = TimeZone.getDefault();
+
     public interface OnShotClickListener {
         void onShotClick(int position, ShotData shot);
         void onShotLongClick(int position, ShotData shot);
     }
 
-    public ShotHistoryAdapter(List<ShotData> shotList) {
-        this.shotList = shotList;
+    public ShotHistoryAdapter(ShotStore shotStore) {
+        applySnapshot(shotStore.snapshot(), 0);
+        setHasStableIds(true);
     }
 
     public void setOnShotClickListener(OnShotClickListener listener) {
@@ -33,90 +81,228 @@ public class ShotHistoryAdapter extends RecyclerView.Adapter<ShotHistoryAdapter.
     @NonNull
     @Override
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        if (!colorsResolved) {
+            resolveColors(parent.getContext());
+        }
+
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_shot_history, parent, false);
-        return new ViewHolder(view);
-    }
-
-    @Override
-    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        ShotData shot = shotList.get(position);
-
-        holder.shotNumberText.setText(String.format("#%d", shot.getShotNumber()));
-        holder.timestampText.setText(shot.getTimestamp());
-        holder.velocityText.setText(String.format("%.1f м/с", shot.getVelocity()));
-        holder.energyText.setText(String.format("%.2f Дж", shot.getEnergy()));
-
-        setVelocityColor(holder.velocityText, shot.getVelocity());
+        ViewHolder holder = new ViewHolder(view);
 
+        // Слушатели создаются один раз на строку; позиция берется в момент нажатия,
+        // поэтому после удалений не уходит на соседний выстрел
         holder.itemView.setOnClickListener(v -> {
-            if (onShotClickListener != null) {
+            int position = holder.getBindingAdapterPosition();
+            ShotData shot = getShotAt(position);
+            if (onShotClickListener != null && shot != null) {
                 onShotClickListener.onShotClick(position, shot);
             }
         });
 
         holder.itemView.setOnLongClickListener(v -> {
-            if (onShotClickListener != null) {
+            int position = holder.getBindingAdapterPosition();
+            ShotData shot = getShotAt(position);
+            if (onShotClickListener != null && shot != null) {
                 onShotClickListener.onShotLongClick(position, shot);
                 return true;
             }
             return false;
         });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        ShotCursor shot = pager != null ? pager.get(position) : shots.moveTo(position);
+        if (shot == null) {
+            // Страница еще читается, строка перепривяжется по onPageLoaded
+            bindPlaceholder(holder);
+            return;
+        }
+        float velocity = shot.velocity();
+
+        char[] number = holder.numberChars;
+        number[0] = '#';
+        int length = FixedPointFormat.formatLong(shot.shotNumber(), number, 1);
+        holder.shotNumberText.setText(number, 0, length);
+
+        length = FixedPointFormat.formatTimeOfDay(shot.timeMillis(), timeZone,
+                holder.timeChars, 0);
+        holder.timestampText.setText(holder.timeChars, 0, length);
+
+        length = FixedPointFormat.format(velocity, 1, decimalSeparator, holder.velocityChars, 0);
+        length = appendSuffix(VELOCITY_SUFFIX, holder.velocityChars, length);
+        holder.velocityText.setText(holder.velocityChars, 0, length);
+
+        length = FixedPointFormat.format(shot.energy(), 2, decimalSeparator,
+                holder.energyChars, 0);
+        length = appendSuffix(ENERGY_SUFFIX, holder.energyChars, length);
+        holder.energyText.setText(holder.energyChars, 0, length);
+
+        holder.velocityText.setTextColor(velocityColor(velocity));
     }
 
-    private void setVelocityColor(TextView velocityText, float velocity) {
-        int colorResource;
+    private void bindPlaceholder(ViewHolder holder) {
+        holder.shotNumberText.setText(PLACEHOLDER);
+        holder.timestampText.setText(PLACEHOLDER);
+        holder.velocityText.setText(PLACEHOLDER);
+        holder.energyText.setText(PLACEHOLDER);
+        holder.velocityText.setTextColor(slowVelocityColor);
+    }
+
+    private void resolveColors(Context context) {
+        highVelocityColor = context.getColor(R.color.glass_red);
+        mediumVelocityColor = context.getColor(R.color.glass_orange);
+        lowVelocityColor = context.getColor(R.color.glass_green);
+        slowVelocityColor = context.getColor(R.color.glass_blue);
+        colorsResolved = true;
+    }
 
+    private int velocityColor(float velocity) {
         if (velocity > HIGH_VELOCITY) {
-            colorResource = R.color.glass_red;
+            return highVelocityColor;
         } else if (velocity > MEDIUM_VELOCITY) {
-            colorResource = R.color.glass_orange;
+            return mediumVelocityColor;
         } else if (velocity > LOW_VELOCITY) {
-            colorResource = R.color.glass_green;
-        } else {
-            colorResource = R.color.glass_blue;
+            return lowVelocityColor;
         }
+        return slowVelocityColor;
+    }
 
-        velocityText.setTextColor(velocityText.getContext().getColor(colorResource));
+    private static int appendSuffix(char[] suffix, char[] dst, int offset) {
+        System.arraycopy(suffix, 0, dst, offset, suffix.length);
+        return offset + suffix.length;
     }
 
     @Override
     public int getItemCount() {
-        return shotList != null ? shotList.size() : 0;
+        return pager != null ? pager.getCount() : shotStore.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        if (pager != null) {
+            // Архив не меняется, позиция и есть стабильный ключ
+            return position;
+        }
+        return ShotDiff.keyOf(shots.moveTo(position));
+    }
+
+    /**
+     * Показывает архивную сессию постранично вместо снимка. Ожидающие пересчеты
+     * отменяются; вернуться к снимку можно через {@link #submitData(ShotStore)}.
+     */
+    public void showPaged(ShotPager pager) {
+        int previousCount = getItemCount();
+        applySnapshot(new ShotStore(), ++submittedGeneration);
+        this.pager = pager;
+        replaceAll(previousCount);
     }
 
-    public void updateData(List<ShotData> newShotList) {
-        this.shotList = newShotList;
-        notifyDataSetChanged();
+    /**
+     * Строки страницы загружены - перепривязываем только их.
+     */
+    public void onPageLoaded(int firstPosition, int count) {
+        notifyItemRangeChanged(firstPosition, count);
     }
 
-    public void addShot(ShotData shot) {
-        if (shotList != null) {
-            shotList.add(shot);
-            notifyItemInserted(shotList.size() - 1);
+    /**
+     * Показывает новое содержимое. Снимок берется сразу, поэтому {@code source}
+     * можно менять дальше; экран обновится, когда будет готова разница.
+     */
+    public void submitData(ShotStore source) {
+        ShotStore previous = shotStore;
+        ShotStore next = source.snapshot();
+        int generation = ++submittedGeneration;
+
+        if (pager != null) {
+            // Возврат из архива: у разных сессий нет общих строк
+            int previousCount = pager.getCount();
+            pager = null;
+            applySnapshot(next, generation);
+            replaceAll(previousCount);
+            return;
+        }
+
+        if (previous.isEmpty() || next.isEmpty()) {
+            // Сравнивать не с чем - применяем сразу
+            applySnapshot(next, generation);
+            if (previous.isEmpty()) {
+                notifyItemRangeInserted(0, next.size());
+            } else {
+                notifyItemRangeRemoved(0, previous.size());
+            }
+            return;
         }
+
+        DIFF_EXECUTOR.execute(() -> {
+            DiffUtil.DiffResult result = ShotDiff.calculate(previous, next);
+            mainHandler.post(() -> {
+                // Устаревший пересчет: после него уже запросили новый
+                if (generation == submittedGeneration) {
+                    applySnapshot(next, generation);
+                    result.dispatchUpdatesTo(this);
+                }
+            });
+        });
     }
 
-    public void removeShot(int position) {
-        if (shotList != null && position >= 0 && position < shotList.size()) {
-            shotList.remove(position);
-            notifyItemRemoved(position);
+    /**
+     * Дописывает новые выстрелы из {@code source}, который отличается от показанного
+     * только хвостом.
+     */
+    public void appendFrom(ShotStore source) {
+        if (pager != null) {
+            // Архивная сессия не дописывается
+            return;
+        }
+        if (isUpdatePending()) {
+            submitData(source);
+            return;
+        }
+        int from = shotStore.size();
+        if (source.size() < from) {
+            submitData(source);
+            return;
+        }
+        // Новый снимок отличается от показанного только хвостом
+        applySnapshot(source.snapshot(), appliedGeneration);
+        if (shotStore.size() > from) {
+            notifyItemRangeInserted(from, shotStore.size() - from);
         }
     }
 
-    public void clearData() {
-        if (shotList != null) {
-            int size = shotList.size();
-            shotList.clear();
-            if (size > 0) {
-                notifyItemRangeRemoved(0, size);
-            }
+    /**
+     * @return {@code true}, пока показанный снимок отстает от последних данных
+     */
+    public boolean isUpdatePending() {
+        return appliedGeneration != submittedGeneration;
+    }
+
+    private void replaceAll(int previousCount) {
+        if (previousCount > 0) {
+            notifyItemRangeRemoved(0, previousCount);
+        }
+        if (getItemCount() > 0) {
+            notifyItemRangeInserted(0, getItemCount());
         }
     }
 
+    private void applySnapshot(ShotStore snapshot, int generation) {
+        shotStore = snapshot;
+        shots = snapshot.cursor();
+        appliedGeneration = generation;
+    }
+
     public ShotData getShotAt(int position) {
-        if (shotList != null && position >= 0 && position < shotList.size()) {
-            return shotList.get(position);
+        if (pager != null) {
+            ShotCursor shot = position >= 0 && position < pager.getCount()
+                    ? pager.get(position) : null;
+            return shot != null ? ShotData.of(shot) : null;
+        }
+        if (position >= 0 && position < shotStore.size()) {
+            // Объект создается только для диалога одного выстрела
+            return ShotData.of(shots.moveTo(position));
         }
         return null;
     }
@@ -127,6 +313,13 @@ public class ShotHistoryAdapter extends RecyclerView.Adapter<ShotHistoryAdapter.
         TextView velocityText;
         TextView energyText;
 
+        // TextView держит ссылку на массив, поэтому у каждого поля свой буфер,
+        // который меняется только перед следующим setText
+        final char[] numberChars = new char[FixedPointFormat.MAX_LENGTH];
+        final char[] timeChars = new char[8];
+        final char[] velocityChars = new char[FixedPointFormat.MAX_LENGTH + VELOCITY_SUFFIX.length];
+        final char[] energyChars = new char[FixedPointFormat.MAX_LENGTH + ENERGY_SUFFIX.length];
+
         ViewHolder(View itemView) {
             super(itemView);
             shotNumberText = itemView.findViewById(R.id.shotNumberText);
@@ -135,4 +328,4 @@ public class ShotHistoryAdapter extends RecyclerView.Adapter<ShotHistoryAdapter.
             energyText = itemView.findViewById(R.id.energyText);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,516 @@
+package com.example.chronographapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Общая на весь процесс история текущей сессии.
+ *
+ * Экраны получают {@link ShotStore} по ссылке, поэтому открытие истории не зависит
+ * от числа выстрелов, а удаления на экране истории сразу видны главному экрану.
+ * Каждое изменение дублируется в журнал открытой сессии {@link SessionArchive},
+ * поэтому история переживает гибель процесса. Статистика серии ведется инкрементально
+ * вместе с историей. Все обращения - только с главного потока; файлы архива
+ * открываются, закрываются и обновляются на отдельном потоке архива.
+ *
+ * Энергию приложение считает само по скорости и массе сессии. Смена массы пересчитывает
+ * колонку энергий целиком на фоновом потоке: снимок скоростей, один цикл по массиву,
+ * статистика, и только затем одна замена колонки и одно уведомление на главном потоке.
+ * Если за это время история поменялась иначе, чем дописыванием, пересчет повторяется.
+ */
+public final class ShotRepository {
+
+    public interface Listener {
+        // Пачка выстрелов добавлена в конец истории
+        void onShotsAppended(int count);
+
+        // История изменилась иначе: удаление, очистка
+        void onHistoryChanged();
+    }
+
+    public interface ArchiveListener {
+        // Архив открыт; loaded - сколько выстрелов продолжаемой сессии встало в начало истории
+        void onArchiveOpened(int loaded);
+    }
+
+    // Через сколько выстрелов журнал принудительно сбрасывается на диск
+    static final int JOURNAL_SYNC_INTERVAL = 16;
+
+    private static ShotRepository instance;
+
+    private final ShotStore shotStore = new ShotStore();
+    // Минимум и максимум после удаления крайнего выстрела перечитываются из истории
+    private final RunningStats velocityStats = new RunningStats(shotStore::getVelocity);
+    private final RunningStats energyStats = new RunningStats(shotStore::getEnergy);
+    private final VelocityHistogram velocityHistogram = new VelocityHistogram();
+    private final List<Listener> listeners = new ArrayList<>();
+    private float currentMass = 0.25f;
+    private String device = "";
+    private SessionArchive archive;
+    private ShotJournal journal;
+    private ShotJournal.ErrorListener errorListener;
+    private boolean archiveOpening;
+    // Сброс, нажатый пока архив открывается, выполняется сразу после открытия
+    private boolean newSessionOnOpen;
+    private ArchiveListener archiveListener;
+    // Растет при каждой смене сессии: журнал, открытый для уже закрытой сессии, не подключается
+    private int journalGeneration;
+
+    // Файлы архива открываются и читаются здесь, а не на главном потоке
+    private final ExecutorService archiveExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "session-archive");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService energyExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "energy-recompute");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Executor mainExecutor = Runnable::run;
+    // Растут при смене массы и при изменениях истории кроме дописывания
+    private int massVersion;
+    private int historyVersion;
+
+    private ShotRepository() {
+    }
+
+    public static synchronized ShotRepository getInstance() {
+        if (instance == null) {
+            instance = new ShotRepository();
+        }
+        return instance;
+    }
+
+    public ShotStore getShotStore() {
+        return shotStore;
+    }
+
+    public RunningStats getVelocityStats() {
+        return velocityStats;
+    }
+
+    public RunningStats getEnergyStats() {
+        return energyStats;
+    }
+
+    public VelocityHistogram getVelocityHistogram() {
+        return velocityHistogram;
+    }
+
+    public float getCurrentMass() {
+        return currentMass;
+    }
+
+    public void setCurrentMass(float currentMass) {
+        if (Float.compare(currentMass, this.currentMass) == 0) {
+            return;
+        }
+        this.currentMass = currentMass;
+        updateActiveSession();
+        massVersion++;
+        if (journal != null) {
+            journal.recomputeEnergies(currentMass);
+        }
+        recomputeEnergies();
+    }
+
+    /**
+     * Поток, на котором применяются фоновый пересчет энергий и открытие архива, - главный.
+     */
+    public void setMainExecutor(Executor mainExecutor) {
+        this.mainExecutor = mainExecutor;
+    }
+
+    public String getDevice() {
+        return device;
+    }
+
+    public void setDevice(String device) {
+        this.device = device;
+        updateActiveSession();
+    }
+
+    public SessionArchive getArchive() {
+        return archive;
+    }
+
+    /**
+     * @return открытая сессия или {@code null}, если архив еще не открыт
+     */
+    public SessionSummary getActiveSession() {
+        return archive != null ? archive.getActiveSession() : null;
+    }
+
+    /**
+     * Открывает архив сессий на потоке архива. Если после прошлого запуска осталась
+     * открытая сессия, ее журнал читается там же одним чтением, а на главном потоке
+     * выстрелы встают в начало истории и сессия продолжается, иначе начинается новая.
+     * Выстрелы, пришедшие до открытия, дописываются в журнал следом. Повторные вызовы
+     * только передают {@code listener}.
+     *
+     * @param listener вызывается на главном потоке, когда архив открыт
+     */
+    public void openArchive(File directory, ShotJournal.ErrorListener errorListener,
+                            ArchiveListener listener) {
+        if (archive != null) {
+            listener.onArchiveOpened(0);
+            return;
+        }
+        archiveListener = listener;
+        if (archiveOpening) {
+            return;
+        }
+        archiveOpening = true;
+        this.errorListener = errorListener;
+
+        long now = System.currentTimeMillis();
+        float mass = currentMass;
+        String startDevice = device;
+        archiveExecutor.execute(() -> {
+            SessionArchive opened;
+            SessionSummary active;
+            boolean continued;
+            ShotStore loaded = new ShotStore();
+            ShotJournal openedJournal;
+            try {
+                opened = new SessionArchive(directory);
+                active = opened.getActiveSession();
+                continued = active != null;
+                if (!continued) {
+                    active = opened.startSession(now, mass, startDevice);
+                }
+                File journalFile = opened.getJournalFile(active.getId());
+                try {
+                    opened.loadSession(active.getId(), loaded);
+                } catch (IOException e) {
+                    // Нечитаемый журнал откладываем и начинаем заново: иначе новые выстрелы
+                    // легли бы после старых записей и удаление по индексу било бы мимо
+                    loaded.clear();
+                    errorListener.onJournalError(e);
+                    ShotJournal.setAside(journalFile);
+                }
+                boolean staleEnergies = recomputeIfStale(loaded, active.getMass());
+                openedJournal = ShotJournal.open(journalFile, JOURNAL_SYNC_INTERVAL, errorListener);
+                if (staleEnergies) {
+                    openedJournal.recomputeEnergies(active.getMass());
+                }
+            } catch (IOException e) {
+                mainExecutor.execute(() -> {
+                    archiveOpening = false;
+                    reportError(e);
+                });
+                return;
+            }
+            SessionSummary session = active;
+            mainExecutor.execute(() ->
+                    onArchiveOpened(opened, session, continued, openedJournal, loaded));
+        });
+    }
+
+    /**
+     * Масса в описании сессии пишется раньше, чем журнал успевает пересчитаться: если
+     * процесс погиб между ними, энергии в журнале остались от прежней массы.
+     *
+     * @return {@code true}, если энергии пришлось пересчитать
+     */
+    private static boolean recomputeIfStale(ShotStore shots, float mass) {
+        int count = shots.size();
+        for (int i = 0; i < count; i++) {
+            if (Float.compare(shots.getEnergy(i),
+                    Ballistics.energyJoules(mass, shots.getVelocity(i))) != 0) {
+                float[] column = shots.copyVelocities();
+                Ballistics.energies(mass, column, column, count);
+                shots.setEnergies(column, count);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void onArchiveOpened(SessionArchive opened, SessionSummary session, boolean continued,
+                                 ShotJournal openedJournal, ShotStore loaded) {
+        archiveOpening = false;
+        archive = opened;
+        journal = openedJournal;
+        ArchiveListener listener = archiveListener;
+        archiveListener = null;
+        if (newSessionOnOpen) {
+            // Историю уже сбросили: восстановленная сессия сразу уходит в архив
+            newSessionOnOpen = false;
+            rollSession();
+            listener.onArchiveOpened(0);
+            return;
+        }
+
+        // Выстрелы, пришедшие до открытия архива, идут после восстановленных
+        appendHistoryToJournal();
+        int restored = loaded.size();
+        if (restored > 0) {
+            loaded.appendFrom(shotStore, 0);
+            shotStore.clear();
+            shotStore.appendFrom(loaded, 0);
+            historyVersion++;
+            resetStatistics();
+            notifyHistoryChanged();
+        }
+
+        if (continued) {
+            // Масса продолжаемой сессии важнее значения по умолчанию
+            if (device.isEmpty()) {
+                device = session.getDevice();
+            }
+            if (Float.compare(session.getMass(), currentMass) != 0) {
+                currentMass = session.getMass();
+                massVersion++;
+                journal.recomputeEnergies(currentMass);
+                recomputeEnergies();
+            }
+        }
+        if (Float.compare(session.getMass(), currentMass) != 0
+                || !session.getDevice().equals(device)) {
+            // Масса или хронограф сменились, пока архив открывался
+            updateActiveSession();
+        }
+        listener.onArchiveOpened(restored);
+    }
+
+    /**
+     * Закрывает текущую сессию, сохраняя ее итог в индекс, и начинает новую. История
+     * очищается сразу, а файлы архива меняются на потоке архива: старый журнал
+     * дописывается и закрывается, итог считается по нему. Выстрелы, пришедшие до
+     * открытия нового журнала, дописываются в него следом.
+     */
+    public void startNewSession() {
+        historyVersion++;
+        shotStore.clear();
+        resetStatistics();
+        if (archive != null) {
+            rollSession();
+        } else if (archiveOpening) {
+            newSessionOnOpen = true;
+        }
+        notifyHistoryChanged();
+    }
+
+    private void rollSession() {
+        ShotJournal closing = journal;
+        journal = null;
+        int generation = ++journalGeneration;
+        SessionArchive opened = archive;
+        long now = System.currentTimeMillis();
+        float mass = currentMass;
+        String sessionDevice = device;
+        ShotJournal.ErrorListener listener = errorListener;
+        archiveExecutor.execute(() -> {
+            ShotJournal next = null;
+            try {
+                if (closing != null) {
+                    closing.close();
+                }
+                opened.closeActiveSession(now);
+                SessionSummary session = opened.startSession(now, mass, sessionDevice);
+                next = ShotJournal.open(opened.getJournalFile(session.getId()),
+                        JOURNAL_SYNC_INTERVAL, listener);
+            } catch (IOException e) {
+                mainExecutor.execute(() -> reportError(e));
+            }
+            ShotJournal result = next;
+            mainExecutor.execute(() -> attachJournal(result, generation));
+        });
+    }
+
+    private void attachJournal(ShotJournal next, int generation) {
+        if (generation != journalGeneration) {
+            // Сессию уже сменили снова, этот журнал никому не нужен
+            if (next != null) {
+                archiveExecutor.execute(() -> closeQuietly(next));
+            }
+            return;
+        }
+        journal = next;
+        if (journal != null) {
+            appendHistoryToJournal();
+        }
+    }
+
+    // Дописывает в только что открытый журнал выстрелы, пришедшие пока он открывался
+    private void appendHistoryToJournal() {
+        for (int i = 0; i < shotStore.size(); i++) {
+            // Энергия по текущей массе: пересчет этих выстрелов в памяти мог еще не примениться
+            float velocity = shotStore.getVelocity(i);
+            journal.append(shotStore.getShotNumber(i), velocity,
+                    Ballistics.energyJoules(currentMass, velocity), shotStore.getTimeMillis(i));
+        }
+    }
+
+    private void closeQuietly(ShotJournal unused) {
+        try {
+            unused.close();
+        } catch (IOException e) {
+            mainExecutor.execute(() -> reportError(e));
+        }
+    }
+
+    public void flushJournal() {
+        if (journal != null) {
+            journal.flush();
+        }
+    }
+
+    /**
+     * Сбрасывает журнал на диск, например перед экспортом.
+     *
+     * @return завершается, когда журнал открытой сессии дописан
+     */
+    public Future<?> syncJournal() {
+        return journal != null ? journal.sync() : CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * @return файл журнала открытой сессии или {@code null}, если архив не открыт
+     */
+    public File getActiveJournalFile() {
+        SessionSummary active = getActiveSession();
+        return active != null && journal != null ? archive.getJournalFile(active.getId()) : null;
+    }
+
+    /**
+     * Добавляет выстрел; энергия считается по текущей массе.
+     */
+    public void addShot(int shotNumber, float velocity, long timeMillis) {
+        float energy = Ballistics.energyJoules(currentMass, velocity);
+        shotStore.add(shotNumber, velocity, energy, timeMillis);
+        velocityStats.add(velocity);
+        energyStats.add(energy);
+        velocityHistogram.add(velocity);
+        if (journal != null) {
+            journal.append(shotNumber, velocity, energy, timeMillis);
+        }
+    }
+
+    public void removeShot(int index) {
+        ShotCursor removed = shotStore.cursor().moveTo(index);
+        velocityStats.remove(removed.velocity());
+        energyStats.remove(removed.energy());
+        velocityHistogram.remove(removed.velocity());
+        historyVersion++;
+        shotStore.remove(index);
+        if (journal != null) {
+            journal.removeRecord(index);
+        }
+        notifyHistoryChanged();
+    }
+
+    public void clear() {
+        historyVersion++;
+        shotStore.clear();
+        resetStatistics();
+        if (journal != null) {
+            journal.reset();
+        }
+        notifyHistoryChanged();
+    }
+
+    public void addListener(Listener listener) {
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public void notifyShotsAppended(int count) {
+        if (count <= 0) {
+            return;
+        }
+        for (int i = listeners.size() - 1; i >= 0; i--) {
+            listeners.get(i).onShotsAppended(count);
+        }
+    }
+
+    private void recomputeEnergies() {
+        if (shotStore.isEmpty()) {
+            return;
+        }
+        float mass = currentMass;
+        int expectedMass = massVersion;
+        int expectedHistory = historyVersion;
+        // Снимок колонки - одно копирование массива, дальше главный поток свободен
+        float[] column = shotStore.copyVelocities();
+        energyExecutor.execute(() -> {
+            Ballistics.energies(mass, column, column, column.length);
+            RunningStats stats = new RunningStats();
+            for (float energy : column) {
+                stats.add(energy);
+            }
+            mainExecutor.execute(() -> applyEnergies(column, stats, expectedMass, expectedHistory));
+        });
+    }
+
+    private void applyEnergies(float[] energies, RunningStats stats, int expectedMass,
+                               int expectedHistory) {
+        if (expectedMass != massVersion) {
+            // Массу уже сменили снова - применится следующий пересчет
+            return;
+        }
+        if (expectedHistory != historyVersion) {
+            // Журнал пересчитан на своем потоке в том же порядке, что и удаления, и
+            // новых энергий не теряет - повторить нужно только пересчет в памяти
+            recomputeEnergies();
+            return;
+        }
+        shotStore.setEnergies(energies, energies.length);
+        energyStats.set(stats);
+        // Дописанные после снимка выстрелы уже посчитаны с новой массой
+        for (int i = energies.length; i < shotStore.size(); i++) {
+            energyStats.add(shotStore.getEnergy(i));
+        }
+        notifyHistoryChanged();
+    }
+
+    private void resetStatistics() {
+        ShotCursor shots = shotStore.cursor();
+        velocityStats.resetToVelocities(shots);
+        energyStats.resetToEnergies(shots);
+        velocityHistogram.resetToVelocities(shots);
+    }
+
+    private void updateActiveSession() {
+        if (archive == null) {
+            return;
+        }
+        // Запись с force() - на потоке архива, после уже начатой там смены сессии
+        SessionArchive opened = archive;
+        float mass = currentMass;
+        String sessionDevice = device;
+        archiveExecutor.execute(() -> {
+            try {
+                opened.updateActiveSession(mass, sessionDevice);
+            } catch (IOException e) {
+                mainExecutor.execute(() -> reportError(e));
+            }
+        });
+    }
+
+    private void reportError(IOException e) {
+        if (errorListener != null) {
+            errorListener.onJournalError(e);
+        }
+    }
+
+    public void notifyHistoryChanged() {
+        for (int i = listeners.size() - 1; i >= 0; i--) {
+            listeners.get(i).onHistoryChanged();
+        }
+    }
+}
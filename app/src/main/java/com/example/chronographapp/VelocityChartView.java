@@ -0,0 +1,253 @@
+package com.example.chronographapp;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.util.AttributeSet;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+/**
+ * График скорости за сессию.
+ *
+ * Держит свою копию скоростей и дописывает в нее только новые выстрелы. Линия строится
+ * в {@link Path} по точкам, отобранным {@link LttbDownsampler}: не больше одной точки на
+ * пиксель ширины, так что перестроение стоит одинаково для ста и пятидесяти тысяч
+ * выстрелов. Линия перестраивается сразу в обработчиках новых выстрелов, масштаба,
+ * прокрутки и смены размера, а {@link #onDraw} лишь рисует готовые сетку и линию.
+ *
+ * Щипок меняет число видимых выстрелов, прокрутка уводит окно в прошлое, двойное касание
+ * возвращает всю сессию. Пока окно у правого края, график следует за новыми выстрелами.
+ */
+public class VelocityChartView extends View {
+
+    // Меньше десяти выстрелов на экране - это уже не тренд
+    private static final int MIN_VISIBLE_SHOTS = 10;
+    private static final int GRID_LINES = 3;
+
+    private float[] velocities = new float[64];
+    private int count;
+
+    // Окно просмотра: сколько выстрелов видно (0 - все) и насколько оно отстает от последнего
+    private float visibleShots;
+    private float endOffset;
+
+    private final Path path = new Path();
+    private final Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint gridPaint = new Paint();
+    // Горизонтальные линии сетки в формате drawLines: x0, y0, x1, y1
+    private final float[] gridLines = new float[GRID_LINES * 4];
+    private int[] selected = new int[3];
+
+    private final ScaleGestureDetector scaleDetector;
+    private final GestureDetector gestureDetector;
+
+    public VelocityChartView(Context context) {
+        this(context, null);
+    }
+
+    public VelocityChartView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        float density = getResources().getDisplayMetrics().density;
+        linePaint.setStyle(Paint.Style.STROKE);
+        linePaint.setStrokeWidth(1.5f * density);
+        linePaint.setStrokeJoin(Paint.Join.ROUND);
+        linePaint.setColor(ContextCompat.getColor(context, R.color.glass_blue));
+        gridPaint.setStrokeWidth(1f);
+        gridPaint.setColor(ContextCompat.getColor(context, R.color.glass_white_10));
+
+        scaleDetector = new ScaleGestureDetector(context,
+                new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+                    @Override
+                    public boolean onScale(@NonNull ScaleGestureDetector detector) {
+                        zoom(detector.getScaleFactor());
+                        return true;
+                    }
+                });
+        gestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(@NonNull MotionEvent e) {
+                return true;
+            }
+
+            @Override
+            public boolean onScroll(@Nullable MotionEvent e1, @NonNull MotionEvent e2,
+                                    float distanceX, float distanceY) {
+                if (Math.abs(distanceX) > Math.abs(distanceY)) {
+                    // Горизонтальный жест принадлежит графику, а не прокрутке экрана
+                    getParent().requestDisallowInterceptTouchEvent(true);
+                    scroll(distanceX);
+                }
+                return true;
+            }
+
+            @Override
+            public boolean onDoubleTap(@NonNull MotionEvent e) {
+                resetViewport();
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Заново копирует всю историю: после удалений, пересчета или новой сессии.
+     */
+    public void setShots(ShotStore store) {
+        count = 0;
+        copyTail(store);
+        // Окно не должно выйти за укоротившуюся историю
+        visibleShots = Math.min(visibleShots, count);
+        float visible = visibleShots > 0 ? visibleShots : count;
+        endOffset = clamp(endOffset, 0, count - visible);
+        invalidatePath();
+    }
+
+    /**
+     * Дописывает выстрелы, появившиеся в {@code store} с прошлого вызова.
+     */
+    public void appendShots(ShotStore store) {
+        if (store.size() < count) {
+            // История укоротилась, хвостом ее уже не догнать
+            setShots(store);
+            return;
+        }
+        int added = copyTail(store);
+        if (added == 0) {
+            return;
+        }
+        if (endOffset > 0) {
+            // Окно в прошлом остается на тех же выстрелах
+            endOffset += added;
+        }
+        invalidatePath();
+    }
+
+    private int copyTail(ShotStore store) {
+        int size = store.size();
+        if (size > velocities.length) {
+            float[] grown = new float[Math.max(size, velocities.length * 2)];
+            System.arraycopy(velocities, 0, grown, 0, count);
+            velocities = grown;
+        }
+        int added = size - count;
+        for (int i = count; i < size; i++) {
+            velocities[i] = store.getVelocity(i);
+        }
+        count = size;
+        return added;
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        selected = new int[Math.max(3, w - getPaddingLeft() - getPaddingRight())];
+        float left = getPaddingLeft();
+        float right = w - getPaddingRight();
+        float top = getPaddingTop();
+        float step = (h - getPaddingBottom() - top) / (GRID_LINES - 1);
+        for (int i = 0; i < GRID_LINES; i++) {
+            gridLines[i * 4] = left;
+            gridLines[i * 4 + 1] = top + i * step;
+            gridLines[i * 4 + 2] = right;
+            gridLines[i * 4 + 3] = top + i * step;
+        }
+        invalidatePath();
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        boolean handled = scaleDetector.onTouchEvent(event);
+        handled |= gestureDetector.onTouchEvent(event);
+        return handled || super.onTouchEvent(event);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        canvas.drawLines(gridLines, gridPaint);
+        canvas.drawPath(path, linePaint);
+    }
+
+    private void zoom(float scaleFactor) {
+        if (count < MIN_VISIBLE_SHOTS) {
+            return;
+        }
+        float visible = visibleShots > 0 ? visibleShots : count;
+        visibleShots = clamp(visible / scaleFactor, MIN_VISIBLE_SHOTS, count);
+        endOffset = clamp(endOffset, 0, count - visibleShots);
+        invalidatePath();
+    }
+
+    private void scroll(float distanceX) {
+        float width = selected.length;
+        float visible = visibleShots > 0 ? visibleShots : count;
+        // Палец вправо (distanceX < 0) показывает более старые выстрелы
+        endOffset = clamp(endOffset - distanceX * visible / width, 0, count - visible);
+        invalidatePath();
+    }
+
+    private void resetViewport() {
+        visibleShots = 0;
+        endOffset = 0;
+        invalidatePath();
+    }
+
+    private void invalidatePath() {
+        // Перестраиваем здесь, вне кадра: onDraw только рисует
+        rebuildPath();
+        postInvalidateOnAnimation();
+    }
+
+    private void rebuildPath() {
+        path.reset();
+        int to = count - Math.round(endOffset);
+        int from = visibleShots > 0 ? Math.max(0, to - Math.round(visibleShots)) : 0;
+        // До разметки размера нет, линию построит onSizeChanged
+        if (to - from < 2 || getWidth() == 0) {
+            return;
+        }
+        int points = LttbDownsampler.downsample(velocities, from, to, selected.length, selected);
+
+        // Отбор сохраняет пики, поэтому масштаб по выбранным точкам не срезает выбросы
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        for (int i = 0; i < points; i++) {
+            float velocity = velocities[selected[i]];
+            min = Math.min(min, velocity);
+            max = Math.max(max, velocity);
+        }
+        // Ровная серия рисуется по центру, а не прижимается к краю
+        float range = max - min;
+        if (range < 1f) {
+            min -= (1f - range) / 2;
+            range = 1f;
+        }
+
+        float left = getPaddingLeft();
+        float top = getPaddingTop();
+        float width = getWidth() - getPaddingRight() - left;
+        float height = getHeight() - getPaddingBottom() - top;
+        float xScale = width / (to - from - 1);
+        for (int i = 0; i < points; i++) {
+            int index = selected[i];
+            float x = left + (index - from) * xScale;
+            float y = top + height - (velocities[index] - min) / range * height;
+            if (i == 0) {
+                path.moveTo(x, y);
+            } else {
+                path.lineTo(x, y);
+            }
+        }
+    }
+
+    private static float clamp(float value, float min, float max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.chronographapp;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+import java.util.Locale;
+
+/**
+ * Гистограмма скоростей серии.
+ *
+ * Рисует не больше {@link #MAX_BINS} столбцов из маленького {@code int[]}, который
+ * собирает {@link VelocityHistogram#rebin}. Сама гистограмма ведется инкрементально,
+ * поэтому {@link #refresh()} после нового или удаленного выстрела не проходит по истории.
+ * По умолчанию ширина столбца подбирается под разброс серии; щипок делает столбцы уже
+ * или шире вокруг середины, двойное касание возвращает подбор по разбросу. Крайние
+ * столбцы приглушены, если в них собраны выстрелы за пределами видимого диапазона.
+ */
+public class VelocityHistogramView extends View {
+
+    public static final int MAX_BINS = 30;
+    // Щипок должен заметно растянуть или сжать график, прежде чем сменится шаг
+    private static final float ZOOM_STEP = 1.5f;
+
+    private VelocityHistogram histogram;
+    private final int[] bins = new int[MAX_BINS];
+    private int binCount;
+    private int maxBin;
+    private boolean clippedLow, clippedHigh;
+    private float from;
+    private float binWidth;
+    // Ширина, выбранная щипком; 0 - подбор по разбросу
+    private float zoomedBinWidth;
+    private float zoomCenter;
+    private float pendingScale = 1f;
+
+    private final Paint barPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint clippedPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final float labelHeight;
+    private final float barGap;
+    private String fromLabel = "";
+    private String toLabel = "";
+    private String stepLabel = "";
+    private float stepLabelWidth, toLabelWidth;
+
+    private final ScaleGestureDetector scaleDetector;
+    private final GestureDetector gestureDetector;
+
+    public VelocityHistogramView(Context context) {
+        this(context, null);
+    }
+
+    public VelocityHistogramView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        float density = getResources().getDisplayMetrics().density;
+        barPaint.setColor(ContextCompat.getColor(context, R.color.glass_green));
+        clippedPaint.setColor(ContextCompat.getColor(context, R.color.glass_white_30));
+        labelPaint.setColor(ContextCompat.getColor(context, R.color.text_hint));
+        labelPaint.setTextSize(10 * getResources().getDisplayMetrics().scaledDensity);
+        labelHeight = 16 * density;
+        barGap = density;
+
+        scaleDetector = new ScaleGestureDetector(context,
+                new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+                    @Override
+                    public boolean onScale(@NonNull ScaleGestureDetector detector) {
+                        zoom(detector.getScaleFactor());
+                        return true;
+                    }
+                });
+        gestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(@NonNull MotionEvent e) {
+                return true;
+            }
+
+            @Override
+            public boolean onDoubleTap(@NonNull MotionEvent e) {
+                zoomedBinWidth = 0;
+                refresh();
+                return true;
+            }
+        });
+    }
+
+    /**
+     * @param histogram гистограмма сессии или {@code null}, пока она считается
+     */
+    public void setHistogram(@Nullable VelocityHistogram histogram) {
+        if (histogram != this.histogram) {
+            this.histogram = histogram;
+            zoomedBinWidth = 0;
+        }
+        refresh();
+    }
+
+    /**
+     * Пересобирает столбцы после изменения гистограммы или масштаба.
+     */
+    public void refresh() {
+        if (histogram == null || histogram.isEmpty()) {
+            binCount = 0;
+            invalidate();
+            return;
+        }
+        float min = histogram.getMin();
+        float max = histogram.getMax();
+        if (zoomedBinWidth > 0) {
+            binWidth = zoomedBinWidth;
+            binCount = MAX_BINS;
+            from = (float) Math.floor((zoomCenter - binCount * binWidth / 2) / binWidth) * binWidth;
+        } else {
+            binWidth = VelocityHistogram.binWidthFor(max - min, MAX_BINS);
+            from = (float) Math.floor(min / binWidth) * binWidth;
+            binCount = Math.min(MAX_BINS, (int) ((max - from) / binWidth + 1e-3f) + 1);
+        }
+        float to = from + binCount * binWidth;
+        maxBin = histogram.rebin(from, binWidth, bins, binCount);
+        // Половина шага - запас на округление скоростей к счетчикам гистограммы
+        float tolerance = VelocityHistogram.RESOLUTION / 2;
+        clippedLow = min < from - tolerance;
+        clippedHigh = max > to - VelocityHistogram.RESOLUTION + tolerance;
+
+        // Подписи форматируются здесь, чтобы onDraw ничего не выделял
+        fromLabel = String.format(Locale.getDefault(), "%.1f", from);
+        toLabel = String.format(Locale.getDefault(), "%.1f м/с", to);
+        stepLabel = String.format(Locale.getDefault(), "шаг %.1f", binWidth);
+        stepLabelWidth = labelPaint.measureText(stepLabel);
+        toLabelWidth = labelPaint.measureText(toLabel);
+        invalidate();
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        boolean handled = scaleDetector.onTouchEvent(event);
+        handled |= gestureDetector.onTouchEvent(event);
+        return handled || super.onTouchEvent(event);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (binCount == 0 || maxBin == 0) {
+            return;
+        }
+        float left = getPaddingLeft();
+        float top = getPaddingTop();
+        float width = getWidth() - getPaddingRight() - left;
+        float bottom = getHeight() - getPaddingBottom() - labelHeight;
+        float barWidth = width / binCount;
+        for (int i = 0; i < binCount; i++) {
+            if (bins[i] == 0) {
+                continue;
+            }
+            float barTop = bottom - (bottom - top) * bins[i] / maxBin;
+            boolean clipped = (i == 0 && clippedLow) || (i == binCount - 1 && clippedHigh);
+            canvas.drawRect(left + i * barWidth + barGap, barTop,
+                    left + (i + 1) * barWidth - barGap, bottom, clipped ? clippedPaint : barPaint);
+        }
+
+        float baseline = getHeight() - getPaddingBottom() - labelPaint.descent();
+        canvas.drawText(fromLabel, left, baseline, labelPaint);
+        canvas.drawText(stepLabel, left + (width - stepLabelWidth) / 2, baseline, labelPaint);
+        canvas.drawText(toLabel, left + width - toLabelWidth, baseline, labelPaint);
+    }
+
+    private void zoom(float scaleFactor) {
+        if (histogram == null || histogram.isEmpty()) {
+            return;
+        }
+        pendingScale *= scaleFactor;
+        if (pendingScale < ZOOM_STEP && pendingScale > 1 / ZOOM_STEP) {
+            return;
+        }
+        if (zoomedBinWidth == 0) {
+            zoomedBinWidth = binWidth;
+            zoomCenter = from + binCount * binWidth / 2;
+        }
+        // Раздвинули пальцы - столбцы уже, свели - шире
+        zoomedBinWidth = pendingScale > 1 ? finerStep(zoomedBinWidth) : coarserStep(zoomedBinWidth);
+        pendingScale = 1f;
+        refresh();
+    }
+
+    // Шаги 0.1, 0.2, 0.5, 1, 2, 5... как в VelocityHistogram.binWidthFor
+    private static float finerStep(float width) {
+        float step = VelocityHistogram.RESOLUTION;
+        while (coarserStep(step) < width * 0.99f) {
+            step = coarserStep(step);
+        }
+        return step;
+    }
+
+    private static float coarserStep(float width) {
+        return VelocityHistogram.binWidthFor(width * 1.01f, 1);
+    }
+}
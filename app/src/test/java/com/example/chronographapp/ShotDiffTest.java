@@ -0,0 +1,243 @@
+package com.example.chronographapp;
+
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ShotDiffTest {
+
+    private static final int SIZE = 10_000;
+    // Строк истории на экране телефона
+    private static final int VISIBLE_ROWS = 14;
+
+    /**
+     * Считает, сколько строк RecyclerView придется заново привязать.
+     */
+    private static class BindCounter implements ListUpdateCallback {
+        int inserted, removed, changed, moved;
+
+        @Override
+        public void onInserted(int position, int count) {
+            inserted += count;
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            removed += count;
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            moved++;
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            changed += count;
+        }
+
+        int binds() {
+            // Привязываются только новые и измененные строки
+            return inserted + changed;
+        }
+    }
+
+    /**
+     * Модель прикрепленных строк RecyclerView: помечает позиции, которые придется привязать
+     * заново, и считает их в видимом окне. Сдвиг позиций при вставке и удалении учитывается,
+     * как в RecyclerView, перемещение строку не перепривязывает.
+     */
+    private static class VisibleRows implements ListUpdateCallback {
+        private final List<Boolean> rebound;
+
+        VisibleRows(int size) {
+            rebound = new ArrayList<>(Collections.nCopies(size, false));
+        }
+
+        /** Так отработает notifyDataSetChanged: все строки считаются измененными */
+        void dataSetChanged(int newSize) {
+            rebound.clear();
+            rebound.addAll(Collections.nCopies(newSize, true));
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            rebound.addAll(position, Collections.nCopies(count, true));
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            rebound.subList(position, position + count).clear();
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            rebound.add(toPosition, rebound.remove(fromPosition));
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            for (int i = position; i < position + count; i++) {
+                rebound.set(i, true);
+            }
+        }
+
+        int reboundIn(int first) {
+            int count = 0;
+            for (int i = first; i < Math.min(first + VISIBLE_ROWS, rebound.size()); i++) {
+                if (rebound.get(i)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * @return {перепривязок при notifyDataSetChanged, перепривязок по диффу} в окне с {@code first}
+     */
+    private static int[] visibleBinds(ShotStore before, ShotStore after, int first) {
+        VisibleRows full = new VisibleRows(before.size());
+        full.dataSetChanged(after.size());
+        VisibleRows diffed = new VisibleRows(before.size());
+        ShotDiff.calculate(before, after).dispatchUpdatesTo(diffed);
+        return new int[]{full.reboundIn(first), diffed.reboundIn(first)};
+    }
+
+    private static ShotStore history(int count) {
+        ShotStore store = new ShotStore();
+        for (int i = 0; i < count; i++) {
+            store.add(i + 1, 140f + (i % 400) / 10f, 2f + (i % 100) / 100f, 1_700_000_000_000L + i * 2_000L);
+        }
+        return store;
+    }
+
+    private static BindCounter diff(ShotStore before, ShotStore after) {
+        BindCounter counter = new BindCounter();
+        DiffUtil.DiffResult result = ShotDiff.calculate(before, after);
+        result.dispatchUpdatesTo(counter);
+        return counter;
+    }
+
+    @Test
+    public void liveAppend_insertsOnlyNewRows() {
+        ShotStore before = history(SIZE);
+        ShotStore after = before.copy();
+        after.add(SIZE + 1, 150f, 2.8f, 1_800_000_000_000L);
+        after.add(SIZE + 2, 151f, 2.9f, 1_800_000_001_000L);
+
+        BindCounter counter = diff(before, after);
+        assertEquals(2, counter.inserted);
+        assertEquals(0, counter.removed);
+        assertEquals(0, counter.changed);
+    }
+
+    @Test
+    public void deleteInMiddle_removesOneRow() {
+        ShotStore before = history(SIZE);
+        ShotStore after = before.copy();
+        after.remove(SIZE / 2);
+
+        BindCounter counter = diff(before, after);
+        assertEquals(1, counter.removed);
+        assertEquals(0, counter.binds());
+    }
+
+    @Test
+    public void snapshotsOfLiveHistory_diffLikeCopies() {
+        // Так адаптер видит историю: снимок до удаления и снимок после
+        ShotStore live = history(SIZE);
+        ShotStore before = live.snapshot();
+        live.remove(SIZE / 2);
+        live.add(SIZE + 1, 150f, 2.8f, 1_800_000_000_000L);
+
+        BindCounter counter = diff(before, live.snapshot());
+        assertEquals(SIZE, before.size());
+        assertEquals(1, counter.removed);
+        assertEquals(1, counter.inserted);
+        assertEquals(0, counter.changed);
+    }
+
+    @Test
+    public void filteredView_removesHiddenRowsWithoutRebinding() {
+        ShotStore before = history(SIZE);
+        ShotStore after = new ShotStore();
+        for (int i = 0; i < before.size(); i++) {
+            // Фильтр "только быстрые выстрелы"
+            if (before.getVelocity(i) >= 160f) {
+                after.add(before.getShotNumber(i), before.getVelocity(i), before.getEnergy(i),
+                        before.getTimeMillis(i));
+            }
+        }
+
+        BindCounter counter = diff(before, after);
+        assertEquals(before.size() - after.size(), counter.removed);
+        assertEquals(0, counter.binds());
+    }
+
+    @Test
+    public void repeatedShotNumbers_areDistinctItems() {
+        // После перезапуска хронограф снова считает с #1
+        ShotStore before = new ShotStore();
+        before.add(1, 150f, 2.8f, 1_000L);
+        before.add(2, 151f, 2.9f, 2_000L);
+        ShotStore after = before.copy();
+        after.add(1, 152f, 3.0f, 3_000L);
+
+        ShotCursor shots = after.cursor();
+        assertNotEquals(ShotDiff.keyOf(shots.moveTo(0)), ShotDiff.keyOf(shots.moveTo(2)));
+        BindCounter counter = diff(before, after);
+        assertEquals(1, counter.inserted);
+        assertEquals(0, counter.changed);
+    }
+
+    @Test
+    public void editedValue_changesOneRow() {
+        ShotStore before = history(100);
+        ShotStore after = new ShotStore();
+        for (int i = 0; i < before.size(); i++) {
+            float velocity = i == 42 ? 999f : before.getVelocity(i);
+            after.add(before.getShotNumber(i), velocity, before.getEnergy(i), before.getTimeMillis(i));
+        }
+
+        BindCounter counter = diff(before, after);
+        assertEquals(1, counter.changed);
+        assertEquals(0, counter.inserted + counter.removed);
+    }
+
+    @Test
+    public void visibleWindow_rebindsFewerRowsThanDataSetChanged() {
+        ShotStore before = history(SIZE);
+
+        // Живое дописывание, на экране хвост истории
+        ShotStore appended = before.copy();
+        appended.add(SIZE + 1, 150f, 2.8f, 1_800_000_000_000L);
+        int[] append = visibleBinds(before, appended, appended.size() - VISIBLE_ROWS);
+        assertEquals(VISIBLE_ROWS, append[0]);
+        assertEquals(1, append[1]);
+
+        // Удаление строки посреди экрана: сдвинутые строки не перепривязываются
+        ShotStore removed = before.copy();
+        removed.remove(SIZE / 2);
+        int[] remove = visibleBinds(before, removed, SIZE / 2 - VISIBLE_ROWS / 2);
+        assertEquals(VISIBLE_ROWS, remove[0]);
+        assertEquals(0, remove[1]);
+
+        // Правка одной видимой строки
+        ShotStore edited = new ShotStore();
+        for (int i = 0; i < before.size(); i++) {
+            float velocity = i == 42 ? 999f : before.getVelocity(i);
+            edited.add(before.getShotNumber(i), velocity, before.getEnergy(i), before.getTimeMillis(i));
+        }
+        int[] edit = visibleBinds(before, edited, 40);
+        assertEquals(VISIBLE_ROWS, edit[0]);
+        assertEquals(1, edit[1]);
+    }
+}
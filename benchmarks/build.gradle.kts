@@ -0,0 +1,109 @@
+import groovy.json.JsonSlurper
+
+// JMH-замеры горячего пути: разбор кадров -> история -> статистика -> экспорт.
+// Модуль чисто JVM, запускается без Android-устройства:
+//   ./gradlew :benchmarks:jmh                  - прогон, результат в build/results/jmh
+//   ./gradlew :benchmarks:jmhCompare           - сравнение с baseline/jmh-baseline.json
+//   ./gradlew :benchmarks:jmhSaveBaseline      - принять текущий прогон как новую базу
+// Базу записывают на одной и той же машине и коммитят вместе с изменением, которое ее сдвигает:
+//   ./gradlew :benchmarks:jmh :benchmarks:jmhSaveBaseline && git add benchmarks/baseline
+// Пока базы нет, jmhCompare только печатает текущие результаты и не падает.
+// ВНИМАНИЕ: benchmarks/baseline/jmh-baseline.json в репозитории пока НЕТ - база еще ни разу
+// не записана, и jmhCompare регрессии не ловит. Ее нужно снять первым прогоном на машине,
+// где потом будут сравнивать, и закоммитить; придумывать или переносить чужие числа нельзя.
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+dependencies {
+    jmh(project(":chronograph-core"))
+}
+
+val jmhResults = layout.buildDirectory.file("results/jmh/results.json")
+val baselineFile = layout.projectDirectory.file("baseline/jmh-baseline.json")
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    timeOnIteration.set("1s")
+    warmup.set("1s")
+    resultFormat.set("JSON")
+    resultsFile.set(jmhResults)
+    // -Pjmh.includes=Decode запускает только подходящие замеры
+    providers.gradleProperty("jmh.includes").orNull?.let { includes.set(listOf(it)) }
+}
+
+tasks.register<Copy>("jmhSaveBaseline") {
+    description = "Сохраняет последний прогон JMH как базу для сравнения"
+    from(jmhResults)
+    into(baselineFile.asFile.parentFile)
+    rename { baselineFile.asFile.name }
+}
+
+tasks.register("jmhCompare") {
+    description = "Сравнивает последний прогон JMH с базой и падает на регрессии"
+    // Допустимое замедление, доля от базы: шум одного форка на ноутбуке - около 10%
+    val threshold = providers.gradleProperty("jmh.threshold").map { it.toDouble() }.orElse(0.15)
+    val current = jmhResults
+    val baseline = baselineFile
+    doLast {
+        fun scores(file: File): Map<String, Pair<Double, String>> {
+            @Suppress("UNCHECKED_CAST")
+            val runs = JsonSlurper().parse(file) as List<Map<String, Any>>
+            return runs.associate { run ->
+                val params = (run["params"] as Map<*, *>?)
+                    ?.entries?.joinToString(",", "[", "]") { "${it.key}=${it.value}" } ?: ""
+                val metric = run["primaryMetric"] as Map<*, *>
+                "${run["benchmark"]}$params" to
+                    ((metric["score"] as Number).toDouble() to metric["scoreUnit"].toString())
+            }
+        }
+
+        if (!current.get().asFile.exists()) {
+            throw GradleException("Нет результатов ${current.get().asFile}: сначала запустите jmh")
+        }
+        val currentScores = scores(current.get().asFile)
+        if (!baseline.asFile.exists()) {
+            // Сравнивать не с чем: показываем прогон и подсказываем, как записать базу
+            for ((name, result) in currentScores.toSortedMap()) {
+                println("БЕЗ БАЗЫ $name: %.3f %s".format(result.first, result.second))
+            }
+            logger.warn("Нет базы ${baseline.asFile}, сравнение пропущено. Записать ее: " +
+                "./gradlew :benchmarks:jmhSaveBaseline и закоммитить benchmarks/baseline")
+            return@doLast
+        }
+        val baselineScores = scores(baseline.asFile)
+        val regressions = mutableListOf<String>()
+        for ((name, result) in currentScores.toSortedMap()) {
+            val base = baselineScores[name]
+            if (base == null) {
+                println("НОВЫЙ   $name: %.3f %s".format(result.first, result.second))
+                continue
+            }
+            // Все замеры в режиме AverageTime: меньше - лучше
+            val change = result.first / base.first - 1
+            val line = "%s %s: %.3f -> %.3f %s (%+.1f%%)".format(
+                if (change > threshold.get()) "ХУЖЕ  " else "ок    ",
+                name, base.first, result.first, result.second, change * 100)
+            println(line)
+            if (change > threshold.get()) {
+                regressions += line
+            }
+        }
+        if (regressions.isNotEmpty()) {
+            throw GradleException("Регрессии производительности:\n" + regressions.joinToString("\n"))
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.chronographapp;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Общие входные данные замеров: поток кадров и история, похожие на реальную стрельбу.
+ */
+final class BenchmarkData {
+
+    static final long START_MILLIS = 1_700_000_000_000L;
+
+    private BenchmarkData() {
+    }
+
+    static float velocity(int index) {
+        return 140f + (index * 37 % 400) / 10f;
+    }
+
+    static float energy(int index) {
+        float v = velocity(index);
+        return 0.5f * 0.00025f * v * v;
+    }
+
+    /**
+     * @return {@code shots} кадров {@code Shot #/Speed:/Energy:} подряд
+     */
+    static byte[] frames(int shots) {
+        StringBuilder text = new StringBuilder(shots * 40);
+        for (int i = 0; i < shots; i++) {
+            text.append("Shot #").append(i + 1)
+                    .append("\nSpeed: ").append(String.format(java.util.Locale.US, "%.2f", velocity(i)))
+                    .append("\nEnergy: ").append(String.format(java.util.Locale.US, "%.2f", energy(i)))
+                    .append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    static ShotStore history(int shots) {
+        ShotStore store = new ShotStore();
+        store.ensureCapacity(shots);
+        for (int i = 0; i < shots; i++) {
+            store.add(i + 1, velocity(i), energy(i), START_MILLIS + i * 2_000L);
+        }
+        return store;
+    }
+}
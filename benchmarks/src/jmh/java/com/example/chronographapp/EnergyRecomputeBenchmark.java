@@ -0,0 +1,73 @@
+package com.example.chronographapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пересчет энергии истории после смены массы.
+ *
+ * {@code bulkColumn} - то, что делает ShotRepository: снимок колонки скоростей, цикл по
+ * массиву, замена колонки. Снимок стоит лишнего копирования, зато сам цикл уходит
+ * с главного потока. {@code perShotCursor} - тот же пересчет на месте через курсор,
+ * точка отсчета без копирования. {@code statistics} - сборка статистики энергий,
+ * которая идет на том же фоновом потоке и обычно дороже самого пересчета.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class EnergyRecomputeBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int shots;
+
+    private ShotStore history;
+    private ShotCursor cursor;
+    private float[] energies;
+    private float mass;
+
+    @Setup
+    public void setUp() {
+        history = BenchmarkData.history(shots);
+        cursor = history.cursor();
+        // statistics должна считать настоящие энергии, а не нули
+        energies = history.copyVelocities();
+        Ballistics.energies(0.25f, energies, energies, shots);
+    }
+
+    @Benchmark
+    public float bulkColumn() {
+        // Масса каждый раз другая, чтобы JIT не вынес пересчет из замера
+        mass += 0.01f;
+        float[] column = history.copyVelocities();
+        Ballistics.energies(mass, column, column, column.length);
+        history.setEnergies(column, column.length);
+        return column[column.length - 1];
+    }
+
+    @Benchmark
+    public float perShotCursor() {
+        mass += 0.01f;
+        for (int i = 0; i < shots; i++) {
+            energies[i] = Ballistics.energyJoules(mass, cursor.moveTo(i).velocity());
+        }
+        history.setEnergies(energies, shots);
+        return energies[shots - 1];
+    }
+
+    @Benchmark
+    public float statistics() {
+        RunningStats stats = new RunningStats();
+        for (int i = 0; i < shots; i++) {
+            stats.add(energies[i]);
+        }
+        return stats.getMean() + stats.getMax();
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.chronographapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Экспорт 10 000 выстрелов из журнала в приемник без записи на диск: остается
+ * только чтение журнала и форматирование.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ExportBenchmark {
+
+    private static final int SHOTS = 10_000;
+    private static final TimeZone ZONE = TimeZone.getTimeZone("Europe/Moscow");
+
+    private File journal;
+
+    private static final Writer NULL_WRITER = new Writer() {
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    private static final OutputStream NULL_STREAM = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+        }
+    };
+
+    @Setup
+    public void setUp() throws IOException {
+        journal = File.createTempFile("bench", ".journal");
+        try (ShotJournal out = ShotJournal.open(journal, 1024, null)) {
+            for (int i = 0; i < SHOTS; i++) {
+                out.append(i + 1, BenchmarkData.velocity(i), BenchmarkData.energy(i),
+                        BenchmarkData.START_MILLIS + i * 2_000L);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        journal.delete();
+    }
+
+    @Benchmark
+    public int csv() throws IOException {
+        return ShotExporter.exportCsv(journal, NULL_WRITER, ',', ZONE);
+    }
+
+    @Benchmark
+    public int columns() throws IOException {
+        return ShotExporter.exportColumns(journal, NULL_STREAM);
+    }
+}
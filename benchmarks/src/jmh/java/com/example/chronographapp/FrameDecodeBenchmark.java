@@ -0,0 +1,121 @@
+package com.example.chronographapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор 1000 кадров, пришедших кусками по {@code chunk} байт, как из RFCOMM.
+ * {@code legacyStringParse} повторяет прежний {@code processReceivedData} на строках
+ * и оставлен точкой отсчета; он теряет выстрелы, если в буфер попало больше одного кадра.
+ * {@code binaryDecoder} разбирает те же выстрелы в двоичных кадрах {@link BinaryShotFrame}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FrameDecodeBenchmark {
+
+    private static final int SHOTS = 1_000;
+
+    @Param({"16", "64", "1024"})
+    public int chunk;
+
+    private static final byte[] BINARY_ACK = "OK:BIN 16000000 100\n".getBytes(StandardCharsets.US_ASCII);
+
+    private byte[] stream;
+    private byte[] binaryStream;
+    private ShotFrameDecoder decoder;
+    private Blackhole sinkHole;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        stream = BenchmarkData.frames(SHOTS);
+        binaryStream = new byte[SHOTS * BinaryShotFrame.LENGTH];
+        for (int i = 0; i < SHOTS; i++) {
+            // 0.1 м при 16 МГц: такты = 1.6e6 / скорость
+            long ticks = Math.round(1.6e6 / BenchmarkData.velocity(i));
+            BinaryShotFrame.encode(i + 1, ticks, binaryStream, i * BinaryShotFrame.LENGTH);
+        }
+        sinkHole = blackhole;
+        decoder = new ShotFrameDecoder((shotNumber, velocity, energy) -> {
+            sinkHole.consume(shotNumber);
+            sinkHole.consume(velocity);
+            sinkHole.consume(energy);
+        });
+    }
+
+    @Benchmark
+    public long streamingDecoder() {
+        decoder.reset();
+        for (int offset = 0; offset < stream.length; offset += chunk) {
+            decoder.feed(stream, offset, Math.min(chunk, stream.length - offset));
+        }
+        return decoder.getDecodedCount();
+    }
+
+    @Benchmark
+    public long binaryDecoder() {
+        decoder.reset();
+        decoder.feed(BINARY_ACK, 0, BINARY_ACK.length);
+        for (int offset = 0; offset < binaryStream.length; offset += chunk) {
+            decoder.feed(binaryStream, offset, Math.min(chunk, binaryStream.length - offset));
+        }
+        return decoder.getDecodedCount();
+    }
+
+    @Benchmark
+    public int legacyStringParse(Blackhole blackhole) {
+        StringBuilder dataBuffer = new StringBuilder();
+        int shots = 0;
+        for (int offset = 0; offset < stream.length; offset += chunk) {
+            String rawData = new String(stream, offset, Math.min(chunk, stream.length - offset),
+                    StandardCharsets.US_ASCII);
+            dataBuffer.append(rawData);
+            String bufferContent = dataBuffer.toString();
+            if (bufferContent.contains("Shot #") && bufferContent.contains("Speed: ")
+                    && bufferContent.contains("Energy: ")) {
+                try {
+                    int shotIndex = bufferContent.indexOf("Shot #") + 6;
+                    int shotEndLine = bufferContent.indexOf("\n", shotIndex);
+                    if (shotEndLine == -1) {
+                        continue;
+                    }
+                    int shotNumber = Integer.parseInt(bufferContent.substring(shotIndex, shotEndLine).trim());
+
+                    int speedIndex = bufferContent.indexOf("Speed: ") + 7;
+                    int speedEndLine = bufferContent.indexOf("\n", speedIndex);
+                    if (speedEndLine == -1) {
+                        continue;
+                    }
+                    float velocity = Float.parseFloat(bufferContent.substring(speedIndex, speedEndLine).trim());
+
+                    int energyIndex = bufferContent.indexOf("Energy: ") + 8;
+                    int energyEndLine = bufferContent.indexOf("\n", energyIndex);
+                    if (energyEndLine == -1) {
+                        energyEndLine = bufferContent.length();
+                    }
+                    float energy = Float.parseFloat(bufferContent.substring(energyIndex, energyEndLine).trim());
+
+                    blackhole.consume(shotNumber);
+                    blackhole.consume(velocity);
+                    blackhole.consume(energy);
+                    shots++;
+                } catch (NumberFormatException e) {
+                    blackhole.consume(e);
+                } finally {
+                    dataBuffer.setLength(0);
+                }
+            }
+        }
+        return shots;
+    }
+}
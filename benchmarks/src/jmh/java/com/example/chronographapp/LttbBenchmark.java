@@ -0,0 +1,44 @@
+package com.example.chronographapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отбор точек графика скорости: ширина экрана фиксирована, растет только серия.
+ * Время растет линейно с числом выстрелов, но число точек линии
+ * остается не больше ширины.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LttbBenchmark {
+
+    // Ширина графика на типичном телефоне, пиксели
+    private static final int WIDTH = 1080;
+
+    @Param({"1000", "50000"})
+    public int shots;
+
+    private float[] velocities;
+    private int[] selected;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        velocities = BenchmarkData.history(shots).copyVelocities();
+        selected = new int[WIDTH];
+    }
+
+    @Benchmark
+    public int downsample() {
+        return LttbDownsampler.downsample(velocities, 0, shots, WIDTH, selected);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.chronographapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Форматирование одной строки истории, как в {@code onBindViewHolder}: номер, время,
+ * скорость и энергия. Вариант на {@code String.format} - прежняя привязка строки.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NumberFormatBenchmark {
+
+    private static final TimeZone ZONE = TimeZone.getTimeZone("Europe/Moscow");
+
+    private final char[] number = new char[FixedPointFormat.MAX_LENGTH];
+    private final char[] time = new char[8];
+    private final char[] velocity = new char[FixedPointFormat.MAX_LENGTH];
+    private final char[] energy = new char[FixedPointFormat.MAX_LENGTH];
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss", Locale.US);
+    private final Date date = new Date();
+    private int index;
+
+    public NumberFormatBenchmark() {
+        timeFormat.setTimeZone(ZONE);
+    }
+
+    @Benchmark
+    public void fixedPointRow(Blackhole blackhole) {
+        int i = index++ & 1023;
+        number[0] = '#';
+        blackhole.consume(FixedPointFormat.formatLong(i + 1, number, 1));
+        blackhole.consume(FixedPointFormat.formatTimeOfDay(BenchmarkData.START_MILLIS + i * 2_000L,
+                ZONE, time, 0));
+        blackhole.consume(FixedPointFormat.format(BenchmarkData.velocity(i), 1, ',', velocity, 0));
+        blackhole.consume(FixedPointFormat.format(BenchmarkData.energy(i), 2, ',', energy, 0));
+    }
+
+    @Benchmark
+    public void stringFormatRow(Blackhole blackhole) {
+        int i = index++ & 1023;
+        date.setTime(BenchmarkData.START_MILLIS + i * 2_000L);
+        blackhole.consume("#" + (i + 1));
+        blackhole.consume(timeFormat.format(date));
+        blackhole.consume(String.format(Locale.getDefault(), "%.1f м/с", BenchmarkData.velocity(i)));
+        blackhole.consume(String.format(Locale.getDefault(), "%.2f Дж", BenchmarkData.energy(i)));
+    }
+}
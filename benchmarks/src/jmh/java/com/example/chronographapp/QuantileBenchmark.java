@@ -0,0 +1,55 @@
+package com.example.chronographapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * P5, медиана и P95 серии: сортировка копии истории против счетчиков
+ * {@link VelocityHistogram}, чья цена зависит от разброса, а не от числа выстрелов.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QuantileBenchmark {
+
+    @Param({"1000", "1000000"})
+    public int shots;
+
+    private float[] velocities;
+    private VelocityHistogram histogram;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        velocities = new float[shots];
+        histogram = new VelocityHistogram();
+        for (int i = 0; i < shots; i++) {
+            velocities[i] = BenchmarkData.velocity(i);
+            histogram.add(velocities[i]);
+        }
+    }
+
+    @Benchmark
+    public float sortedCopy() {
+        float[] sorted = velocities.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(0.05 * shots) - 1]
+                + sorted[(int) Math.ceil(0.5 * shots) - 1]
+                + sorted[(int) Math.ceil(0.95 * shots) - 1];
+    }
+
+    @Benchmark
+    public float histogram() {
+        return histogram.getQuantile(0.05) + histogram.getQuantile(0.5)
+                + histogram.getQuantile(0.95);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.chronographapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Дописывание выстрелов в историю: без ограничения и кольцевым буфером, плюс пачка
+ * с экрана через {@link ShotEventBatcher}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ShotStoreBenchmark {
+
+    private static final int SHOTS = 10_000;
+
+    /** 0 - без ограничения */
+    @Param({"0", "1000"})
+    public int maxSize;
+
+    private ShotEventBatcher batcher;
+    private ShotStore target;
+
+    @Setup
+    public void setUp() {
+        batcher = new ShotEventBatcher();
+        target = new ShotStore(maxSize);
+    }
+
+    @Benchmark
+    public ShotStore append() {
+        ShotStore store = new ShotStore(maxSize);
+        for (int i = 0; i < SHOTS; i++) {
+            store.add(i + 1, BenchmarkData.velocity(i), BenchmarkData.energy(i),
+                    BenchmarkData.START_MILLIS + i);
+        }
+        return store;
+    }
+
+    @Benchmark
+    public int batchedAppend() {
+        target.clear();
+        for (int i = 0; i < SHOTS; i++) {
+            batcher.offer(i + 1, BenchmarkData.velocity(i), BenchmarkData.energy(i),
+                    BenchmarkData.START_MILLIS + i);
+        }
+        return batcher.drainTo(target::add);
+    }
+}
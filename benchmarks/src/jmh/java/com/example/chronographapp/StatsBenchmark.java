@@ -0,0 +1,63 @@
+package com.example.chronographapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Статистика серии: полный пересчет по истории против одного добавления и удаления
+ * в {@link RunningStats}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StatsBenchmark {
+
+    private static final int UPDATES = 1_000;
+
+    @Param({"1000", "100000"})
+    public int shots;
+
+    private ShotStore history;
+    private ShotCursor cursor;
+    private RunningStats stats;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        history = BenchmarkData.history(shots);
+        cursor = history.cursor();
+        // После удаления крайнего значения статистика перечитывает историю
+        stats = new RunningStats(history::getVelocity);
+        stats.resetToVelocities(cursor);
+    }
+
+    @Benchmark
+    public float fullRecompute() {
+        RunningStats recomputed = new RunningStats();
+        recomputed.resetToVelocities(cursor);
+        return recomputed.getStandardDeviation() + recomputed.getExtremeSpread();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UPDATES)
+    public float incrementalAddRemove() {
+        float result = 0;
+        for (int i = 0; i < UPDATES; i++) {
+            // Новый выстрел приходит и тут же удаляется с экрана истории
+            float velocity = BenchmarkData.velocity(next++);
+            stats.add(velocity);
+            stats.remove(velocity);
+            result += stats.getStandardDeviation() + stats.getExtremeSpread();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,18 @@
+// Ядро хронографа без Android: разбор кадров, история, статистика, журнал, экспорт,
+// соединение и баллистика. Его используют приложение, замеры JMH и настольные утилиты.
+plugins {
+    `java-library`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
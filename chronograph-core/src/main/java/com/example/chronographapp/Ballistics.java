@@ -0,0 +1,61 @@
+package com.example.chronographapp;
+
+/**
+ * Связь массы снаряда, скорости и дульной энергии: {@code E = m * v^2 / 2}.
+ *
+ * Масса везде в граммах, как ее вводит стрелок, скорость в м/с, энергия в джоулях.
+ * Формула та же, что в прошивке хронографа, поэтому энергию можно пересчитать
+ * на телефоне после смены массы, не дожидаясь нового выстрела.
+ */
+public final class Ballistics {
+
+    private static final double GRAMS_PER_KILOGRAM = 1000.0;
+
+    private Ballistics() {
+    }
+
+    public static float energyJoules(float massGrams, float velocity) {
+        return energyFactor(massGrams) * velocity * velocity;
+    }
+
+    /**
+     * Энергии для колонки скоростей: один множитель на всю колонку и цикл без вызовов,
+     * который JIT может развернуть и векторизовать. Результат побитово совпадает с
+     * {@link #energyJoules}. {@code energies} может быть тем же массивом, что и {@code velocities}.
+     */
+    public static void energies(float massGrams, float[] velocities, float[] energies, int count) {
+        float factor = energyFactor(massGrams);
+        for (int i = 0; i < count; i++) {
+            float velocity = velocities[i];
+            energies[i] = factor * velocity * velocity;
+        }
+    }
+
+    // E = k * v^2, k = m / 2 в килограммах
+    private static float energyFactor(float massGrams) {
+        return (float) (massGrams / (2 * GRAMS_PER_KILOGRAM));
+    }
+
+    /**
+     * @return скорость, с которой снаряд массы {@code massGrams} имеет энергию
+     * {@code energyJoules}; 0 для нулевой массы
+     */
+    public static float velocityFor(float massGrams, float energyJoules) {
+        if (massGrams <= 0 || energyJoules <= 0) {
+            return 0f;
+        }
+        return (float) Math.sqrt(2 * energyJoules * GRAMS_PER_KILOGRAM / massGrams);
+    }
+
+    /**
+     * Восстанавливает массу, с которой хронограф посчитал энергию выстрела.
+     *
+     * @return масса в граммах; 0, если скорость нулевая
+     */
+    public static float massGramsFor(float velocity, float energyJoules) {
+        if (velocity == 0) {
+            return 0f;
+        }
+        return (float) (2 * energyJoules * GRAMS_PER_KILOGRAM / ((double) velocity * velocity));
+    }
+}
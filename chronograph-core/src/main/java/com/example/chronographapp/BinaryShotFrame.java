@@ -0,0 +1,97 @@
+package com.example.chronographapp;
+
+/**
+ * Двоичный кадр выстрела, который хронограф шлет после команды {@code MODE:BIN}.
+ *
+ * <pre>
+ * 0     0xA5            синхробайт
+ * 1-2   uint16 LE       порядковый номер выстрела
+ * 3-6   uint32 LE       такты таймера между воротами
+ * 7-8   uint16 LE       CRC-16/CCITT-FALSE байтов 1-6
+ * </pre>
+ * Девять байт вместо примерно сорока в текстовом кадре. Скорость получается из
+ * тактов делением: частоту таймера и базу ворот хронограф сообщает в ответе
+ * {@code OK:BIN <частота, Гц> <база, мм>}.
+ */
+public final class BinaryShotFrame {
+
+    public static final byte SYNC = (byte) 0xA5;
+    public static final int LENGTH = 9;
+
+    static final int SEQUENCE_OFFSET = 1;
+    static final int TICKS_OFFSET = 3;
+    static final int CRC_OFFSET = 7;
+
+    private static final int CRC_POLYNOMIAL = 0x1021;
+    private static final int CRC_INITIAL = 0xFFFF;
+    private static final char[] CRC_TABLE = new char[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ CRC_POLYNOMIAL : crc << 1;
+            }
+            CRC_TABLE[i] = (char) crc;
+        }
+    }
+
+    private BinaryShotFrame() {
+    }
+
+    /**
+     * CRC-16/CCITT-FALSE (полином 0x1021, начальное значение 0xFFFF), как
+     * {@code _crc_xmodem_update} из avr-libc с начальным 0xFFFF.
+     */
+    public static int crc16(byte[] data, int from, int to) {
+        int crc = CRC_INITIAL;
+        for (int i = from; i < to; i++) {
+            crc = ((crc << 8) ^ CRC_TABLE[((crc >>> 8) ^ data[i]) & 0xFF]) & 0xFFFF;
+        }
+        return crc;
+    }
+
+    /**
+     * Записывает кадр в {@code dst} со смещения {@code offset}. Нужен симулятору и тестам.
+     *
+     * @return смещение после кадра
+     */
+    public static int encode(int sequence, long ticks, byte[] dst, int offset) {
+        dst[offset] = SYNC;
+        putLittleEndian(dst, offset + SEQUENCE_OFFSET, sequence, 2);
+        putLittleEndian(dst, offset + TICKS_OFFSET, ticks, 4);
+        int crc = crc16(dst, offset + SEQUENCE_OFFSET, offset + CRC_OFFSET);
+        putLittleEndian(dst, offset + CRC_OFFSET, crc, 2);
+        return offset + LENGTH;
+    }
+
+    /**
+     * @return true, если CRC кадра со смещения {@code offset} сходится
+     */
+    static boolean isValid(byte[] data, int offset) {
+        int expected = (int) getLittleEndian(data, offset + CRC_OFFSET, 2);
+        return crc16(data, offset + SEQUENCE_OFFSET, offset + CRC_OFFSET) == expected;
+    }
+
+    static int sequence(byte[] data, int offset) {
+        return (int) getLittleEndian(data, offset + SEQUENCE_OFFSET, 2);
+    }
+
+    static long ticks(byte[] data, int offset) {
+        return getLittleEndian(data, offset + TICKS_OFFSET, 4);
+    }
+
+    private static void putLittleEndian(byte[] dst, int offset, long value, int bytes) {
+        for (int i = 0; i < bytes; i++) {
+            dst[offset + i] = (byte) (value >>> (8 * i));
+        }
+    }
+
+    private static long getLittleEndian(byte[] data, int offset, int bytes) {
+        long value = 0;
+        for (int i = 0; i < bytes; i++) {
+            value |= (data[offset + i] & 0xFFL) << (8 * i);
+        }
+        return value;
+    }
+}
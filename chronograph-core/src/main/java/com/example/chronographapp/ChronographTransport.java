@@ -0,0 +1,31 @@
+package com.example.chronographapp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Канал до хронографа: байтовые потоки и жизненный цикл.
+ *
+ * Реализации - {@link RfcommTransport} для HC-05 и {@link SimulatedTransport} для
+ * проверки конвейера без железа. Закрытие из другого потока прерывает
+ * {@link #connect()} и чтение.
+ */
+public interface ChronographTransport extends Closeable {
+
+    interface Factory {
+        /**
+         * Создает новый, еще не подключенный канал. Исключение, отличное от
+         * {@link IOException} (нет разрешения, неверный адрес), повтором не лечится
+         * и останавливает переподключение.
+         */
+        ChronographTransport create() throws IOException;
+    }
+
+    void connect() throws IOException;
+
+    InputStream getInputStream() throws IOException;
+
+    OutputStream getOutputStream() throws IOException;
+}
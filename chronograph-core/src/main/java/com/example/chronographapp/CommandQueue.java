@@ -0,0 +1,265 @@
+package com.example.chronographapp;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Очередь команд хронографу с подтверждением.
+ *
+ * Команда вида {@code КЛЮЧ:значение} ставится в очередь с любого потока и пишется
+ * в канал на собственном фоновом потоке очереди. На каждый ключ в канале не больше
+ * одной неподтвержденной команды: новая команда с тем же ключом ждет ее подтверждения,
+ * а ждущую вытесняет следующая. Поэтому после трех быстрых смен массы в канал уйдут
+ * первая и последняя {@code MASS:}, а средняя - нет. Повтор той же команды, пока она
+ * не подтверждена, ничего не отправляет.
+ *
+ * Хронограф подтверждает команду строкой {@code OK:<команда>}; без подтверждения
+ * команда повторяется по таймауту, а после {@code maxAttempts} отправок считается
+ * недоставленной. Если за ней уже ждет новая команда, вместо повтора уходит новая.
+ * Пока канала нет, команды ждут {@link #onConnected()}, и из них остается последняя
+ * по каждому ключу. Состояние доставки приходит слушателю через {@code callbackExecutor}.
+ */
+public class CommandQueue {
+
+    public enum Delivery {
+        /** Ждет соединения */
+        QUEUED,
+        /** Ждет подтверждения предыдущей команды с тем же ключом */
+        WAITING,
+        /** Записана в канал, ждем подтверждения */
+        SENT,
+        ACKNOWLEDGED,
+        /** Вытеснена новой командой с тем же ключом */
+        SUPERSEDED,
+        /** Подтверждения не было после всех попыток */
+        FAILED
+    }
+
+    public interface Writer {
+        /**
+         * @return {@code false}, если канала нет и писать некуда
+         */
+        boolean write(byte[] bytes);
+    }
+
+    public interface Listener {
+        /**
+         * @param attempt сколько раз команда уже записана в канал
+         */
+        void onDelivery(String command, Delivery delivery, int attempt);
+    }
+
+    public static final long DEFAULT_ACK_TIMEOUT_MILLIS = 2_000;
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    private final Writer writer;
+    private final Listener listener;
+    private final Executor callbackExecutor;
+    private final ScheduledExecutorService executor;
+    private final long ackTimeoutMillis;
+    private final int maxAttempts;
+
+    // Только поток очереди: неподтвержденные команды по ключу в порядке постановки
+    private final Map<String, Pending> pending = new LinkedHashMap<>();
+    // Следующая команда по ключу, пока предыдущая в канале ждет подтверждения
+    private final Map<String, Pending> waiting = new LinkedHashMap<>();
+
+    public CommandQueue(Writer writer, Listener listener, Executor callbackExecutor) {
+        this(writer, listener, callbackExecutor,
+                Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "chronograph-commands");
+                    thread.setDaemon(true);
+                    return thread;
+                }),
+                DEFAULT_ACK_TIMEOUT_MILLIS, DEFAULT_MAX_ATTEMPTS);
+    }
+
+    /**
+     * @param executor однопоточный планировщик, на котором пишутся команды и идут таймауты
+     */
+    public CommandQueue(Writer writer, Listener listener, Executor callbackExecutor,
+                        ScheduledExecutorService executor, long ackTimeoutMillis, int maxAttempts) {
+        if (ackTimeoutMillis <= 0 || maxAttempts <= 0) {
+            throw new IllegalArgumentException("ackTimeoutMillis=" + ackTimeoutMillis
+                    + ", maxAttempts=" + maxAttempts);
+        }
+        this.writer = writer;
+        this.listener = listener;
+        this.callbackExecutor = callbackExecutor;
+        this.executor = executor;
+        this.ackTimeoutMillis = ackTimeoutMillis;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Ставит команду в очередь. Ключ - часть до первого двоеточия.
+     */
+    public void submit(String command) {
+        executor.execute(() -> enqueue(command));
+    }
+
+    /**
+     * Строка подтверждения от хронографа без префикса {@code OK:}. Вызывается с потока чтения.
+     */
+    public void onAck(String command) {
+        executor.execute(() -> acknowledge(command));
+    }
+
+    /**
+     * Канал (пере)подключен: неподтвержденные команды уходят заново с полным запасом попыток.
+     * Если за командой ждет новая с тем же ключом, вместо нее уходит новая.
+     */
+    public void onConnected() {
+        executor.execute(() -> {
+            for (Pending command : new ArrayList<>(pending.values())) {
+                command.cancelTimeout();
+                if (!sendWaiting(command)) {
+                    command.attempt = 0;
+                    send(command);
+                }
+            }
+        });
+    }
+
+    /**
+     * Останавливает фоновый поток; недоставленные команды пропадают.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Ключ команды - часть до первого двоеточия: {@code MASS} для {@code MASS:0.25}.
+     */
+    public static String keyOf(String command) {
+        int colon = command.indexOf(':');
+        return colon < 0 ? command : command.substring(0, colon);
+    }
+
+    private void enqueue(String command) {
+        Pending next = new Pending(command);
+        Pending current = pending.get(next.key);
+        if (current != null && current.command.equals(command)) {
+            // Та же команда уже в очереди или в канале; ждавшая за ней устарела
+            Pending replaced = waiting.remove(next.key);
+            if (replaced != null) {
+                notifyDelivery(replaced, Delivery.SUPERSEDED);
+            }
+            return;
+        }
+        Pending queued = waiting.get(next.key);
+        if (queued != null && queued.command.equals(command)) {
+            return;
+        }
+        if (current != null && current.timeout != null) {
+            // Предыдущая команда в канале: новая ждет ее подтверждения
+            Pending replaced = waiting.put(next.key, next);
+            if (replaced != null) {
+                notifyDelivery(replaced, Delivery.SUPERSEDED);
+            }
+            notifyDelivery(next, Delivery.WAITING);
+            return;
+        }
+        if (current != null) {
+            // Не ушла из-за отсутствия канала - заменяем, не отправляя
+            notifyDelivery(current, Delivery.SUPERSEDED);
+        }
+        pending.put(next.key, next);
+        send(next);
+    }
+
+    private void acknowledge(String command) {
+        Pending current = pending.get(keyOf(command));
+        // Подтверждение вытесненной команды не подтверждает новую
+        if (current == null || !current.command.equals(command)) {
+            return;
+        }
+        pending.remove(current.key);
+        current.cancelTimeout();
+        notifyDelivery(current, Delivery.ACKNOWLEDGED);
+        Pending next = waiting.remove(current.key);
+        if (next != null) {
+            pending.put(next.key, next);
+            send(next);
+        }
+    }
+
+    /**
+     * Заменяет {@code current} ждущей за ней командой и отправляет ее.
+     *
+     * @return {@code false}, если ждущей команды нет
+     */
+    private boolean sendWaiting(Pending current) {
+        Pending next = waiting.remove(current.key);
+        if (next == null) {
+            return false;
+        }
+        notifyDelivery(current, Delivery.SUPERSEDED);
+        pending.put(next.key, next);
+        send(next);
+        return true;
+    }
+
+    private void send(Pending command) {
+        if (!writer.write(command.bytes)) {
+            notifyDelivery(command, Delivery.QUEUED);
+            return;
+        }
+        command.attempt++;
+        notifyDelivery(command, Delivery.SENT);
+        command.timeout = executor.schedule(() -> onTimeout(command),
+                ackTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void onTimeout(Pending command) {
+        command.timeout = null;
+        if (pending.get(command.key) != command) {
+            return;
+        }
+        if (sendWaiting(command)) {
+            // Повторять устаревшее значение незачем
+            return;
+        }
+        if (command.attempt < maxAttempts) {
+            send(command);
+            return;
+        }
+        pending.remove(command.key);
+        notifyDelivery(command, Delivery.FAILED);
+    }
+
+    private void notifyDelivery(Pending command, Delivery delivery) {
+        String text = command.command;
+        int attempt = command.attempt;
+        callbackExecutor.execute(() -> listener.onDelivery(text, delivery, attempt));
+    }
+
+    private static final class Pending {
+        final String command;
+        final String key;
+        // Кодируем один раз: повторы пишут те же байты
+        final byte[] bytes;
+        int attempt;
+        ScheduledFuture<?> timeout;
+
+        Pending(String command) {
+            this.command = command;
+            this.key = keyOf(command);
+            this.bytes = (command + "\n").getBytes(StandardCharsets.US_ASCII);
+        }
+
+        void cancelTimeout() {
+            if (timeout != null) {
+                timeout.cancel(false);
+                timeout = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.chronographapp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Соединение с хронографом с автоматическим переподключением.
+ *
+ * Вся работа идет на одном фоновом потоке: попытка подключения, чтение, пауза перед
+ * повтором. Пока соединение живо, поток занят чтением; разрыв возвращает его к
+ * подключению. Паузы растут экспоненциально со случайной добавкой, чтобы не долбить
+ * модуль каждые полсекунды и не попадать в такт с его перезагрузкой. Состояние меняется
+ * только на этом потоке, а слушатель получает его через {@code callbackExecutor}.
+ */
+public class ConnectionManager {
+
+    public enum State {
+        /** Соединение не нужно: не подключались или отключились сами */
+        IDLE,
+        CONNECTING,
+        CONNECTED,
+        /** Ждем перед следующей попыткой */
+        BACKOFF
+    }
+
+    /**
+     * Принимает байты на потоке соединения.
+     */
+    public interface DataSink {
+        /** Новое соединение: недочитанный кадр прошлого соединения надо выбросить */
+        void onConnected();
+
+        void onData(byte[] buffer, int length);
+    }
+
+    public interface Listener {
+        /**
+         * @param attempt          номер неудачной попытки подряд, 0 после подключения
+         * @param retryDelayMillis пауза до следующей попытки в состоянии BACKOFF
+         */
+        void onStateChanged(State state, int attempt, long retryDelayMillis);
+
+        void onFailed(Exception e);
+    }
+
+    public static final long DEFAULT_BASE_DELAY_MILLIS = 500;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 30_000;
+    private static final int READ_BUFFER_SIZE = 1024;
+    // Дальше задержка все равно упирается в максимум, а сдвиг не переполнится
+    private static final int MAX_BACKOFF_SHIFT = 20;
+
+    private final ChronographTransport.Factory transportFactory;
+    private final DataSink sink;
+    private final Listener listener;
+    private final Executor callbackExecutor;
+    private final ScheduledExecutorService executor;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final Random random;
+
+    // Хочет ли пользователь быть подключенным; меняется с любого потока
+    private volatile boolean active;
+    // Текущий канал - чтобы закрыть его и писать в него с главного потока
+    private volatile ChronographTransport link;
+    private volatile OutputStream output;
+    private volatile State state = State.IDLE;
+    private final Object writeLock = new Object();
+
+    // Дальше - только поток соединения
+    private int attempt;
+    private ScheduledFuture<?> pendingRetry;
+
+    public ConnectionManager(ChronographTransport.Factory transportFactory, DataSink sink, Listener listener,
+                             Executor callbackExecutor) {
+        this(transportFactory, sink, listener, callbackExecutor,
+                Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "chronograph-link");
+                    thread.setDaemon(true);
+                    return thread;
+                }),
+                DEFAULT_BASE_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS, new Random());
+    }
+
+    /**
+     * @param executor однопоточный планировщик, на котором живет соединение
+     */
+    public ConnectionManager(ChronographTransport.Factory transportFactory, DataSink sink, Listener listener,
+                             Executor callbackExecutor, ScheduledExecutorService executor,
+                             long baseDelayMillis, long maxDelayMillis, Random random) {
+        if (baseDelayMillis <= 0 || maxDelayMillis < baseDelayMillis) {
+            throw new IllegalArgumentException("baseDelayMillis=" + baseDelayMillis
+                    + ", maxDelayMillis=" + maxDelayMillis);
+        }
+        this.transportFactory = transportFactory;
+        this.sink = sink;
+        this.listener = listener;
+        this.callbackExecutor = callbackExecutor;
+        this.executor = executor;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.random = random;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Начинает подключение и держит соединение, пока не вызван {@link #disconnect()}.
+     */
+    public void connect() {
+        active = true;
+        executor.execute(this::start);
+    }
+
+    /**
+     * Рвет соединение и отменяет повторы.
+     */
+    public void disconnect() {
+        active = false;
+        // Закрытие снимает поток соединения с connect() или read()
+        closeQuietly(link);
+        executor.execute(this::stop);
+    }
+
+    /**
+     * Отключается и останавливает фоновый поток. Менеджер больше не используется.
+     */
+    public void shutdown() {
+        disconnect();
+        executor.shutdown();
+    }
+
+    /**
+     * Отправляет байты хронографу с вызывающего потока.
+     *
+     * @return {@code false}, если соединения нет или запись не удалась - тогда канал
+     * закрывается и начинается переподключение
+     */
+    public boolean send(byte[] bytes) {
+        OutputStream out = output;
+        if (out == null) {
+            return false;
+        }
+        synchronized (writeLock) {
+            try {
+                out.write(bytes);
+                out.flush();
+                return true;
+            } catch (IOException e) {
+                closeQuietly(link);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Пауза перед попыткой {@code attempt + 1}: экспонента от {@code base}, не больше
+     * {@code max}, половина которой случайна ("equal jitter").
+     */
+    static long backoffDelay(int attempt, long base, long max, double random) {
+        long exponential = Math.min(max, base << Math.min(attempt, MAX_BACKOFF_SHIFT));
+        long half = exponential / 2;
+        return half + (long) (random * (exponential - half));
+    }
+
+    private void start() {
+        if (active && state == State.IDLE) {
+            attempt = 0;
+            attemptConnection();
+        }
+    }
+
+    private void stop() {
+        if (active) {
+            // После disconnect() успели снова вызвать connect() - повтор остается в силе
+            return;
+        }
+        if (pendingRetry != null) {
+            pendingRetry.cancel(false);
+            pendingRetry = null;
+        }
+        setState(State.IDLE, 0, 0);
+    }
+
+    private void attemptConnection() {
+        pendingRetry = null;
+        if (!active) {
+            setState(State.IDLE, 0, 0);
+            return;
+        }
+        setState(State.CONNECTING, attempt, 0);
+
+        ChronographTransport next = null;
+        InputStream input;
+        try {
+            next = transportFactory.create();
+            link = next;
+            if (!active) {
+                // disconnect() пришел до того, как канал стал виден для закрытия
+                throw new IOException("Подключение отменено");
+            }
+            next.connect();
+            input = next.getInputStream();
+            output = next.getOutputStream();
+        } catch (IOException e) {
+            dropLink(next);
+            retryLater();
+            return;
+        } catch (RuntimeException e) {
+            // SecurityException, неверный адрес: повтор не поможет
+            dropLink(next);
+            active = false;
+            setState(State.IDLE, 0, 0);
+            callbackExecutor.execute(() -> listener.onFailed(e));
+            return;
+        }
+
+        attempt = 0;
+        sink.onConnected();
+        setState(State.CONNECTED, 0, 0);
+        readUntilClosed(input);
+        dropLink(next);
+        retryLater();
+    }
+
+    private void readUntilClosed(InputStream input) {
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        try {
+            int count;
+            while ((count = input.read(buffer)) >= 0) {
+                if (count > 0) {
+                    sink.onData(buffer, count);
+                }
+            }
+        } catch (IOException e) {
+            // Разрыв или disconnect(): решает retryLater()
+        }
+    }
+
+    private void retryLater() {
+        if (!active) {
+            setState(State.IDLE, 0, 0);
+            return;
+        }
+        long delay = backoffDelay(attempt, baseDelayMillis, maxDelayMillis, random.nextDouble());
+        attempt++;
+        setState(State.BACKOFF, attempt, delay);
+        pendingRetry = executor.schedule(this::attemptConnection, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void dropLink(ChronographTransport dropped) {
+        output = null;
+        link = null;
+        closeQuietly(dropped);
+    }
+
+    private void setState(State next, int attemptNumber, long retryDelayMillis) {
+        if (next == state && next != State.BACKOFF) {
+            return;
+        }
+        state = next;
+        callbackExecutor.execute(() -> listener.onStateChanged(next, attemptNumber, retryDelayMillis));
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+                // Канал уже мертв
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.chronographapp;
+
+import java.util.TimeZone;
+
+/**
+ * Форматирование чисел с фиксированным числом знаков после запятой прямо в массив
+ * символов, без {@code String.format} и без создания объектов.
+ */
+public final class FixedPointFormat {
+
+    // Длина самого длинного результата: знак, 19 цифр long, разделитель и дробь
+    public static final int MAX_LENGTH = 32;
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L
+    };
+
+    private FixedPointFormat() {
+    }
+
+    /**
+     * Записывает {@code value}, округленное до {@code decimals} знаков (не больше 6),
+     * начиная с {@code offset}.
+     *
+     * @return позиция сразу за последним записанным символом
+     */
+    public static int format(float value, int decimals, char separator, char[] dst, int offset) {
+        if (decimals < 0 || decimals >= POWERS_OF_TEN.length) {
+            throw new IllegalArgumentException("decimals: " + decimals);
+        }
+        if (Float.isNaN(value)) {
+            return append("NaN", dst, offset);
+        }
+        if (Float.isInfinite(value)) {
+            return append(value > 0 ? "Inf" : "-Inf", dst, offset);
+        }
+
+        long scale = POWERS_OF_TEN[decimals];
+        long scaled = Math.round(Math.abs((double) value) * scale);
+        if (value < 0 && scaled != 0) {
+            dst[offset++] = '-';
+        }
+
+        offset = formatLong(scaled / scale, dst, offset);
+        if (decimals > 0) {
+            dst[offset++] = separator;
+            long fraction = scaled % scale;
+            for (int i = decimals - 1; i >= 0; i--) {
+                dst[offset + i] = (char) ('0' + fraction % 10);
+                fraction /= 10;
+            }
+            offset += decimals;
+        }
+        return offset;
+    }
+
+    /**
+     * Записывает неотрицательное или отрицательное целое число.
+     *
+     * @return позиция сразу за последним записанным символом
+     */
+    public static int formatLong(long value, char[] dst, int offset) {
+        if (value == Long.MIN_VALUE) {
+            return append(Long.toString(value), dst, offset);
+        }
+        if (value < 0) {
+            dst[offset++] = '-';
+            value = -value;
+        }
+
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            dst[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return offset + digits;
+    }
+
+    /**
+     * Записывает число ровно двумя цифрами, с ведущим нулем.
+     */
+    public static int formatTwoDigits(int value, char[] dst, int offset) {
+        dst[offset] = (char) ('0' + value / 10 % 10);
+        dst[offset + 1] = (char) ('0' + value % 10);
+        return offset + 2;
+    }
+
+    /**
+     * Записывает местное время суток {@code HH:mm:ss} для момента {@code timeMillis}.
+     *
+     * @return позиция сразу за последним записанным символом
+     */
+    public static int formatTimeOfDay(long timeMillis, TimeZone zone, char[] dst, int offset) {
+        long local = Math.floorMod(timeMillis + zone.getOffset(timeMillis), MILLIS_PER_DAY);
+        int seconds = (int) (local / 1000);
+        offset = formatTwoDigits(seconds / 3600, dst, offset);
+        dst[offset++] = ':';
+        offset = formatTwoDigits(seconds / 60 % 60, dst, offset);
+        dst[offset++] = ':';
+        return formatTwoDigits(seconds % 60, dst, offset);
+    }
+
+    private static int append(String text, char[] dst, int offset) {
+        text.getChars(0, text.length(), dst, offset);
+        return offset + text.length();
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.chronographapp;
+
+/**
+ * Прореживание ряда методом Largest-Triangle-Three-Buckets (Steinarsson, 2013).
+ *
+ * Ряд делится на {@code threshold - 2} корзины между первой и последней точкой; из каждой
+ * корзины берется точка, образующая наибольший треугольник с уже выбранной точкой слева и
+ * средним следующей корзины. Пики и провалы сохраняются, а число точек графика
+ * ограничено шириной экрана, а не длиной серии. По оси X - индекс выстрела.
+ */
+public final class LttbDownsampler {
+
+    private LttbDownsampler() {
+    }
+
+    /**
+     * Выбирает индексы точек отрезка {@code values[from, to)}.
+     *
+     * @param threshold сколько точек оставить, не меньше 3; если точек меньше, берутся все
+     * @param out       индексы выбранных точек по возрастанию, длиной не меньше
+     *                  {@code min(threshold, to - from)}
+     * @return число выбранных индексов
+     */
+    public static int downsample(float[] values, int from, int to, int threshold, int[] out) {
+        if (from < 0 || to > values.length || from > to) {
+            throw new IndexOutOfBoundsException("from " + from + ", to " + to
+                    + ", length " + values.length);
+        }
+        if (threshold < 3) {
+            throw new IllegalArgumentException("threshold < 3: " + threshold);
+        }
+        int count = to - from;
+        if (count <= threshold) {
+            for (int i = 0; i < count; i++) {
+                out[i] = from + i;
+            }
+            return count;
+        }
+
+        // Первая и последняя точки всегда на графике, между ними threshold - 2 корзины
+        double bucketSize = (double) (count - 2) / (threshold - 2);
+        int selected = 0;
+        int a = from;
+        out[selected++] = a;
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            int bucketStart = from + 1 + (int) (bucket * bucketSize);
+            int bucketEnd = from + 1 + (int) ((bucket + 1) * bucketSize);
+
+            // Вершина справа - среднее следующей корзины, для последней - последняя точка
+            int nextStart = bucketEnd;
+            int nextEnd = Math.min(from + 1 + (int) ((bucket + 2) * bucketSize), to);
+            if (nextStart >= to - 1) {
+                nextStart = to - 1;
+                nextEnd = to;
+            }
+            double avgX = 0;
+            double avgY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgX += i;
+                avgY += values[i];
+            }
+            int nextCount = nextEnd - nextStart;
+            avgX /= nextCount;
+            avgY /= nextCount;
+
+            double ax = a;
+            double ay = values[a];
+            double maxArea = -1;
+            int chosen = bucketStart;
+            for (int i = bucketStart; i < bucketEnd; i++) {
+                // Удвоенная площадь треугольника: делить на два для сравнения незачем
+                double area = Math.abs((ax - avgX) * (values[i] - ay) - (ax - i) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    chosen = i;
+                }
+            }
+            out[selected++] = chosen;
+            a = chosen;
+        }
+        out[selected++] = to - 1;
+        return selected;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.chronographapp;
+
+/**
+ * Темп стрельбы (выстр./мин) по монотонному времени выстрелов в наносекундах.
+ *
+ * Время снимается в потоке чтения в момент разбора кадра, а не когда до выстрела
+ * доберется главный поток, поэтому занятый интерфейс не искажает интервалы.
+ * Мгновенный темп считается по последнему интервалу, средний - по последним
+ * {@code window} интервалам через кольцо меток времени: O(1) на выстрел без
+ * пересчета окна. Пауза длиннее {@code maxIntervalNanos} начинает новую очередь,
+ * и темп считается заново. Методы синхронизированы: выстрелы приходят из потока
+ * чтения, а сброс и чтение темпа - с главного потока.
+ */
+public class RateOfFireEstimator {
+
+    public static final int DEFAULT_WINDOW = 8;
+    public static final long DEFAULT_MAX_INTERVAL_NANOS = 2_000_000_000L;
+
+    private static final double NANOS_PER_MINUTE = 60e9;
+
+    private final long maxIntervalNanos;
+    // Метки последних window + 1 выстрелов очереди
+    private final long[] times;
+    private int newest = -1;
+    private int count;
+
+    private float instantRpm;
+    private float averageRpm;
+
+    public RateOfFireEstimator() {
+        this(DEFAULT_WINDOW, DEFAULT_MAX_INTERVAL_NANOS);
+    }
+
+    /**
+     * @param window           число интервалов для среднего темпа
+     * @param maxIntervalNanos пауза, после которой начинается новая очередь
+     */
+    public RateOfFireEstimator(int window, long maxIntervalNanos) {
+        if (window <= 0 || maxIntervalNanos <= 0) {
+            throw new IllegalArgumentException("window=" + window
+                    + ", maxIntervalNanos=" + maxIntervalNanos);
+        }
+        this.times = new long[window + 1];
+        this.maxIntervalNanos = maxIntervalNanos;
+    }
+
+    public synchronized void onShot(long timeNanos) {
+        if (count > 0) {
+            long interval = timeNanos - times[newest];
+            if (interval <= 0) {
+                // Два выстрела в одну метку: интервал неизвестен, окно не трогаем
+                return;
+            }
+            if (interval > maxIntervalNanos) {
+                count = 0;
+                instantRpm = 0f;
+                averageRpm = 0f;
+            } else {
+                instantRpm = (float) (NANOS_PER_MINUTE / interval);
+            }
+        }
+
+        newest = newest + 1 == times.length ? 0 : newest + 1;
+        times[newest] = timeNanos;
+        if (count < times.length) {
+            count++;
+        }
+
+        if (count > 1) {
+            // Самая старая метка окна; при полном кольце она лежит сразу за новой
+            int oldest = (newest - count + 1 + times.length) % times.length;
+            averageRpm = (float) (NANOS_PER_MINUTE * (count - 1) / (timeNanos - times[oldest]));
+        }
+    }
+
+    /**
+     * @return темп по последнему интервалу, 0 - в очереди меньше двух выстрелов
+     */
+    public synchronized float getInstantRpm() {
+        return instantRpm;
+    }
+
+    /**
+     * @return средний темп по окну, 0 - в очереди меньше двух выстрелов
+     */
+    public synchronized float getAverageRpm() {
+        return averageRpm;
+    }
+
+    public synchronized void reset() {
+        count = 0;
+        newest = -1;
+        instantRpm = 0f;
+        averageRpm = 0f;
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.chronographapp;
+
+/**
+ * Скользящая статистика одной величины: число, сумма, среднее, стандартное отклонение,
+ * минимум, максимум и разброс (ES).
+ *
+ * Добавление - O(1): среднее и дисперсия ведутся по алгоритму Велфорда, минимум и
+ * максимум - как текущие значения вместе с числом их повторов. Удаление тоже O(1), пока
+ * удаляется не последний экземпляр минимума или максимума. Тогда крайнее значение
+ * пересчитывается один раз, при следующем запросе, проходом по {@link Values}: для
+ * истории выстрелов это редкость, а память не растет с числом добавлений.
+ */
+public class RunningStats {
+
+    /**
+     * Значения, по которым статистика ведется: индекс от 0 до {@link #getCount()}.
+     * Нужны только для пересчета минимума и максимума после удаления.
+     */
+    public interface Values {
+        float get(int index);
+    }
+
+    private final Values values;
+    private int count;
+    private double sum;
+    private double mean;
+    // Сумма квадратов отклонений от среднего
+    private double m2;
+
+    private float min, max;
+    // Сколько раз встречаются min и max; 0 - крайнее значение удалено, нужен пересчет
+    private int minCount, maxCount;
+
+    /**
+     * Статистика только с добавлением: удалять можно всё, кроме последнего экземпляра
+     * минимума или максимума.
+     */
+    public RunningStats() {
+        this(null);
+    }
+
+    /**
+     * @param values текущие значения, например колонка {@link ShotStore}; по ним
+     *               восстанавливаются минимум и максимум после удаления
+     */
+    public RunningStats(Values values) {
+        this.values = values;
+    }
+
+    public void add(float value) {
+        count++;
+        sum += value;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+
+        if (count == 1) {
+            min = max = value;
+            minCount = maxCount = 1;
+            return;
+        }
+        // Пока крайнее значение ждет пересчета, новое значение учтет сам пересчет
+        if (minCount > 0) {
+            int compare = Float.compare(value, min);
+            if (compare < 0) {
+                min = value;
+                minCount = 1;
+            } else if (compare == 0) {
+                minCount++;
+            }
+        }
+        if (maxCount > 0) {
+            int compare = Float.compare(value, max);
+            if (compare > 0) {
+                max = value;
+                maxCount = 1;
+            } else if (compare == 0) {
+                maxCount++;
+            }
+        }
+    }
+
+    /**
+     * Убирает ранее добавленное значение. Удалять значение, которого нет, нельзя -
+     * статистика станет неверной. Если источник {@link Values} задан, к следующему
+     * запросу минимума или максимума он уже не должен содержать удаленное значение.
+     *
+     * @throws IllegalStateException если удаляется последний экземпляр минимума или
+     *                               максимума, а источника значений нет
+     */
+    public void remove(float value) {
+        if (count == 0) {
+            throw new IllegalStateException("Статистика пуста");
+        }
+        if (count == 1) {
+            clear();
+            return;
+        }
+        boolean lastMin = minCount == 1 && Float.compare(value, min) == 0;
+        boolean lastMax = maxCount == 1 && Float.compare(value, max) == 0;
+        if ((lastMin || lastMax) && values == null) {
+            throw new IllegalStateException("Без источника значений нельзя удалить крайнее " + value);
+        }
+
+        double previousMean = (count * mean - value) / (count - 1);
+        m2 -= (value - mean) * (value - previousMean);
+        if (m2 < 0) {
+            // Защита от накопленной ошибки округления
+            m2 = 0;
+        }
+        mean = previousMean;
+        sum -= value;
+        count--;
+
+        if (minCount > 0 && Float.compare(value, min) == 0) {
+            minCount--;
+        }
+        if (maxCount > 0 && Float.compare(value, max) == 0) {
+            maxCount--;
+        }
+    }
+
+    public void clear() {
+        count = 0;
+        sum = 0;
+        mean = 0;
+        m2 = 0;
+        min = max = 0f;
+        minCount = maxCount = 0;
+    }
+
+    /**
+     * Делает статистику копией {@code other}, например посчитанной на фоновом потоке.
+     * Источник значений остается свой.
+     */
+    public void set(RunningStats other) {
+        count = other.count;
+        sum = other.sum;
+        mean = other.mean;
+        m2 = other.m2;
+        min = other.min;
+        max = other.max;
+        minCount = other.minCount;
+        maxCount = other.maxCount;
+    }
+
+    /**
+     * Пересчитывает статистику по скоростям всех выстрелов курсора.
+     */
+    public void resetToVelocities(ShotCursor shots) {
+        clear();
+        for (int i = 0, count = shots.getCount(); i < count; i++) {
+            add(shots.moveTo(i).velocity());
+        }
+    }
+
+    /**
+     * Пересчитывает статистику по энергиям всех выстрелов курсора.
+     */
+    public void resetToEnergies(ShotCursor shots) {
+        clear();
+        for (int i = 0, count = shots.getCount(); i < count; i++) {
+            add(shots.moveTo(i).energy());
+        }
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public float getMean() {
+        return count > 0 ? (float) mean : 0f;
+    }
+
+    /**
+     * @return выборочная дисперсия (делитель n - 1), 0 для одного значения
+     */
+    public float getVariance() {
+        return count > 1 ? (float) (m2 / (count - 1)) : 0f;
+    }
+
+    /**
+     * @return выборочное стандартное отклонение (SD), как считают стрелки
+     */
+    public float getStandardDeviation() {
+        return (float) Math.sqrt(getVariance());
+    }
+
+    public float getMin() {
+        if (count == 0) {
+            return 0f;
+        }
+        if (minCount == 0) {
+            rescanExtremes();
+        }
+        return min;
+    }
+
+    public float getMax() {
+        if (count == 0) {
+            return 0f;
+        }
+        if (maxCount == 0) {
+            rescanExtremes();
+        }
+        return max;
+    }
+
+    /**
+     * @return разброс (ES): разница между максимумом и минимумом
+     */
+    public float getExtremeSpread() {
+        return count > 0 ? getMax() - getMin() : 0f;
+    }
+
+    // Один проход по значениям восстанавливает оба крайних значения
+    private void rescanExtremes() {
+        min = max = values.get(0);
+        minCount = maxCount = 1;
+        for (int i = 1; i < count; i++) {
+            float value = values.get(i);
+            int compareMin = Float.compare(value, min);
+            if (compareMin < 0) {
+                min = value;
+                minCount = 1;
+            } else if (compareMin == 0) {
+                minCount++;
+            }
+            int compareMax = Float.compare(value, max);
+            if (compareMax > 0) {
+                max = value;
+                maxCount = 1;
+            } else if (compareMax == 0) {
+                maxCount++;
+            }
+        }
+    }
+}
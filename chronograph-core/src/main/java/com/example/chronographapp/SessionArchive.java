@@ -0,0 +1,247 @@
+package com.example.chronographapp;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * Архив сессий в отдельной папке.
+ *
+ * Выстрелы каждой сессии лежат в своем журнале {@code <id>.journal}, итоговая статистика
+ * закрытых сессий - в {@link SessionIndex}, счетчики {@link VelocityHistogram} закрытой
+ * сессии - в {@code <id>.histogram}, а описание открытой сессии - в файле
+ * {@code active.session}, чтобы после гибели процесса ее можно было продолжить.
+ */
+public class SessionArchive {
+
+    private static final String INDEX_FILE_NAME = "sessions.index";
+    private static final String ACTIVE_FILE_NAME = "active.session";
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final String HISTOGRAM_SUFFIX = ".histogram";
+    // "CHRH"
+    static final int HISTOGRAM_MAGIC = 0x43485248;
+    static final short HISTOGRAM_VERSION = 1;
+    static final int HISTOGRAM_HEADER_SIZE = 8;
+
+    private final File directory;
+    private final SessionIndex index;
+    private final File activeFile;
+    // Меняется на потоке архива, читается и с главного
+    private volatile SessionSummary active;
+
+    public SessionArchive(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Не удалось создать папку " + directory);
+        }
+        this.directory = directory;
+        this.index = new SessionIndex(new File(directory, INDEX_FILE_NAME));
+        this.activeFile = new File(directory, ACTIVE_FILE_NAME);
+
+        SessionSummary stored = null;
+        try {
+            List<SessionSummary> records = new SessionIndex(activeFile).readAll();
+            stored = records.isEmpty() ? null : records.get(0);
+        } catch (IOException e) {
+            // Испорченное описание не должно блокировать новые сессии
+            activeFile.delete();
+        }
+        if (stored != null && stored.getId() <= index.lastId()) {
+            // Процесс погиб после записи итога в индекс, но до удаления описания:
+            // сессия уже закрыта, второй раз ее id в индекс не попадет
+            activeFile.delete();
+            stored = null;
+        }
+        this.active = stored;
+    }
+
+    /**
+     * @return открытая сессия или {@code null}, если ее нет
+     */
+    public SessionSummary getActiveSession() {
+        return active;
+    }
+
+    public File getJournalFile(long sessionId) {
+        return new File(directory, sessionId + JOURNAL_SUFFIX);
+    }
+
+    public File getHistogramFile(long sessionId) {
+        return new File(directory, sessionId + HISTOGRAM_SUFFIX);
+    }
+
+    public SessionSummary startSession(long nowMillis, float mass, String device) throws IOException {
+        if (active != null) {
+            throw new IllegalStateException("Сессия " + active.getId() + " еще открыта");
+        }
+
+        // id растут вместе со временем начала - на этом держится поиск в индексе
+        long id = Math.max(nowMillis, index.lastId() + 1);
+
+        SessionSummary session = SessionSummary.started(id, nowMillis, mass, device);
+        SessionIndex.writeSingle(activeFile, session);
+        active = session;
+        return session;
+    }
+
+    public void updateActiveSession(float mass, String device) throws IOException {
+        if (active == null) {
+            return;
+        }
+        SessionSummary updated = active.withMassAndDevice(mass, device);
+        SessionIndex.writeSingle(activeFile, updated);
+        active = updated;
+    }
+
+    /**
+     * Закрывает открытую сессию и заносит ее статистику в индекс, а счетчики скоростей -
+     * в {@link #getHistogramFile}. Пустая сессия в индекс не попадает, ее журнал удаляется.
+     *
+     * @return итог закрытой сессии или {@code null}, если сессия была пустой
+     */
+    public SessionSummary closeActiveSession(long nowMillis, ShotStore store) throws IOException {
+        if (active == null) {
+            return null;
+        }
+
+        SessionSummary closed = null;
+        if (store.isEmpty()) {
+            getJournalFile(active.getId()).delete();
+        } else {
+            closed = active.close(nowMillis, store.cursor());
+            VelocityHistogram histogram = new VelocityHistogram();
+            histogram.resetToVelocities(store.cursor());
+            writeHistogram(active.getId(), histogram);
+            index.append(closed);
+        }
+
+        activeFile.delete();
+        active = null;
+        return closed;
+    }
+
+    /**
+     * То же, что {@link #closeActiveSession(long, ShotStore)}, но статистика считается по
+     * журналу сессии потоково, блоками {@link ShotJournal#read}: так итог совпадает с тем,
+     * что лежит на диске, а память не зависит от длины сессии. Журнал должен быть уже закрыт.
+     */
+    public SessionSummary closeActiveSession(long nowMillis) throws IOException {
+        SessionSummary session = active;
+        if (session == null) {
+            return null;
+        }
+
+        SummaryVisitor shots = new SummaryVisitor();
+        ShotJournal.read(getJournalFile(session.getId()), shots);
+        SessionSummary closed = null;
+        if (shots.count == 0) {
+            getJournalFile(session.getId()).delete();
+        } else {
+            closed = new SessionSummary(session.getId(), session.getStartMillis(), nowMillis,
+                    session.getMass(), session.getDevice(), shots.count,
+                    shots.minVelocity, shots.maxVelocity, (float) (shots.totalVelocity / shots.count),
+                    shots.minEnergy, shots.maxEnergy, (float) (shots.totalEnergy / shots.count));
+            // Счетчики раньше индекса: после гибели между ними сессия закроется заново
+            writeHistogram(session.getId(), shots.histogram);
+            index.append(closed);
+        }
+
+        activeFile.delete();
+        active = null;
+        return closed;
+    }
+
+    public List<SessionSummary> listSessions() throws IOException {
+        return index.readAll();
+    }
+
+    public SessionSummary findSession(long sessionId) throws IOException {
+        return index.find(sessionId);
+    }
+
+    /**
+     * Загружает выстрелы одной сессии, не трогая остальные.
+     */
+    public int loadSession(long sessionId, ShotStore into) throws IOException {
+        return ShotJournal.load(getJournalFile(sessionId), into);
+    }
+
+    /**
+     * Читает счетчики скоростей закрытой сессии: процентили и SD без чтения журнала.
+     * Для сессий, закрытых до появления этих файлов, или если файл испорчен, счетчики
+     * один раз собираются из журнала и сохраняются.
+     */
+    public VelocityHistogram loadHistogram(long sessionId) throws IOException {
+        File file = getHistogramFile(sessionId);
+        if (file.exists()) {
+            try (FileInputStream input = new FileInputStream(file);
+                 FileChannel channel = input.getChannel()) {
+                ByteBuffer data = ByteBuffer.allocate((int) channel.size());
+                while (data.hasRemaining() && channel.read(data) >= 0) {
+                    // читаем файл целиком, он не больше нескольких килобайт
+                }
+                data.flip();
+                if (data.remaining() >= HISTOGRAM_HEADER_SIZE
+                        && data.getInt() == HISTOGRAM_MAGIC
+                        && data.getShort() == HISTOGRAM_VERSION) {
+                    data.getShort();
+                    return VelocityHistogram.readFrom(data);
+                }
+            } catch (IllegalArgumentException e) {
+                // Испорченные счетчики пересобираем из журнала ниже
+            }
+        }
+
+        VelocityHistogram histogram = new VelocityHistogram();
+        ShotJournal.read(getJournalFile(sessionId),
+                (shotNumber, velocity, energy, timeMillis) -> histogram.add(velocity));
+        writeHistogram(sessionId, histogram);
+        return histogram;
+    }
+
+    /**
+     * Атомарно записывает счетчики сессии: через временный файл и переименование.
+     */
+    private void writeHistogram(long sessionId, VelocityHistogram histogram) throws IOException {
+        File target = getHistogramFile(sessionId);
+        File temp = new File(target.getPath() + ".tmp");
+        try (RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+             FileChannel channel = raf.getChannel()) {
+            channel.truncate(0);
+            ByteBuffer data = ByteBuffer.allocate(HISTOGRAM_HEADER_SIZE + histogram.serializedSize());
+            data.putInt(HISTOGRAM_MAGIC).putShort(HISTOGRAM_VERSION).putShort((short) 0);
+            histogram.writeTo(data);
+            data.flip();
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+            channel.force(false);
+        }
+        if (!temp.renameTo(target)) {
+            throw new IOException("Не удалось переименовать " + temp + " в " + target);
+        }
+    }
+
+    private static final class SummaryVisitor implements ShotJournal.RecordVisitor {
+        int count;
+        float minVelocity = Float.MAX_VALUE, maxVelocity = -Float.MAX_VALUE;
+        float minEnergy = Float.MAX_VALUE, maxEnergy = -Float.MAX_VALUE;
+        double totalVelocity, totalEnergy;
+        final VelocityHistogram histogram = new VelocityHistogram();
+
+        @Override
+        public void onRecord(int shotNumber, float velocity, float energy, long timeMillis) {
+            count++;
+            histogram.add(velocity);
+            minVelocity = Math.min(minVelocity, velocity);
+            maxVelocity = Math.max(maxVelocity, velocity);
+            minEnergy = Math.min(minEnergy, energy);
+            maxEnergy = Math.max(maxEnergy, energy);
+            totalVelocity += velocity;
+            totalEnergy += energy;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.chronographapp;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Индекс сессий на диске: заголовок и записи {@link SessionSummary} фиксированного размера.
+ *
+ * Записи дописываются в порядке возрастания id, поэтому сессию по id можно найти
+ * двоичным поиском, читая с диска только нужные записи. Весь список для экрана
+ * истории читается одним последовательным чтением.
+ */
+public class SessionIndex {
+
+    // "CHRS"
+    static final int MAGIC = 0x43485253;
+    public static final short VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int DEVICE_BYTES = 32;
+    static final int RECORD_SIZE = 8 + 8 + 8 + 4 + 4 + 6 * 4 + DEVICE_BYTES;
+
+    private final File file;
+
+    public SessionIndex(File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public synchronized void append(SessionSummary summary) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+             FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || !isHeaderValid(readAt(channel, 0, HEADER_SIZE))) {
+                channel.truncate(0);
+                writeFully(channel, header(), 0);
+                size = HEADER_SIZE;
+            }
+            // Отрезаем недописанную запись, если процесс погиб посреди записи
+            long records = (size - HEADER_SIZE) / RECORD_SIZE;
+            long end = HEADER_SIZE + records * RECORD_SIZE;
+            channel.truncate(end);
+
+            ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+            writeRecord(record, summary);
+            record.flip();
+            writeFully(channel, record, end);
+            channel.force(false);
+        }
+    }
+
+    public synchronized int size() {
+        long length = file.length();
+        return length < HEADER_SIZE ? 0 : (int) ((length - HEADER_SIZE) / RECORD_SIZE);
+    }
+
+    public synchronized List<SessionSummary> readAll() throws IOException {
+        List<SessionSummary> sessions = new ArrayList<>();
+        if (!file.exists() || file.length() < HEADER_SIZE) {
+            return sessions;
+        }
+
+        try (FileInputStream input = new FileInputStream(file);
+             FileChannel channel = input.getChannel()) {
+            ByteBuffer data = readAt(channel, 0, (int) channel.size());
+            if (!isHeaderValid(data)) {
+                throw new IOException("Неизвестный формат индекса сессий " + file);
+            }
+            data.position(HEADER_SIZE);
+            while (data.remaining() >= RECORD_SIZE) {
+                sessions.add(readRecord(data));
+            }
+        }
+        return sessions;
+    }
+
+    /**
+     * @return id последней записанной сессии или -1, если индекс пуст
+     */
+    public synchronized long lastId() throws IOException {
+        int count = size();
+        if (count == 0) {
+            return -1L;
+        }
+        try (FileInputStream input = new FileInputStream(file);
+             FileChannel channel = input.getChannel()) {
+            ByteBuffer key = readAt(channel, HEADER_SIZE + (long) (count - 1) * RECORD_SIZE, 8);
+            return key.getLong(0);
+        }
+    }
+
+    /**
+     * Ищет сессию по id двоичным поиском прямо в файле.
+     *
+     * @return описание сессии или {@code null}, если такой нет
+     */
+    public synchronized SessionSummary find(long id) throws IOException {
+        if (!file.exists() || file.length() < HEADER_SIZE) {
+            return null;
+        }
+
+        try (FileInputStream input = new FileInputStream(file);
+             FileChannel channel = input.getChannel()) {
+            if (!isHeaderValid(readAt(channel, 0, HEADER_SIZE))) {
+                throw new IOException("Неизвестный формат индекса сессий " + file);
+            }
+
+            ByteBuffer key = ByteBuffer.allocate(8);
+            long low = 0;
+            long high = (channel.size() - HEADER_SIZE) / RECORD_SIZE - 1;
+            while (low <= high) {
+                long middle = (low + high) >>> 1;
+                long position = HEADER_SIZE + middle * RECORD_SIZE;
+                key.clear();
+                readFully(channel, key, position);
+                long middleId = key.getLong(0);
+
+                if (middleId < id) {
+                    low = middle + 1;
+                } else if (middleId > id) {
+                    high = middle - 1;
+                } else {
+                    ByteBuffer record = readAt(channel, position, RECORD_SIZE);
+                    return readRecord(record);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Атомарно записывает файл из одной записи: через временный файл и переименование.
+     */
+    static void writeSingle(File target, SessionSummary summary) throws IOException {
+        File temp = new File(target.getPath() + ".tmp");
+        try (RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+             FileChannel channel = raf.getChannel()) {
+            channel.truncate(0);
+            ByteBuffer data = ByteBuffer.allocate(HEADER_SIZE + RECORD_SIZE);
+            data.put(header());
+            writeRecord(data, summary);
+            data.flip();
+            writeFully(channel, data, 0);
+            channel.force(false);
+        }
+        if (!temp.renameTo(target)) {
+            throw new IOException("Не удалось переименовать " + temp + " в " + target);
+        }
+    }
+
+    static void writeRecord(ByteBuffer buffer, SessionSummary summary) {
+        buffer.putLong(summary.getId())
+                .putLong(summary.getStartMillis())
+                .putLong(summary.getEndMillis())
+                .putFloat(summary.getMass())
+                .putInt(summary.getShotCount())
+                .putFloat(summary.getMinVelocity())
+                .putFloat(summary.getMaxVelocity())
+                .putFloat(summary.getMeanVelocity())
+                .putFloat(summary.getMinEnergy())
+                .putFloat(summary.getMaxEnergy())
+                .putFloat(summary.getMeanEnergy());
+
+        byte[] device = summary.getDevice().getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(device.length, DEVICE_BYTES - 1);
+        // Не режем многобайтовый символ посередине
+        while (length < device.length && length > 0 && (device[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        buffer.put((byte) length);
+        buffer.put(device, 0, length);
+        for (int i = length + 1; i < DEVICE_BYTES; i++) {
+            buffer.put((byte) 0);
+        }
+    }
+
+    static SessionSummary readRecord(ByteBuffer buffer) {
+        long id = buffer.getLong();
+        long startMillis = buffer.getLong();
+        long endMillis = buffer.getLong();
+        float mass = buffer.getFloat();
+        int shotCount = buffer.getInt();
+        float minVelocity = buffer.getFloat();
+        float maxVelocity = buffer.getFloat();
+        float meanVelocity = buffer.getFloat();
+        float minEnergy = buffer.getFloat();
+        float maxEnergy = buffer.getFloat();
+        float meanEnergy = buffer.getFloat();
+
+        byte[] device = new byte[DEVICE_BYTES - 1];
+        int length = Math.min(buffer.get() & 0xFF, device.length);
+        buffer.get(device);
+
+        return new SessionSummary(id, startMillis, endMillis, mass,
+                new String(device, 0, length, StandardCharsets.UTF_8), shotCount,
+                minVelocity, maxVelocity, meanVelocity, minEnergy, maxEnergy, meanEnergy);
+    }
+
+    private static ByteBuffer header() {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC)
+                .putShort(VERSION)
+                .putShort((short) RECORD_SIZE)
+                .putLong(0L);
+        header.flip();
+        return header;
+    }
+
+    private static boolean isHeaderValid(ByteBuffer header) {
+        return header.limit() >= HEADER_SIZE
+                && header.getInt(0) == MAGIC
+                && header.getShort(4) == VERSION
+                && header.getShort(6) == RECORD_SIZE;
+    }
+
+    private static ByteBuffer readAt(FileChannel channel, long position, int length)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        readFully(channel, buffer, position);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.chronographapp;
+
+/**
+ * Описание сессии стрельбы: когда началась, с какой массой снаряда и каким
+ * хронографом, и итоговая статистика, посчитанная при закрытии сессии.
+ */
+public class SessionSummary {
+    private final long id;
+    private final long startMillis;
+    private final long endMillis;
+    private final float mass;
+    private final String device;
+    private final int shotCount;
+    private final float minVelocity;
+    private final float maxVelocity;
+    private final float meanVelocity;
+    private final float minEnergy;
+    private final float maxEnergy;
+    private final float meanEnergy;
+
+    public SessionSummary(long id, long startMillis, long endMillis, float mass, String device,
+                          int shotCount,
+                          float minVelocity, float maxVelocity, float meanVelocity,
+                          float minEnergy, float maxEnergy, float meanEnergy) {
+        this.id = id;
+        this.startMillis = startMillis;
+        this.endMillis = endMillis;
+        this.mass = mass;
+        this.device = device != null ? device : "";
+        this.shotCount = shotCount;
+        this.minVelocity = minVelocity;
+        this.maxVelocity = maxVelocity;
+        this.meanVelocity = meanVelocity;
+        this.minEnergy = minEnergy;
+        this.maxEnergy = maxEnergy;
+        this.meanEnergy = meanEnergy;
+    }
+
+    /**
+     * Открытая сессия: статистики еще нет.
+     */
+    public static SessionSummary started(long id, long startMillis, float mass, String device) {
+        return new SessionSummary(id, startMillis, 0L, mass, device, 0, 0f, 0f, 0f, 0f, 0f, 0f);
+    }
+
+    /**
+     * Закрывает сессию, считая итоговую статистику по ее выстрелам.
+     */
+    public SessionSummary close(long endMillis, ShotCursor shots) {
+        int count = shots.getCount();
+        if (count == 0) {
+            return new SessionSummary(id, startMillis, endMillis, mass, device, 0,
+                    0f, 0f, 0f, 0f, 0f, 0f);
+        }
+
+        float minV = Float.MAX_VALUE, maxV = -Float.MAX_VALUE;
+        float minE = Float.MAX_VALUE, maxE = -Float.MAX_VALUE;
+        double totalV = 0, totalE = 0;
+        for (int i = 0; i < count; i++) {
+            shots.moveTo(i);
+            float velocity = shots.velocity();
+            float energy = shots.energy();
+            if (velocity < minV) minV = velocity;
+            if (velocity > maxV) maxV = velocity;
+            if (energy < minE) minE = energy;
+            if (energy > maxE) maxE = energy;
+            totalV += velocity;
+            totalE += energy;
+        }
+
+        return new SessionSummary(id, startMillis, endMillis, mass, device, count,
+                minV, maxV, (float) (totalV / count),
+                minE, maxE, (float) (totalE / count));
+    }
+
+    public SessionSummary withMassAndDevice(float mass, String device) {
+        return new SessionSummary(id, startMillis, endMillis, mass, device, shotCount,
+                minVelocity, maxVelocity, meanVelocity, minEnergy, maxEnergy, meanEnergy);
+    }
+
+    public long getId() { return id; }
+    public long getStartMillis() { return startMillis; }
+    public long getEndMillis() { return endMillis; }
+    public float getMass() { return mass; }
+    public String getDevice() { return device; }
+    public int getShotCount() { return shotCount; }
+    public float getMinVelocity() { return minVelocity; }
+    public float getMaxVelocity() { return maxVelocity; }
+    public float getMeanVelocity() { return meanVelocity; }
+    public float getMinEnergy() { return minEnergy; }
+    public float getMaxEnergy() { return maxEnergy; }
+    public float getMeanEnergy() { return meanEnergy; }
+}
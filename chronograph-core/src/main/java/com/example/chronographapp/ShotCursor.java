@@ -0,0 +1,32 @@
+package com.example.chronographapp;
+
+/**
+ * Курсор только для чтения над историей выстрелов.
+ *
+ * Один объект переставляется по строкам через {@link #moveTo(int)} и читает значения
+ * прямо из примитивных колонок, поэтому проход по истории не создает объект на выстрел:
+ * {@code cursor.moveTo(i).velocity()}. После изменения истории курсор нужно
+ * переставить заново.
+ */
+public interface ShotCursor {
+
+    int getCount();
+
+    /**
+     * Переставляет курсор на строку {@code position}.
+     *
+     * @return этот же курсор
+     * @throws IndexOutOfBoundsException если строки нет
+     */
+    ShotCursor moveTo(int position);
+
+    int getPosition();
+
+    int shotNumber();
+
+    float velocity();
+
+    float energy();
+
+    long timeMillis();
+}
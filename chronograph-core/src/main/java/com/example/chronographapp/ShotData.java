@@ -0,0 +1,76 @@
+package com.example.chronographapp;
+
+import java.util.Locale;
+
+/**
+ * Один выстрел как отдельное значение - для диалогов и передачи одного выстрела.
+ * Проходы по истории используют {@link ShotCursor} и объектов не создают.
+ */
+public final class ShotData {
+    private final int shotNumber;
+    private final float velocity;
+    private final float energy;
+    private final long timeInMillis;
+    // Строка времени создается только когда ее попросят
+    private String timestamp;
+
+    /**
+     * @param timeInMillis время выстрела, снятое при декодировании кадра
+     */
+    public ShotData(int shotNumber, float velocity, float energy, long timeInMillis) {
+        this.shotNumber = shotNumber;
+        this.velocity = velocity;
+        this.energy = energy;
+        this.timeInMillis = timeInMillis;
+    }
+
+    /**
+     * Копирует выстрел, на котором стоит курсор.
+     */
+    public static ShotData of(ShotCursor shot) {
+        return new ShotData(shot.shotNumber(), shot.velocity(), shot.energy(), shot.timeMillis());
+    }
+
+    public int getShotNumber() { return shotNumber; }
+    public float getVelocity() { return velocity; }
+    public float getEnergy() { return energy; }
+    public long getTimeInMillis() { return timeInMillis; }
+
+    public String getTimestamp() {
+        if (timestamp == null) {
+            timestamp = ShotTimeFormatter.getDefault().format(timeInMillis);
+        }
+        return timestamp;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ShotData)) {
+            return false;
+        }
+        ShotData other = (ShotData) o;
+        return shotNumber == other.shotNumber
+                && Float.compare(velocity, other.velocity) == 0
+                && Float.compare(energy, other.energy) == 0
+                && timeInMillis == other.timeInMillis;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = shotNumber;
+        result = 31 * result + Float.floatToIntBits(velocity);
+        result = 31 * result + Float.floatToIntBits(energy);
+        result = 31 * result + Long.hashCode(timeInMillis);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.getDefault(),
+                "Выстрел #%d: %.1f м/с, %.2f Дж (%s)",
+                shotNumber, velocity, energy, getTimestamp());
+    }
+}
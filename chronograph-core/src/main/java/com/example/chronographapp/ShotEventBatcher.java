@@ -0,0 +1,94 @@
+package com.example.chronographapp;
+
+/**
+ * Копит выстрелы, декодированные в потоке чтения, до ближайшего кадра UI.
+ *
+ * {@link #offer} вызывается из потока чтения и возвращает {@code true} только для
+ * первого выстрела пачки - ровно тогда нужно запланировать разбор на главном потоке.
+ * {@link #drainTo} забирает всю пачку разом, сколько бы выстрелов ни пришло,
+ * поэтому на один кадр приходится не больше одного обновления экрана.
+ * Время выстрела снимается в потоке чтения и едет вместе с пачкой.
+ */
+public class ShotEventBatcher {
+
+    public interface Sink {
+        void onShot(int shotNumber, float velocity, float energy, long timeMillis);
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Буфер, в который пишет поток чтения
+    private int[] numbers = new int[INITIAL_CAPACITY];
+    private float[] velocities = new float[INITIAL_CAPACITY];
+    private float[] energies = new float[INITIAL_CAPACITY];
+    private long[] times = new long[INITIAL_CAPACITY];
+    private int size = 0;
+
+    // Буфер, который разбирает главный поток; меняется местами с первым
+    private int[] drainNumbers = new int[INITIAL_CAPACITY];
+    private float[] drainVelocities = new float[INITIAL_CAPACITY];
+    private float[] drainEnergies = new float[INITIAL_CAPACITY];
+    private long[] drainTimes = new long[INITIAL_CAPACITY];
+
+    private boolean scheduled = false;
+
+    public synchronized boolean offer(int shotNumber, float velocity, float energy, long timeMillis) {
+        if (size == numbers.length) {
+            grow();
+        }
+        numbers[size] = shotNumber;
+        velocities[size] = velocity;
+        energies[size] = energy;
+        times[size] = timeMillis;
+        size++;
+
+        if (scheduled) {
+            return false;
+        }
+        scheduled = true;
+        return true;
+    }
+
+    public int drainTo(Sink sink) {
+        int count;
+        synchronized (this) {
+            int[] n = numbers;
+            float[] v = velocities;
+            float[] e = energies;
+            long[] t = times;
+            numbers = drainNumbers;
+            velocities = drainVelocities;
+            energies = drainEnergies;
+            times = drainTimes;
+            drainNumbers = n;
+            drainVelocities = v;
+            drainEnergies = e;
+            drainTimes = t;
+
+            count = size;
+            size = 0;
+            scheduled = false;
+        }
+
+        for (int i = 0; i < count; i++) {
+            sink.onShot(drainNumbers[i], drainVelocities[i], drainEnergies[i], drainTimes[i]);
+        }
+        return count;
+    }
+
+    private void grow() {
+        int capacity = numbers.length * 2;
+        int[] n = new int[capacity];
+        float[] v = new float[capacity];
+        float[] e = new float[capacity];
+        long[] t = new long[capacity];
+        System.arraycopy(numbers, 0, n, 0, size);
+        System.arraycopy(velocities, 0, v, 0, size);
+        System.arraycopy(energies, 0, e, 0, size);
+        System.arraycopy(times, 0, t, 0, size);
+        numbers = n;
+        velocities = v;
+        energies = e;
+        times = t;
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.chronographapp;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.TimeZone;
+
+/**
+ * Потоковый экспорт выстрелов из журнала сессии в файл.
+ *
+ * Журнал читается блоками, строки пишутся через буфер фиксированного размера,
+ * поэтому расход памяти не зависит от числа выстрелов. Доступны два формата:
+ * CSV для таблиц и компактный бинарный формат по столбцам.
+ *
+ * Бинарный формат (little-endian, чтобы читаться напрямую, например numpy.fromfile):
+ * заголовок {@value #COLUMNS_HEADER_SIZE} байт (сигнатура "CHRC", версия, число столбцов,
+ * число строк, резерв), затем подряд столбцы int32 номеров, float32 скоростей,
+ * float32 энергий и int64 времени в миллисекундах.
+ */
+public final class ShotExporter {
+
+    public enum Format {
+        CSV("csv", "text/csv"),
+        COLUMNS("chrc", "application/octet-stream");
+
+        private final String extension;
+        private final String mimeType;
+
+        Format(String extension, String mimeType) {
+            this.extension = extension;
+            this.mimeType = mimeType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public String getMimeType() {
+            return mimeType;
+        }
+    }
+
+    // "CHRC"
+    static final int COLUMNS_MAGIC = 0x43485243;
+    static final short COLUMNS_VERSION = 1;
+    static final int COLUMNS_HEADER_SIZE = 16;
+    static final int COLUMN_COUNT = 4;
+
+    static final String CSV_HEADER = "Номер;Время;Скорость (м/с);Энергия (Дж)\n";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ShotExporter() {
+    }
+
+    /**
+     * Экспортирует журнал в файл {@code target} в выбранном формате.
+     *
+     * @return число выгруженных выстрелов
+     */
+    public static int export(File journal, Format format, File target, char decimalSeparator)
+            throws IOException {
+        try (OutputStream output = new FileOutputStream(target)) {
+            if (format == Format.COLUMNS) {
+                return exportColumns(journal, output);
+            }
+            Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(output, StandardCharsets.UTF_8), BUFFER_SIZE);
+            int count = exportCsv(journal, writer, decimalSeparator, TimeZone.getDefault());
+            writer.flush();
+            return count;
+        }
+    }
+
+    /**
+     * Пишет CSV с разделителем ';' и локальным временем HH:mm:ss. Поток не закрывается.
+     */
+    public static int exportCsv(File journal, Writer out, char decimalSeparator, TimeZone zone)
+            throws IOException {
+        int limit = ShotJournal.recordCount(journal);
+        out.write(CSV_HEADER);
+        CsvRowWriter rows = new CsvRowWriter(out, decimalSeparator, zone);
+        return ShotJournal.read(journal, limit, rows);
+    }
+
+    /**
+     * Пишет бинарный формат по столбцам: по одному проходу журнала на столбец.
+     * Поток не закрывается.
+     */
+    public static int exportColumns(File journal, OutputStream out) throws IOException {
+        // Границу фиксируем заранее, чтобы все столбцы были одной длины
+        int limit = ShotJournal.recordCount(journal);
+
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(COLUMNS_MAGIC)
+                .putShort(COLUMNS_VERSION)
+                .putShort((short) COLUMN_COUNT)
+                .putInt(limit)
+                .putInt(0);
+
+        ColumnWriter columns = new ColumnWriter(buffer, out);
+        int count = 0;
+        for (int column = 0; column < COLUMN_COUNT; column++) {
+            columns.column = column;
+            count = ShotJournal.read(journal, limit, columns);
+            if (count != limit) {
+                throw new IOException("Журнал изменился во время экспорта: " + journal);
+            }
+        }
+        columns.drain();
+        out.flush();
+        return count;
+    }
+
+    private static final class CsvRowWriter implements ShotJournal.RecordVisitor {
+        private final Writer out;
+        private final char separator;
+        private final TimeZone zone;
+        private final char[] row = new char[4 * FixedPointFormat.MAX_LENGTH];
+
+        CsvRowWriter(Writer out, char separator, TimeZone zone) {
+            this.out = out;
+            this.separator = separator;
+            this.zone = zone;
+        }
+
+        @Override
+        public void onRecord(int shotNumber, float velocity, float energy, long timeMillis)
+                throws IOException {
+            int length = FixedPointFormat.formatLong(shotNumber, row, 0);
+            row[length++] = ';';
+            length = FixedPointFormat.formatTimeOfDay(timeMillis, zone, row, length);
+            row[length++] = ';';
+            length = FixedPointFormat.format(velocity, 1, separator, row, length);
+            row[length++] = ';';
+            length = FixedPointFormat.format(energy, 2, separator, row, length);
+            row[length++] = '\n';
+            out.write(row, 0, length);
+        }
+    }
+
+    private static final class ColumnWriter implements ShotJournal.RecordVisitor {
+        private final ByteBuffer buffer;
+        private final OutputStream out;
+        int column;
+
+        ColumnWriter(ByteBuffer buffer, OutputStream out) {
+            this.buffer = buffer;
+            this.out = out;
+        }
+
+        @Override
+        public void onRecord(int shotNumber, float velocity, float energy, long timeMillis)
+                throws IOException {
+            if (buffer.remaining() < 8) {
+                drain();
+            }
+            switch (column) {
+                case 0:
+                    buffer.putInt(shotNumber);
+                    break;
+                case 1:
+                    buffer.putFloat(velocity);
+                    break;
+                case 2:
+                    buffer.putFloat(energy);
+                    break;
+                default:
+                    buffer.putLong(timeMillis);
+                    break;
+            }
+        }
+
+        void drain() throws IOException {
+            out.write(buffer.array(), 0, buffer.position());
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,553 @@
+package com.example.chronographapp;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Потоковый разборщик кадров хронографа: текстовых и, по договоренности, двоичных.
+ *
+ * Arduino присылает каждый выстрел тремя строками:
+ * <pre>
+ * Shot #12
+ * Speed: 152.30
+ * Energy: 2.90
+ * </pre>
+ * Байты подаются кусками в том виде, в каком их вернул {@code InputStream.read},
+ * границы строк ищутся по мере поступления, а числа разбираются прямо из байтов
+ * без построения строк. Если в одном куске пришло несколько выстрелов, слушатель
+ * получит каждый из них. Класс не потокобезопасен: вызывать из одного потока.
+ *
+ * После команды {@link #BINARY_MODE_COMMAND} хронограф с новой прошивкой отвечает
+ * строкой {@code OK:BIN <частота, Гц> <база, мм>} и переходит на {@link BinaryShotFrame}.
+ * Разборщик переключается сразу за этой строкой, в том же куске. Старая прошивка
+ * команду не знает и продолжает слать текст, который разбирается как раньше.
+ * Если в двоичном режиме долго нет ни одного верного кадра (хронограф перезапустился
+ * и снова шлет текст), разборщик возвращается к тексту.
+ *
+ * Номера выстрелов хронографа идут подряд, поэтому разборщик следит за ними: пропуск
+ * номеров - потерянные выстрелы, повтор номера - дубликат, который слушатель не получит,
+ * номер 1 или откат назад - хронограф начал счет заново. Счетчики пишет только поток
+ * разбора, а читать их можно из любого потока.
+ */
+public class ShotFrameDecoder {
+
+    public interface Listener {
+        void onShot(int shotNumber, float velocity, float energy);
+    }
+
+    public interface AckListener {
+        /**
+         * @param command подтвержденная команда, строка {@code OK:<команда>} без префикса
+         */
+        void onAck(String command);
+    }
+
+    // Строки длиннее этого значения считаются мусором и отбрасываются
+    static final int MAX_LINE_LENGTH = 64;
+
+    /** Просит хронограф перейти на двоичные кадры */
+    public static final String BINARY_MODE_COMMAND = "MODE:BIN";
+    /** Возвращает хронограф к текстовым кадрам */
+    public static final String TEXT_MODE_COMMAND = "MODE:TXT";
+
+    // Столько байт подряд без верного двоичного кадра - и считаем, что хронограф снова шлет текст
+    static final int BINARY_FALLBACK_BYTES = 8 * BinaryShotFrame.LENGTH;
+
+    private static final byte[] SHOT_PREFIX = {'S', 'h', 'o', 't', ' ', '#'};
+    private static final byte[] SPEED_PREFIX = {'S', 'p', 'e', 'e', 'd', ':'};
+    private static final byte[] ENERGY_PREFIX = {'E', 'n', 'e', 'r', 'g', 'y', ':'};
+    private static final byte[] BINARY_ACK_PREFIX = {'O', 'K', ':', 'B', 'I', 'N'};
+    private static final byte[] ACK_PREFIX = {'O', 'K', ':'};
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9,
+            1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18
+    };
+
+    private final Listener listener;
+    private volatile AckListener ackListener;
+
+    // Хвост строки, не закончившейся в предыдущем куске
+    private final byte[] pending = new byte[MAX_LINE_LENGTH];
+    private int pendingLength = 0;
+    private boolean pendingOverflow = false;
+
+    // Состояние собираемого кадра
+    private boolean hasShotNumber = false;
+    private boolean hasVelocity = false;
+    private int shotNumber;
+    private float velocity;
+
+    // Двоичный режим: кадр, не поместившийся в кусок, и пересчет тактов в скорость
+    private boolean binaryMode = false;
+    private final byte[] frame = new byte[BinaryShotFrame.LENGTH];
+    private int frameLength = 0;
+    private int bytesWithoutFrame = 0;
+    private double velocityPerTick;
+    private volatile float massGrams;
+
+    // Последний номер выстрела в текущем соединении
+    private boolean hasLastShotNumber = false;
+    private int lastShotNumber;
+
+    // Счетчики
+    private volatile long decodedCount = 0;
+    private volatile long malformedCount = 0;
+    private volatile long crcErrorCount = 0;
+    private volatile long droppedCount = 0;
+    private volatile long duplicateCount = 0;
+    private volatile long sequenceResetCount = 0;
+
+    public ShotFrameDecoder(Listener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener == null");
+        }
+        this.listener = listener;
+    }
+
+    public void feed(byte[] buffer, int offset, int length) {
+        int end = offset + length;
+        while (offset < end) {
+            offset = binaryMode ? feedBinary(buffer, offset, end) : feedText(buffer, offset, end);
+        }
+    }
+
+    /**
+     * Получатель подтверждений команд ({@code OK:MASS:0.25}); они приходят и между
+     * двоичными кадрами.
+     */
+    public void setAckListener(AckListener ackListener) {
+        this.ackListener = ackListener;
+    }
+
+    /**
+     * Масса снаряда для энергии двоичных кадров: в них приходит только время пролета.
+     * Можно менять из любого потока.
+     */
+    public void setMassGrams(float massGrams) {
+        this.massGrams = massGrams;
+    }
+
+    /**
+     * Возвращает к тексту: после переподключения хронограф снова договаривается о режиме.
+     */
+    public void reset() {
+        pendingLength = 0;
+        pendingOverflow = false;
+        binaryMode = false;
+        frameLength = 0;
+        bytesWithoutFrame = 0;
+        hasLastShotNumber = false;
+        resetFrame();
+    }
+
+    public boolean isBinaryMode() {
+        return binaryMode;
+    }
+
+    public long getDecodedCount() {
+        return decodedCount;
+    }
+
+    public long getMalformedCount() {
+        return malformedCount;
+    }
+
+    /** Двоичные кадры, отброшенные из-за несовпадения CRC */
+    public long getCrcErrorCount() {
+        return crcErrorCount;
+    }
+
+    /** Выстрелы, номера которых пропущены в последовательности */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /** Повторно пришедшие выстрелы; слушателю они не передаются */
+    public long getDuplicateCount() {
+        return duplicateCount;
+    }
+
+    /** Сколько раз хронограф начинал нумерацию заново */
+    public long getSequenceResetCount() {
+        return sequenceResetCount;
+    }
+
+    /**
+     * Разбирает строки до конца куска или до ответа {@code OK:BIN}.
+     *
+     * @return смещение, с которого продолжать
+     */
+    private int feedText(byte[] buffer, int offset, int end) {
+        int lineStart = offset;
+
+        for (int i = offset; i < end; i++) {
+            if (buffer[i] != '\n') {
+                continue;
+            }
+
+            if (pendingLength == 0 && !pendingOverflow) {
+                // Строка целиком внутри куска - разбираем на месте
+                processLine(buffer, lineStart, i);
+            } else {
+                appendPending(buffer, lineStart, i);
+                if (pendingOverflow) {
+                    malformedCount++;
+                    resetFrame();
+                } else {
+                    processLine(pending, 0, pendingLength);
+                }
+                pendingLength = 0;
+                pendingOverflow = false;
+            }
+            lineStart = i + 1;
+            if (binaryMode) {
+                // Дальше в куске уже двоичные кадры
+                return lineStart;
+            }
+        }
+
+        if (lineStart < end) {
+            appendPending(buffer, lineStart, end);
+        }
+        return end;
+    }
+
+    /**
+     * Разбирает двоичные кадры до конца куска или до возврата к тексту. Кадр, целиком
+     * лежащий в куске, читается на месте; копируется только кадр на границе кусков.
+     *
+     * @return смещение, с которого продолжать
+     */
+    private int feedBinary(byte[] buffer, int offset, int end) {
+        int i = offset;
+        while (i < end) {
+            if (frameLength == 0) {
+                if (buffer[i] != BinaryShotFrame.SYNC) {
+                    collectSkippedByte(buffer[i]);
+                    i++;
+                    if (skipBytes(1)) {
+                        return i;
+                    }
+                    continue;
+                }
+                if (end - i >= BinaryShotFrame.LENGTH) {
+                    if (processFrame(buffer, i)) {
+                        i += BinaryShotFrame.LENGTH;
+                    } else {
+                        // Синхробайт был случайным: ищем следующий сразу за ним
+                        i++;
+                        if (skipBytes(1)) {
+                            return i;
+                        }
+                    }
+                    continue;
+                }
+            }
+
+            int count = Math.min(end - i, BinaryShotFrame.LENGTH - frameLength);
+            System.arraycopy(buffer, i, frame, frameLength, count);
+            frameLength += count;
+            i += count;
+            if (frameLength == BinaryShotFrame.LENGTH) {
+                if (processFrame(frame, 0)) {
+                    frameLength = 0;
+                } else if (resync()) {
+                    return i;
+                }
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Байты между двоичными кадрами собираются в строку: так доходят подтверждения команд.
+     */
+    private void collectSkippedByte(byte b) {
+        if (b == '\n') {
+            if (!pendingOverflow && isAck(pending, 0, pendingLength)) {
+                processLine(pending, 0, pendingLength);
+            }
+            pendingLength = 0;
+            pendingOverflow = false;
+        } else if (pendingLength < MAX_LINE_LENGTH) {
+            pending[pendingLength++] = b;
+        } else {
+            pendingOverflow = true;
+        }
+    }
+
+    private static boolean isAck(byte[] line, int from, int to) {
+        while (from < to && isWhitespace(line[from])) from++;
+        return startsWith(line, from, to, ACK_PREFIX);
+    }
+
+    /**
+     * Кадр на границе кусков не сошелся: сдвигаем начало к следующему синхробайту внутри него.
+     *
+     * @return true, если пора вернуться к тексту
+     */
+    private boolean resync() {
+        int next = 1;
+        while (next < frameLength && frame[next] != BinaryShotFrame.SYNC) {
+            next++;
+        }
+        System.arraycopy(frame, next, frame, 0, frameLength - next);
+        frameLength -= next;
+        return skipBytes(next);
+    }
+
+    private boolean skipBytes(int count) {
+        bytesWithoutFrame += count;
+        if (bytesWithoutFrame < BINARY_FALLBACK_BYTES) {
+            return false;
+        }
+        binaryMode = false;
+        frameLength = 0;
+        bytesWithoutFrame = 0;
+        return true;
+    }
+
+    /**
+     * @return false, если CRC не сошелся и кадра здесь нет
+     */
+    private boolean processFrame(byte[] data, int offset) {
+        if (!BinaryShotFrame.isValid(data, offset)) {
+            crcErrorCount++;
+            return false;
+        }
+        bytesWithoutFrame = 0;
+        long ticks = BinaryShotFrame.ticks(data, offset);
+        if (ticks == 0) {
+            malformedCount++;
+            return true;
+        }
+        float speed = (float) (velocityPerTick / ticks);
+        emitShot(BinaryShotFrame.sequence(data, offset), speed,
+                Ballistics.energyJoules(massGrams, speed));
+        return true;
+    }
+
+    private void emitShot(int number, float speed, float energy) {
+        if (!acceptShotNumber(number)) {
+            return;
+        }
+        decodedCount++;
+        listener.onShot(number, speed, energy);
+    }
+
+    /**
+     * Сверяет номер выстрела с предыдущим и обновляет счетчики потерь.
+     *
+     * @return false для дубликата
+     */
+    private boolean acceptShotNumber(int number) {
+        if (hasLastShotNumber) {
+            // Двоичный номер 16-битный и переполняется, текстовый растет без ограничений
+            int delta = binaryMode ? (short) (number - lastShotNumber) : number - lastShotNumber;
+            if (delta == 0) {
+                duplicateCount++;
+                return false;
+            }
+            if (delta != 1) {
+                if (delta < 0 || number <= 1) {
+                    sequenceResetCount++;
+                } else {
+                    droppedCount += delta - 1;
+                }
+            }
+        }
+        hasLastShotNumber = true;
+        lastShotNumber = number;
+        return true;
+    }
+
+    private void appendPending(byte[] buffer, int from, int to) {
+        int count = to - from;
+        if (pendingOverflow || pendingLength + count > MAX_LINE_LENGTH) {
+            pendingOverflow = true;
+            return;
+        }
+        System.arraycopy(buffer, from, pending, pendingLength, count);
+        pendingLength += count;
+    }
+
+    private void processLine(byte[] line, int from, int to) {
+        // Обрезаем пробелы и '\r' по краям
+        while (from < to && isWhitespace(line[from])) from++;
+        while (to > from && isWhitespace(line[to - 1])) to--;
+        if (from == to) {
+            return;
+        }
+
+        if (startsWith(line, from, to, SHOT_PREFIX)) {
+            long number = parseUnsignedInt(line, from + SHOT_PREFIX.length, to);
+            if (number < 0) {
+                onMalformed();
+                return;
+            }
+            if (hasShotNumber) {
+                // Предыдущий кадр так и не дошел до строки Energy
+                malformedCount++;
+            }
+            shotNumber = (int) number;
+            hasShotNumber = true;
+            hasVelocity = false;
+        } else if (startsWith(line, from, to, SPEED_PREFIX)) {
+            float value = parseDecimal(line, from + SPEED_PREFIX.length, to);
+            if (!hasShotNumber || Float.isNaN(value)) {
+                onMalformed();
+                return;
+            }
+            velocity = value;
+            hasVelocity = true;
+        } else if (startsWith(line, from, to, ENERGY_PREFIX)) {
+            float value = parseDecimal(line, from + ENERGY_PREFIX.length, to);
+            if (!hasVelocity || Float.isNaN(value)) {
+                onMalformed();
+                return;
+            }
+            int number = shotNumber;
+            float speed = velocity;
+            resetFrame();
+            emitShot(number, speed, value);
+        } else if (startsWith(line, from, to, BINARY_ACK_PREFIX)) {
+            onBinaryAck(line, from + BINARY_ACK_PREFIX.length, to);
+        } else if (startsWith(line, from, to, ACK_PREFIX)) {
+            AckListener acks = ackListener;
+            if (acks != null) {
+                // Подтверждения редки, строка здесь ничего не стоит
+                acks.onAck(new String(line, from + ACK_PREFIX.length, to - from - ACK_PREFIX.length,
+                        StandardCharsets.US_ASCII));
+            }
+        }
+        // Прочие строки (приветствие скетча и т.п.) пропускаем
+    }
+
+    /**
+     * Ответ на {@code MODE:BIN}: {@code OK:BIN <частота таймера, Гц> <база ворот, мм>}.
+     */
+    private void onBinaryAck(byte[] line, int from, int to) {
+        while (from < to && isWhitespace(line[from])) from++;
+        int split = from;
+        while (split < to && !isWhitespace(line[split])) split++;
+        long tickHz = parseUnsignedInt(line, from, split);
+        long baseMillimeters = parseUnsignedInt(line, split, to);
+        if (tickHz <= 0 || baseMillimeters <= 0) {
+            // Без калибровки такты не перевести в скорость: остаемся на тексте
+            malformedCount++;
+            return;
+        }
+        velocityPerTick = baseMillimeters / 1000.0 * tickHz;
+        resetFrame();
+        binaryMode = true;
+        frameLength = 0;
+        bytesWithoutFrame = 0;
+        AckListener acks = ackListener;
+        if (acks != null) {
+            // OK:BIN с калибровкой и есть подтверждение MODE:BIN
+            acks.onAck(BINARY_MODE_COMMAND);
+        }
+    }
+
+    private void onMalformed() {
+        malformedCount++;
+        resetFrame();
+    }
+
+    private void resetFrame() {
+        hasShotNumber = false;
+        hasVelocity = false;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private static boolean startsWith(byte[] line, int from, int to, byte[] prefix) {
+        if (to - from < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (line[from + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Разбирает неотрицательное целое. Возвращает -1, если в диапазоне не число.
+     */
+    static long parseUnsignedInt(byte[] line, int from, int to) {
+        while (from < to && isWhitespace(line[from])) from++;
+        if (from == to || to - from > 9) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = line[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Разбирает десятичное число вида [-]123.45. Возвращает NaN, если в диапазоне не число.
+     */
+    static float parseDecimal(byte[] line, int from, int to) {
+        while (from < to && isWhitespace(line[from])) from++;
+        if (from == to) {
+            return Float.NaN;
+        }
+
+        boolean negative = false;
+        if (line[from] == '-' || line[from] == '+') {
+            negative = line[from] == '-';
+            from++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int fractionDigits = 0;
+        int droppedIntegerDigits = 0;
+        boolean seenDigit = false;
+        boolean seenPoint = false;
+
+        for (int i = from; i < to; i++) {
+            byte b = line[i];
+            if (b == '.') {
+                if (seenPoint) {
+                    return Float.NaN;
+                }
+                seenPoint = true;
+                continue;
+            }
+            int digit = b - '0';
+            if (digit < 0 || digit > 9) {
+                return Float.NaN;
+            }
+            seenDigit = true;
+            if (significantDigits < 18 && fractionDigits < 18) {
+                mantissa = mantissa * 10 + digit;
+                if (mantissa != 0) significantDigits++;
+                if (seenPoint) fractionDigits++;
+            } else if (!seenPoint) {
+                droppedIntegerDigits++;
+            }
+        }
+
+        if (!seenDigit) {
+            return Float.NaN;
+        }
+
+        double value = mantissa;
+        if (droppedIntegerDigits > 0) {
+            value *= Math.pow(10, droppedIntegerDigits);
+        }
+        value /= POWERS_OF_TEN[fractionDigits];
+        return (float) (negative ? -value : value);
+    }
+}
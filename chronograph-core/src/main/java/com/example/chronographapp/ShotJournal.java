@@ -0,0 +1,465 @@
+package com.example.chronographapp;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Журнал выстрелов текущей сессии: бинарный файл только на дописывание.
+ *
+ * Формат: заголовок {@value #HEADER_SIZE} байт (сигнатура, версия, размер записи,
+ * время создания) и записи фиксированного размера {@value #RECORD_SIZE} байт
+ * (номер, скорость, энергия, время). Записи копятся в буфере и раз в
+ * {@code syncInterval} выстрелов уходят на диск с {@code force()} в отдельном потоке,
+ * поэтому при гибели процесса теряется не больше {@code syncInterval} выстрелов.
+ * Методы изменения вызываются с одного потока в том же порядке, что и изменения
+ * {@link ShotStore}.
+ */
+public class ShotJournal implements Closeable {
+
+    public interface ErrorListener {
+        void onJournalError(IOException e);
+    }
+
+    public interface RecordVisitor {
+        void onRecord(int shotNumber, float velocity, float energy, long timeMillis)
+                throws IOException;
+    }
+
+    // "CHRJ"
+    static final int MAGIC = 0x4348524A;
+    public static final short VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 20;
+    // Размер блока потокового чтения: целое число записей, около 64 КБ
+    static final int READ_CHUNK_RECORDS = 3276;
+    static final String TEMP_SUFFIX = ".tmp";
+    static final String BAD_SUFFIX = ".bad";
+
+    private final File file;
+    private final int syncInterval;
+    // Меняется при подмене файла, поэтому трогается только потоком записи и в close()
+    private FileChannel channel;
+    private final ErrorListener errorListener;
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "shot-journal");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Буферы, которые поток записи уже вернул
+    private final ArrayDeque<ByteBuffer> spareBuffers = new ArrayDeque<>();
+    private ByteBuffer pending;
+    private int pendingRecords = 0;
+
+    private ShotJournal(File file, FileChannel channel, int syncInterval,
+                        ErrorListener errorListener) {
+        this.file = file;
+        this.channel = channel;
+        this.syncInterval = syncInterval;
+        this.errorListener = errorListener;
+        this.pending = ByteBuffer.allocate(syncInterval * RECORD_SIZE);
+    }
+
+    /**
+     * Открывает журнал на дописывание. Файл с чужим или поврежденным заголовком, например
+     * от более новой версии, не затирается, а откладывается в {@code <имя>.bad}, и журнал
+     * начинается заново. Недописанная последняя запись отрезается.
+     */
+    public static ShotJournal open(File file, int syncInterval, ErrorListener errorListener)
+            throws IOException {
+        if (syncInterval <= 0) {
+            throw new IllegalArgumentException("syncInterval <= 0: " + syncInterval);
+        }
+        if (file.length() >= HEADER_SIZE && !hasValidHeader(file)) {
+            setAside(file);
+        }
+
+        FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+        try {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                // Новый файл или заголовок, не дописанный при создании
+                channel.truncate(0);
+                writeHeader(channel);
+            } else {
+                long records = (size - HEADER_SIZE) / RECORD_SIZE;
+                channel.truncate(HEADER_SIZE + records * RECORD_SIZE);
+            }
+            channel.position(channel.size());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new ShotJournal(file, channel, syncInterval, errorListener);
+    }
+
+    /**
+     * Откладывает журнал, который не удалось прочитать, в {@code <имя>.bad}: следующий
+     * {@link #open} начнет файл заново, а выстрелы останутся на диске для разбора.
+     * Прежний отложенный файл заменяется.
+     */
+    public static void setAside(File file) throws IOException {
+        if (file.exists() && !file.renameTo(new File(file.getPath() + BAD_SUFFIX))) {
+            throw new IOException("Не удалось отложить журнал " + file);
+        }
+    }
+
+    /**
+     * Читает журнал одним последовательным чтением и дописывает выстрелы в {@code store}.
+     *
+     * @return число загруженных выстрелов
+     */
+    public static int load(File file, ShotStore store) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+
+        try (FileInputStream input = new FileInputStream(file);
+             FileChannel channel = input.getChannel()) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                return 0;
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Журнал слишком большой: " + size + " байт");
+            }
+
+            ByteBuffer data = ByteBuffer.allocate((int) size);
+            while (data.hasRemaining() && channel.read(data) >= 0) {
+                // читаем до конца файла
+            }
+            data.flip();
+
+            if (!isHeaderValid(data)) {
+                throw new IOException("Неизвестный формат журнала " + file);
+            }
+            data.position(HEADER_SIZE);
+
+            int count = data.remaining() / RECORD_SIZE;
+            store.ensureCapacity(store.size() + count);
+            for (int i = 0; i < count; i++) {
+                store.add(data.getInt(), data.getFloat(), data.getFloat(), data.getLong());
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Проходит по записям журнала блоками фиксированного размера, не загружая файл
+     * целиком. Недописанная последняя запись пропускается.
+     *
+     * @return число прочитанных записей
+     */
+    public static int read(File file, RecordVisitor visitor) throws IOException {
+        return read(file, Integer.MAX_VALUE, visitor);
+    }
+
+    /**
+     * То же, что {@link #read(File, RecordVisitor)}, но не больше {@code limit} записей:
+     * так журнал, в который еще дописывают, читается до заранее известной границы.
+     */
+    public static int read(File file, int limit, RecordVisitor visitor) throws IOException {
+        return read(file, 0, limit, visitor);
+    }
+
+    /**
+     * Читает не больше {@code limit} записей, начиная с записи {@code from}:
+     * так загружается одна страница длинного журнала.
+     */
+    public static int read(File file, int from, int limit, RecordVisitor visitor)
+            throws IOException {
+        if (from < 0) {
+            throw new IllegalArgumentException("from < 0: " + from);
+        }
+        if (!file.exists()) {
+            return 0;
+        }
+
+        try (FileInputStream input = new FileInputStream(file);
+             FileChannel channel = input.getChannel()) {
+            if (channel.size() < HEADER_SIZE) {
+                return 0;
+            }
+            if (!isHeaderValid(readHeader(channel))) {
+                throw new IOException("Неизвестный формат журнала " + file);
+            }
+
+            ByteBuffer chunk = ByteBuffer.allocate(
+                    Math.min(READ_CHUNK_RECORDS, Math.max(limit, 1)) * RECORD_SIZE);
+            int count = 0;
+            channel.position(HEADER_SIZE + (long) from * RECORD_SIZE);
+            boolean endOfFile = false;
+            while (!endOfFile) {
+                endOfFile = channel.read(chunk) < 0;
+                chunk.flip();
+                int records = Math.min(chunk.remaining() / RECORD_SIZE, limit - count);
+                for (int i = 0; i < records; i++) {
+                    visitor.onRecord(chunk.getInt(), chunk.getFloat(), chunk.getFloat(),
+                            chunk.getLong());
+                }
+                count += records;
+                if (count == limit) {
+                    break;
+                }
+                // Неполная запись ждет следующего чтения, в конце файла отбрасывается
+                chunk.compact();
+            }
+            return count;
+        }
+    }
+
+    /**
+     * @return число целых записей в файле журнала
+     */
+    public static int recordCount(File file) {
+        long length = file.length();
+        return length < HEADER_SIZE ? 0
+                : (int) Math.min(Integer.MAX_VALUE, (length - HEADER_SIZE) / RECORD_SIZE);
+    }
+
+    public synchronized void append(int shotNumber, float velocity, float energy, long timeMillis) {
+        pending.putInt(shotNumber)
+                .putFloat(velocity)
+                .putFloat(energy)
+                .putLong(timeMillis);
+        if (++pendingRecords >= syncInterval) {
+            flush();
+        }
+    }
+
+    /**
+     * Отдает накопленные записи потоку записи, не дожидаясь {@code syncInterval}.
+     */
+    public synchronized void flush() {
+        if (pendingRecords == 0) {
+            return;
+        }
+
+        ByteBuffer batch = pending;
+        pending = takeSpareBuffer();
+        pendingRecords = 0;
+        batch.flip();
+
+        ioExecutor.execute(() -> {
+            try {
+                writeFully(batch);
+                channel.force(false);
+            } catch (IOException e) {
+                onError(e);
+            } finally {
+                recycle(batch);
+            }
+        });
+    }
+
+    /**
+     * Отдает накопленные записи потоку записи.
+     *
+     * @return завершается, когда все изменения, сделанные до вызова, лежат на диске
+     */
+    public synchronized Future<?> sync() {
+        flush();
+        return ioExecutor.submit(() -> { });
+    }
+
+    /**
+     * Убирает запись номер {@code index}, например после удаления выстрела. Журнал
+     * копируется без нее во временный файл на потоке записи и подменяет старый
+     * переименованием, поэтому после гибели процесса на диске остается либо старый
+     * журнал, либо новый целиком.
+     */
+    public synchronized void removeRecord(int index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("index < 0: " + index);
+        }
+        flush();
+
+        ioExecutor.execute(() -> {
+            try {
+                replaceWithout(index);
+            } catch (IOException e) {
+                onError(e);
+            }
+        });
+    }
+
+    /**
+     * Пересчитывает энергию всех записей по новой массе на потоке записи. Записи,
+     * поставленные в очередь раньше, успеют попасть на диск и тоже будут пересчитаны.
+     */
+    public synchronized void recomputeEnergies(float massGrams) {
+        flush();
+
+        ioExecutor.execute(() -> {
+            try {
+                long end = channel.size();
+                ByteBuffer chunk = ByteBuffer.allocate(READ_CHUNK_RECORDS * RECORD_SIZE);
+                for (long position = HEADER_SIZE; position < end; position += chunk.limit()) {
+                    chunk.clear();
+                    chunk.limit((int) Math.min(chunk.capacity(), end - position));
+                    while (chunk.hasRemaining()
+                            && channel.read(chunk, position + chunk.position()) >= 0) {
+                        // читаем блок целиком
+                    }
+                    chunk.flip();
+                    if (!chunk.hasRemaining()) {
+                        break;
+                    }
+                    // Запись: номер (4), скорость (4), энергия (4), время (8)
+                    for (int offset = 0; offset + RECORD_SIZE <= chunk.limit(); offset += RECORD_SIZE) {
+                        chunk.putFloat(offset + 8,
+                                Ballistics.energyJoules(massGrams, chunk.getFloat(offset + 4)));
+                    }
+                    while (chunk.hasRemaining()) {
+                        channel.write(chunk, position + chunk.position());
+                    }
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                onError(e);
+            }
+        });
+    }
+
+    /**
+     * Очищает журнал, оставляя только заголовок.
+     */
+    public synchronized void reset() {
+        pending.clear();
+        pendingRecords = 0;
+
+        ioExecutor.execute(() -> {
+            try {
+                channel.truncate(HEADER_SIZE);
+                channel.position(HEADER_SIZE);
+                channel.force(false);
+            } catch (IOException e) {
+                onError(e);
+            }
+        });
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        ioExecutor.shutdown();
+        try {
+            ioExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    private ByteBuffer takeSpareBuffer() {
+        synchronized (spareBuffers) {
+            ByteBuffer buffer = spareBuffers.pollFirst();
+            if (buffer != null) {
+                return buffer;
+            }
+        }
+        return ByteBuffer.allocate(syncInterval * RECORD_SIZE);
+    }
+
+    private void recycle(ByteBuffer buffer) {
+        buffer.clear();
+        synchronized (spareBuffers) {
+            spareBuffers.addLast(buffer);
+        }
+    }
+
+    private void replaceWithout(int index) throws IOException {
+        long start = HEADER_SIZE + (long) index * RECORD_SIZE;
+        long end = channel.size();
+        if (start + RECORD_SIZE > end) {
+            throw new IOException("Записи " + index + " нет в журнале " + file);
+        }
+
+        File temp = new File(file.getPath() + TEMP_SUFFIX);
+        try (RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+             FileChannel target = raf.getChannel()) {
+            target.truncate(0);
+            // Заголовок и записи до удаляемой, затем все после нее
+            transferFully(0, start, target);
+            transferFully(start + RECORD_SIZE, end - start - RECORD_SIZE, target);
+            target.force(false);
+        }
+
+        channel.close();
+        boolean renamed = temp.renameTo(file);
+        // Дописывание продолжается в тот файл, что лежит на месте журнала
+        channel = new RandomAccessFile(file, "rw").getChannel();
+        channel.position(channel.size());
+        if (!renamed) {
+            temp.delete();
+            throw new IOException("Не удалось заменить журнал " + file);
+        }
+    }
+
+    private void transferFully(long position, long count, FileChannel target) throws IOException {
+        long done = 0;
+        while (done < count) {
+            done += channel.transferTo(position + done, count - done, target);
+        }
+    }
+
+    private void writeFully(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+
+    private void onError(IOException e) {
+        if (errorListener != null) {
+            errorListener.onJournalError(e);
+        }
+    }
+
+    private static boolean hasValidHeader(File file) throws IOException {
+        try (FileInputStream input = new FileInputStream(file);
+             FileChannel channel = input.getChannel()) {
+            return isHeaderValid(readHeader(channel));
+        }
+    }
+
+    private static ByteBuffer readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.position(0);
+        while (header.hasRemaining() && channel.read(header) >= 0) {
+            // читаем заголовок целиком
+        }
+        header.flip();
+        return header;
+    }
+
+    private static boolean isHeaderValid(ByteBuffer header) {
+        return header.remaining() >= HEADER_SIZE
+                && header.getInt(0) == MAGIC
+                && header.getShort(4) == VERSION
+                && header.getShort(6) == RECORD_SIZE;
+    }
+
+    private static void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC)
+                .putShort(VERSION)
+                .putShort((short) RECORD_SIZE)
+                .putLong(System.currentTimeMillis());
+        header.flip();
+        channel.position(0);
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        channel.force(false);
+    }
+}
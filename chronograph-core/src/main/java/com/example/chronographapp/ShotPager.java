@@ -0,0 +1,259 @@
+package com.example.chronographapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Постраничное чтение длинного журнала сессии для списка истории.
+ *
+ * Журнал не загружается целиком: страницы по {@link #PAGE_SIZE} выстрелов читаются
+ * позиционно в фоне, когда до них доходит прокрутка, а соседние страницы подгружаются
+ * заранее. В памяти держится не больше {@code maxPages} страниц, давно не использованные
+ * вытесняются (LRU). Поэтому открытие архива на 100 и на 1 000 000 выстрелов стоит
+ * одинаково - одна страница.
+ *
+ * Страница, которую не удалось прочитать, запоминается и больше не запрашивается ни при
+ * привязке строк, ни предзагрузкой - иначе каждая прокрутка заново читала бы испорченный
+ * участок и снова сообщала об ошибке. Повторить чтение можно явно, {@link #retryFailed()}.
+ *
+ * Все методы, кроме загрузки, вызываются на одном потоке (главном); готовые страницы
+ * возвращаются на него через {@code deliveryExecutor}.
+ */
+public class ShotPager {
+
+    public static final int PAGE_SIZE = 256;
+    public static final int MAX_PAGES = 16;
+
+    public interface Listener {
+        /**
+         * Страница загружена, строки {@code [firstPosition, firstPosition + count)}
+         * можно перепривязать.
+         */
+        void onPageLoaded(int firstPosition, int count);
+
+        void onPageFailed(int firstPosition, IOException e);
+    }
+
+    private final File journal;
+    private final int count;
+    private final int pageSize;
+    // За сколько строк до края страницы начинать грузить соседнюю
+    private final int prefetchDistance;
+    private final Executor loadExecutor;
+    private final Executor deliveryExecutor;
+    private final Listener listener;
+
+    private final LinkedHashMap<Integer, ShotStore> pages;
+    private final Set<Integer> loading = new HashSet<>();
+    private final Set<Integer> failed = new HashSet<>();
+    private final PageCursor cursor = new PageCursor();
+    private boolean closed;
+
+    public ShotPager(File journal, int count, Executor loadExecutor, Executor deliveryExecutor,
+                     Listener listener) {
+        this(journal, count, PAGE_SIZE, MAX_PAGES, loadExecutor, deliveryExecutor, listener);
+    }
+
+    /**
+     * @param count число выстрелов в журнале, см. {@link ShotJournal#recordCount(File)}
+     */
+    public ShotPager(File journal, int count, int pageSize, int maxPages, Executor loadExecutor,
+                     Executor deliveryExecutor, Listener listener) {
+        if (count < 0 || pageSize <= 0 || maxPages < 3) {
+            // Меньше трех страниц не вмещают текущую и обе соседние
+            throw new IllegalArgumentException("count=" + count + ", pageSize=" + pageSize
+                    + ", maxPages=" + maxPages);
+        }
+        this.journal = journal;
+        this.count = count;
+        this.pageSize = pageSize;
+        this.prefetchDistance = Math.max(1, pageSize / 2);
+        this.loadExecutor = loadExecutor;
+        this.deliveryExecutor = deliveryExecutor;
+        this.listener = listener;
+        // Порядок доступа: первой вытесняется страница, которую дольше всех не читали
+        this.pages = new LinkedHashMap<Integer, ShotStore>(maxPages + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, ShotStore> eldest) {
+                return size() > maxPages;
+            }
+        };
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Возвращает курсор на строке {@code position}, если ее страница уже в памяти,
+     * и заодно запрашивает страницы, к которым приближается прокрутка.
+     *
+     * @return курсор или {@code null}, пока страница грузится
+     */
+    public ShotCursor get(int position) {
+        if (position < 0 || position >= count) {
+            throw new IndexOutOfBoundsException("position=" + position + ", count=" + count);
+        }
+        prefetch(position - prefetchDistance);
+        prefetch(position + prefetchDistance);
+
+        int page = position / pageSize;
+        ShotStore store = pages.get(page);
+        if (store == null) {
+            request(page);
+            return null;
+        }
+        return cursor.moveTo(store, page * pageSize, position);
+    }
+
+    public boolean isLoaded(int position) {
+        return pages.containsKey(position / pageSize);
+    }
+
+    public int getLoadedPageCount() {
+        return pages.size();
+    }
+
+    /**
+     * @return {@code true}, если страницу строки не удалось прочитать и она ждет повтора
+     */
+    public boolean isFailed(int position) {
+        return failed.contains(position / pageSize);
+    }
+
+    /**
+     * Заново запрашивает страницы, которые не удалось прочитать, например по обновлению экрана.
+     *
+     * @return сколько страниц запрошено
+     */
+    public int retryFailed() {
+        Integer[] retry = failed.toArray(new Integer[0]);
+        failed.clear();
+        for (int page : retry) {
+            request(page);
+        }
+        return retry.length;
+    }
+
+    /**
+     * Сбрасывает страницы и перестает принимать загрузки. Уже запущенные чтения
+     * доработают, но их результат будет отброшен.
+     */
+    public void close() {
+        closed = true;
+        pages.clear();
+        loading.clear();
+        failed.clear();
+    }
+
+    private void prefetch(int position) {
+        if (position >= 0 && position < count) {
+            int page = position / pageSize;
+            // containsKey не меняет порядок LRU, предзагрузка не продлевает жизнь страницам
+            if (!pages.containsKey(page)) {
+                request(page);
+            }
+        }
+    }
+
+    private void request(int page) {
+        if (closed || failed.contains(page) || !loading.add(page)) {
+            return;
+        }
+        int first = page * pageSize;
+        int size = Math.min(pageSize, count - first);
+
+        loadExecutor.execute(() -> {
+            ShotStore store = new ShotStore();
+            store.ensureCapacity(size);
+            try {
+                ShotJournal.read(journal, first, size, store::add);
+                deliveryExecutor.execute(() -> onLoaded(page, store));
+            } catch (IOException e) {
+                deliveryExecutor.execute(() -> onFailed(page, e));
+            }
+        });
+    }
+
+    private void onLoaded(int page, ShotStore store) {
+        if (closed || !loading.remove(page)) {
+            return;
+        }
+        if (store.isEmpty()) {
+            // Хвост журнала оборван - показывать нечего
+            failed.add(page);
+            listener.onPageFailed(page * pageSize, new IOException("Страница " + page + " пуста"));
+            return;
+        }
+        pages.put(page, store);
+        listener.onPageLoaded(page * pageSize, store.size());
+    }
+
+    private void onFailed(int page, IOException e) {
+        if (closed || !loading.remove(page)) {
+            return;
+        }
+        failed.add(page);
+        listener.onPageFailed(page * pageSize, e);
+    }
+
+    /**
+     * Курсор по загруженной странице с позициями всего журнала.
+     */
+    private final class PageCursor implements ShotCursor {
+        private ShotStore page;
+        private int first;
+        private int position;
+
+        ShotCursor moveTo(ShotStore page, int first, int position) {
+            this.page = page;
+            this.first = first;
+            this.position = position;
+            return this;
+        }
+
+        @Override
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public ShotCursor moveTo(int position) {
+            ShotCursor shot = get(position);
+            if (shot == null) {
+                throw new IllegalStateException("Страница строки " + position + " не загружена");
+            }
+            return shot;
+        }
+
+        @Override
+        public int getPosition() {
+            return position;
+        }
+
+        @Override
+        public int shotNumber() {
+            return page.getShotNumber(position - first);
+        }
+
+        @Override
+        public float velocity() {
+            return page.getVelocity(position - first);
+        }
+
+        @Override
+        public float energy() {
+            return page.getEnergy(position - first);
+        }
+
+        @Override
+        public long timeMillis() {
+            return page.getTimeMillis(position - first);
+        }
+    }
+}
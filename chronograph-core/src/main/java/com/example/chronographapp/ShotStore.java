@@ -0,0 +1,341 @@
+package com.example.chronographapp;
+
+/**
+ * История выстрелов в виде параллельных примитивных колонок.
+ *
+ * Номер, скорость, энергия и время выстрела лежат в {@code int[]/float[]/float[]/long[]}
+ * без упаковки в объекты. Без ограничения массивы растут удвоением; с ограничением
+ * {@code maxSize} хранилище работает как кольцевой буфер и вытесняет самые старые записи.
+ * Индексы во всех методах логические: 0 - самый старый выстрел. Не потокобезопасно.
+ *
+ * {@link #snapshot()} отдает снимок без копирования: колонки общие, пока одно из
+ * хранилищ не начнет менять строки, видимые другому, - тогда оно сначала копирует их.
+ */
+public class ShotStore {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int maxSize;
+
+    private int[] shotNumbers;
+    private float[] velocities;
+    private float[] energies;
+    private long[] timestamps;
+
+    // Физический индекс самого старого выстрела
+    private int head = 0;
+    private int size = 0;
+
+    // Колонки видны снимку: удаление, замена энергий и вытеснение сначала их копируют
+    private boolean shared;
+    // Это снимок: хвост колонок принадлежит исходному хранилищу, копируем перед любым изменением
+    private boolean snapshot;
+
+    public ShotStore() {
+        this(0);
+    }
+
+    // Снимок делит колонки с исходным хранилищем и копирует их при первом изменении
+    private ShotStore(ShotStore source) {
+        maxSize = source.maxSize;
+        shotNumbers = source.shotNumbers;
+        velocities = source.velocities;
+        energies = source.energies;
+        timestamps = source.timestamps;
+        head = source.head;
+        size = source.size;
+        snapshot = true;
+    }
+
+    /**
+     * @param maxSize максимальное число хранимых выстрелов, 0 - без ограничения
+     */
+    public ShotStore(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize < 0: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        int capacity = maxSize > 0 ? Math.min(INITIAL_CAPACITY, maxSize) : INITIAL_CAPACITY;
+        shotNumbers = new int[capacity];
+        velocities = new float[capacity];
+        energies = new float[capacity];
+        timestamps = new long[capacity];
+    }
+
+    /**
+     * Оборачивает готовые колонки без копирования. Массивы переходят во владение хранилища.
+     */
+    public static ShotStore wrap(int[] shotNumbers, float[] velocities, float[] energies,
+                                 long[] timestamps) {
+        int length = velocities.length;
+        if (shotNumbers.length != length || energies.length != length
+                || timestamps.length != length) {
+            throw new IllegalArgumentException("Колонки разной длины");
+        }
+        ShotStore store = new ShotStore();
+        if (length > 0) {
+            store.shotNumbers = shotNumbers;
+            store.velocities = velocities;
+            store.energies = energies;
+            store.timestamps = timestamps;
+            store.size = length;
+        }
+        return store;
+    }
+
+    public void add(int shotNumber, float velocity, float energy, long timeMillis) {
+        if (snapshot || (shared && maxSize > 0 && size == maxSize)) {
+            unshare();
+        }
+        if (maxSize > 0 && size == maxSize) {
+            // Вытесняем самый старый выстрел
+            head = physical(1);
+            size--;
+        }
+        if (size == velocities.length) {
+            resize(nextCapacity(velocities.length * 2));
+        }
+
+        int index = physical(size);
+        shotNumbers[index] = shotNumber;
+        velocities[index] = velocity;
+        energies[index] = energy;
+        timestamps[index] = timeMillis;
+        size++;
+    }
+
+    /**
+     * @return новый курсор для чтения без создания объекта на выстрел
+     */
+    public ShotCursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Снимок текущего содержимого за O(1). Дописывание в это хранилище снимок не меняет,
+     * поэтому его можно читать с другого потока, пока сюда дописывают выстрелы; остальные
+     * изменения сначала копируют колонки. Изменения снимка на хранилище не влияют.
+     */
+    public ShotStore snapshot() {
+        ShotStore snapshot = new ShotStore(this);
+        shared = true;
+        return snapshot;
+    }
+
+    /**
+     * @return независимая копия без ограничения размера, колонки уложены с нуля
+     */
+    public ShotStore copy() {
+        ShotStore copy = new ShotStore();
+        copy.appendFrom(this, 0);
+        return copy;
+    }
+
+    /**
+     * Дописывает в конец выстрелы {@code source} начиная с индекса {@code from}.
+     */
+    public void appendFrom(ShotStore source, int from) {
+        int count = source.size - from;
+        if (count <= 0) {
+            return;
+        }
+        ensureCapacity(size + count);
+        for (int i = from; i < source.size; i++) {
+            int index = source.physical(i);
+            add(source.shotNumbers[index], source.velocities[index], source.energies[index],
+                    source.timestamps[index]);
+        }
+    }
+
+    /**
+     * Заранее выделяет место под {@code capacity} выстрелов, чтобы массовая загрузка
+     * не перекладывала колонки на каждом удвоении.
+     */
+    public void ensureCapacity(int capacity) {
+        capacity = nextCapacity(capacity);
+        if (capacity > velocities.length) {
+            resize(capacity);
+        }
+    }
+
+    /**
+     * @return скорости всех выстрелов от старого к новому; массив принадлежит вызывающему
+     */
+    public float[] copyVelocities() {
+        float[] copy = new float[size];
+        int firstPart = Math.min(size, velocities.length - head);
+        System.arraycopy(velocities, head, copy, 0, firstPart);
+        System.arraycopy(velocities, 0, copy, firstPart, size - firstPart);
+        return copy;
+    }
+
+    /**
+     * Заменяет энергии первых {@code count} выстрелов, например после пересчета по новой массе.
+     */
+    public void setEnergies(float[] source, int count) {
+        if (count < 0 || count > size || count > source.length) {
+            throw new IndexOutOfBoundsException("count " + count + ", size " + size);
+        }
+        unshare();
+        int firstPart = Math.min(count, energies.length - head);
+        System.arraycopy(source, 0, energies, head, firstPart);
+        System.arraycopy(source, firstPart, energies, 0, count - firstPart);
+    }
+
+    public void remove(int index) {
+        checkIndex(index);
+        unshare();
+        // Сдвигаем хвост на одну позицию к голове
+        for (int i = index; i < size - 1; i++) {
+            int to = physical(i);
+            int from = physical(i + 1);
+            shotNumbers[to] = shotNumbers[from];
+            velocities[to] = velocities[from];
+            energies[to] = energies[from];
+            timestamps[to] = timestamps[from];
+        }
+        size--;
+    }
+
+    public void clear() {
+        if (shared || snapshot) {
+            // Старые колонки остаются снимку, копировать их незачем
+            int capacity = nextCapacity(INITIAL_CAPACITY);
+            shotNumbers = new int[capacity];
+            velocities = new float[capacity];
+            energies = new float[capacity];
+            timestamps = new long[capacity];
+            shared = false;
+            snapshot = false;
+        }
+        head = 0;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getShotNumber(int index) {
+        checkIndex(index);
+        return shotNumbers[physical(index)];
+    }
+
+    public float getVelocity(int index) {
+        checkIndex(index);
+        return velocities[physical(index)];
+    }
+
+    public float getEnergy(int index) {
+        checkIndex(index);
+        return energies[physical(index)];
+    }
+
+    public long getTimeMillis(int index) {
+        checkIndex(index);
+        return timestamps[physical(index)];
+    }
+
+    private final class Cursor implements ShotCursor {
+        private int position = -1;
+        private int index;
+
+        @Override
+        public int getCount() {
+            return size;
+        }
+
+        @Override
+        public ShotCursor moveTo(int position) {
+            checkIndex(position);
+            this.position = position;
+            this.index = physical(position);
+            return this;
+        }
+
+        @Override
+        public int getPosition() {
+            return position;
+        }
+
+        @Override
+        public int shotNumber() {
+            return shotNumbers[index];
+        }
+
+        @Override
+        public float velocity() {
+            return velocities[index];
+        }
+
+        @Override
+        public float energy() {
+            return energies[index];
+        }
+
+        @Override
+        public long timeMillis() {
+            return timestamps[index];
+        }
+    }
+
+    private void unshare() {
+        if (shared || snapshot) {
+            resize(velocities.length);
+        }
+    }
+
+    private int physical(int index) {
+        int position = head + index;
+        int capacity = velocities.length;
+        return position >= capacity ? position - capacity : position;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+    }
+
+    private int nextCapacity(int capacity) {
+        return maxSize > 0 ? Math.min(capacity, maxSize) : capacity;
+    }
+
+    private void resize(int capacity) {
+        int[] newNumbers = new int[capacity];
+        float[] newVelocities = new float[capacity];
+        float[] newEnergies = new float[capacity];
+        long[] newTimestamps = new long[capacity];
+
+        // Раскладываем кольцо в линейный порядок
+        int firstPart = Math.min(size, velocities.length - head);
+        System.arraycopy(shotNumbers, head, newNumbers, 0, firstPart);
+        System.arraycopy(velocities, head, newVelocities, 0, firstPart);
+        System.arraycopy(energies, head, newEnergies, 0, firstPart);
+        System.arraycopy(timestamps, head, newTimestamps, 0, firstPart);
+        int secondPart = size - firstPart;
+        if (secondPart > 0) {
+            System.arraycopy(shotNumbers, 0, newNumbers, firstPart, secondPart);
+            System.arraycopy(velocities, 0, newVelocities, firstPart, secondPart);
+            System.arraycopy(energies, 0, newEnergies, firstPart, secondPart);
+            System.arraycopy(timestamps, 0, newTimestamps, firstPart, secondPart);
+        }
+
+        shotNumbers = newNumbers;
+        velocities = newVelocities;
+        energies = newEnergies;
+        timestamps = newTimestamps;
+        head = 0;
+        // Новые колонки принадлежат только этому хранилищу
+        shared = false;
+        snapshot = false;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.chronographapp;
+
+import java.util.TimeZone;
+
+/**
+ * Потокобезопасное форматирование времени выстрела в {@code HH:mm:ss}.
+ *
+ * Выстрелы одной очереди обычно попадают в одну секунду, поэтому последняя
+ * отформатированная секунда запоминается и ее строка отдается повторно. Новая строка
+ * создается только при смене секунды; {@link java.text.SimpleDateFormat} не нужен вовсе.
+ */
+public final class ShotTimeFormatter {
+
+    private static final ShotTimeFormatter DEFAULT = new ShotTimeFormatter(TimeZone.getDefault());
+
+    // Неизменяемая пара "секунда - строка": публикуется одной записью volatile-поля
+    private static final class Entry {
+        final long second;
+        final String text;
+
+        Entry(long second, String text) {
+            this.second = second;
+            this.text = text;
+        }
+    }
+
+    private final TimeZone zone;
+    private volatile Entry last = new Entry(Long.MIN_VALUE, "");
+
+    public ShotTimeFormatter(TimeZone zone) {
+        this.zone = zone;
+    }
+
+    /**
+     * @return общий форматтер в часовом поясе устройства на момент запуска
+     */
+    public static ShotTimeFormatter getDefault() {
+        return DEFAULT;
+    }
+
+    public String format(long timeMillis) {
+        long second = Math.floorDiv(timeMillis, 1000L);
+        Entry entry = last;
+        if (entry.second == second) {
+            return entry.text;
+        }
+
+        char[] chars = new char[8];
+        FixedPointFormat.formatTimeOfDay(timeMillis, zone, chars, 0);
+        String text = new String(chars);
+        last = new Entry(second, text);
+        return text;
+    }
+}
@@ -0,0 +1,351 @@
+package com.example.chronographapp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Хронограф внутри процесса: отдает кадры {@code Shot #/Speed:/Energy:} с заданной
+ * частотой, нарезая поток на куски случайной длины, как это делает RFCOMM.
+ *
+ * Кадры берутся из {@link FrameSource}: синтетические ({@link #syntheticFrames}) или
+ * записанные с настоящего хронографа ({@link #recordedFrames}). Потока-генератора нет:
+ * кадр создается в {@code read()}, который при заданной частоте ждет времени
+ * следующего выстрела. Частота 0 - без пауз, для замера пропускной способности
+ * разбора и интерфейса на обычной JVM.
+ *
+ * Команды приложения симулятор подтверждает строкой {@code OK:<команда>} между кадрами,
+ * как прошивка. Двоичного режима у него нет: {@code MODE:BIN} остается без ответа,
+ * и приложение продолжает читать текст.
+ */
+public class SimulatedTransport implements ChronographTransport {
+
+    public interface FrameSource {
+        /**
+         * Записывает кадр выстрела {@code shotNumber} в {@code dst} с нуля.
+         *
+         * @return длина кадра или -1, если кадры кончились
+         */
+        int nextFrame(int shotNumber, byte[] dst);
+    }
+
+    public static final int MAX_FRAME_LENGTH = 3 * ShotFrameDecoder.MAX_LINE_LENGTH;
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final byte[] SHOT_PREFIX = "Shot #".getBytes(StandardCharsets.US_ASCII);
+
+    private final FrameSource source;
+    private final int shotsPerSecond;
+    private final int maxChunk;
+    private final Random random;
+
+    private final Object lock = new Object();
+    private final ByteArrayOutputStream commands = new ByteArrayOutputStream();
+    private final StringBuilder commandLine = new StringBuilder();
+    // Подтверждения, еще не отданные в поток; под lock
+    private final ByteArrayOutputStream replies = new ByteArrayOutputStream();
+    private final SimulatedInput input = new SimulatedInput();
+    private volatile boolean connected;
+    private volatile boolean closed;
+
+    /**
+     * @param shotsPerSecond частота выстрелов, 0 - так быстро, как читают
+     * @param maxChunk       наибольший кусок, который вернет один {@code read()}
+     */
+    public SimulatedTransport(FrameSource source, int shotsPerSecond, int maxChunk, Random random) {
+        if (shotsPerSecond < 0 || maxChunk <= 0) {
+            throw new IllegalArgumentException("shotsPerSecond=" + shotsPerSecond
+                    + ", maxChunk=" + maxChunk);
+        }
+        this.source = source;
+        this.shotsPerSecond = shotsPerSecond;
+        this.maxChunk = maxChunk;
+        this.random = random;
+    }
+
+    /**
+     * Выстрелы со скоростью около {@code meanVelocity} и нормальным разбросом;
+     * энергия считается по массе, как в прошивке.
+     */
+    public static FrameSource syntheticFrames(float meanVelocity, float velocitySd,
+                                              float massGrams, Random random) {
+        char[] chars = new char[MAX_FRAME_LENGTH];
+        return (shotNumber, dst) -> {
+            float velocity = (float) Math.max(0, meanVelocity + random.nextGaussian() * velocitySd);
+            float energy = Ballistics.energyJoules(massGrams, velocity);
+
+            int length = append("Shot #", chars, 0);
+            length = FixedPointFormat.formatLong(shotNumber, chars, length);
+            length = append("\nSpeed: ", chars, length);
+            length = FixedPointFormat.format(velocity, 2, '.', chars, length);
+            length = append("\nEnergy: ", chars, length);
+            length = FixedPointFormat.format(energy, 2, '.', chars, length);
+            chars[length++] = '\n';
+            for (int i = 0; i < length; i++) {
+                dst[i] = (byte) chars[i];
+            }
+            return length;
+        };
+    }
+
+    /**
+     * Повторяет запись потока с хронографа, кадр за кадром. Кадр начинается со строки
+     * {@code Shot #}; номера выстрелов берутся из записи.
+     *
+     * @param loop начинать запись сначала, когда она кончится
+     */
+    public static FrameSource recordedFrames(byte[] recording, boolean loop) {
+        int[] starts = frameStarts(recording);
+        if (starts.length == 0) {
+            throw new IllegalArgumentException("В записи нет кадров");
+        }
+        int[] next = {0};
+        return (shotNumber, dst) -> {
+            if (next[0] == starts.length) {
+                if (!loop) {
+                    return -1;
+                }
+                next[0] = 0;
+            }
+            int from = starts[next[0]];
+            int to = ++next[0] < starts.length ? starts[next[0]] : recording.length;
+            System.arraycopy(recording, from, dst, 0, to - from);
+            return to - from;
+        };
+    }
+
+    private static int[] frameStarts(byte[] recording) {
+        int[] starts = new int[16];
+        int count = 0;
+        for (int i = 0; i + SHOT_PREFIX.length <= recording.length; i++) {
+            if ((i == 0 || recording[i - 1] == '\n') && startsWith(recording, i, SHOT_PREFIX)) {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count++] = i;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            int end = i + 1 < count ? starts[i + 1] : recording.length;
+            if (end - starts[i] > MAX_FRAME_LENGTH) {
+                throw new IllegalArgumentException("Кадр длиннее " + MAX_FRAME_LENGTH
+                        + " байт со смещения " + starts[i]);
+            }
+        }
+        return Arrays.copyOf(starts, count);
+    }
+
+    private static boolean startsWith(byte[] data, int offset, byte[] prefix) {
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int append(String text, char[] dst, int offset) {
+        text.getChars(0, text.length(), dst, offset);
+        return offset + text.length();
+    }
+
+    /**
+     * @return команды, которые приложение отправило хронографу
+     */
+    public String getReceivedCommands() {
+        synchronized (commands) {
+            return new String(commands.toByteArray(), StandardCharsets.US_ASCII);
+        }
+    }
+
+    @Override
+    public void connect() throws IOException {
+        if (closed) {
+            throw new IOException("Симулятор закрыт");
+        }
+        input.start(System.nanoTime());
+        connected = true;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        checkConnected();
+        return input;
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        checkConnected();
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                checkConnected();
+                synchronized (commands) {
+                    commands.write(bytes, offset, length);
+                    for (int i = offset; i < offset + length; i++) {
+                        if (bytes[i] == '\n') {
+                            acknowledge(commandLine.toString().trim());
+                            commandLine.setLength(0);
+                        } else {
+                            commandLine.append((char) (bytes[i] & 0xFF));
+                        }
+                    }
+                }
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (lock) {
+            // Будим read(), ждущий следующего выстрела
+            lock.notifyAll();
+        }
+    }
+
+    private void acknowledge(String command) {
+        if (command.isEmpty() || command.equals(ShotFrameDecoder.BINARY_MODE_COMMAND)) {
+            return;
+        }
+        byte[] reply = ("OK:" + command + "\n").getBytes(StandardCharsets.US_ASCII);
+        synchronized (lock) {
+            replies.write(reply, 0, reply.length);
+            // Ответ не ждет следующего выстрела
+            lock.notifyAll();
+        }
+    }
+
+    private void checkConnected() throws IOException {
+        if (closed || !connected) {
+            throw new IOException(closed ? "Симулятор закрыт" : "Симулятор не подключен");
+        }
+    }
+
+    /**
+     * Поток кадров. Читается одним потоком соединения.
+     */
+    private final class SimulatedInput extends InputStream {
+        private final byte[] frame = new byte[MAX_FRAME_LENGTH];
+        private int frameLength;
+        private int framePosition;
+        private int shotNumber;
+        private long startNanos;
+        private boolean endOfFrames;
+
+        void start(long nowNanos) {
+            startNanos = nowNanos;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (closed) {
+                throw new IOException("Симулятор закрыт");
+            }
+            if (length == 0) {
+                return 0;
+            }
+            int target = Math.min(length, 1 + random.nextInt(maxChunk));
+            int copied = 0;
+            while (copied < target) {
+                if (framePosition == frameLength) {
+                    // Кусок может захватить начало следующего кадра, если тот уже "выстрелил"
+                    if (endOfFrames || (copied > 0 && !isNextShotDue())) {
+                        break;
+                    }
+                    if (!nextFrame()) {
+                        break;
+                    }
+                }
+                int count = Math.min(target - copied, frameLength - framePosition);
+                System.arraycopy(frame, framePosition, buffer, offset + copied, count);
+                framePosition += count;
+                copied += count;
+            }
+            return copied > 0 ? copied : -1;
+        }
+
+        private boolean nextFrame() throws IOException {
+            if (takeReplies()) {
+                return true;
+            }
+            awaitNextShot();
+            if (takeReplies()) {
+                return true;
+            }
+            int length = source.nextFrame(shotNumber + 1, frame);
+            if (length < 0) {
+                endOfFrames = true;
+                return false;
+            }
+            shotNumber++;
+            frameLength = length;
+            framePosition = 0;
+            return true;
+        }
+
+        /**
+         * Ставит накопившиеся подтверждения в поток вместо очередного кадра.
+         */
+        private boolean takeReplies() {
+            synchronized (lock) {
+                if (replies.size() == 0) {
+                    return false;
+                }
+                byte[] pending = replies.toByteArray();
+                frameLength = Math.min(pending.length, frame.length);
+                framePosition = 0;
+                System.arraycopy(pending, 0, frame, 0, frameLength);
+                replies.reset();
+                replies.write(pending, frameLength, pending.length - frameLength);
+                return true;
+            }
+        }
+
+        private long nextShotNanos() {
+            return startNanos + shotNumber * NANOS_PER_SECOND / shotsPerSecond;
+        }
+
+        private boolean isNextShotDue() {
+            return shotsPerSecond == 0 || System.nanoTime() >= nextShotNanos();
+        }
+
+        private void awaitNextShot() throws IOException {
+            synchronized (lock) {
+                while (true) {
+                    if (closed) {
+                        throw new IOException("Симулятор закрыт");
+                    }
+                    if (shotsPerSecond == 0 || replies.size() > 0) {
+                        return;
+                    }
+                    long waitNanos = nextShotNanos() - System.nanoTime();
+                    if (waitNanos <= 0) {
+                        return;
+                    }
+                    try {
+                        lock.wait(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Чтение прервано", e);
+                    }
+                }
+            }
+        }
+    }
+}
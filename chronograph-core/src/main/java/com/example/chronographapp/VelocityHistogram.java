@@ -0,0 +1,323 @@
+package com.example.chronographapp;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Распределение скоростей серии для гистограммы разброса.
+ *
+ * Выстрелы считаются в корзинах шагом {@link #RESOLUTION} - это точность, с которой
+ * хронограф сообщает скорость, так что подсчет точный. Добавление и удаление - одно
+ * изменение счетчика в {@code int[]}, без прохода по истории. Диапазон растет по мере
+ * прихода новых скоростей. Корзины для экрана собирает {@link #rebin} из этих счетчиков:
+ * его цена зависит от ширины разброса, а не от числа выстрелов.
+ *
+ * Те же счетчики дают медиану, процентили ({@link #getQuantile}) и SD с ошибкой не больше
+ * половины шага, а гистограммы разных сессий складываются через {@link #merge}. Счетчики
+ * закрытой сессии сохраняются в архив ({@link #writeTo}), чтобы не читать ее журнал. Память
+ * зависит только от разброса скоростей, но не от числа выстрелов: не больше
+ * {@code MAX_VELOCITY / RESOLUTION} счетчиков. Не потокобезопасно.
+ */
+public class VelocityHistogram {
+
+    /** Шаг счетчиков, м/с: скорость приходит с одним знаком после запятой */
+    public static final float RESOLUTION = 0.1f;
+    /** Выше не бывает даже у пороховых; сбойные кадры попадают в крайнюю корзину */
+    public static final float MAX_VELOCITY = 2_000f;
+
+    private static final int MAX_KEY = Math.round(MAX_VELOCITY / RESOLUTION);
+    private static final int INITIAL_CAPACITY = 64;
+    // Ширина экранной корзины - 1, 2 или 5, умноженное на степень десяти
+    private static final int[] NICE_STEPS = {1, 2, 5};
+
+    // counts[i] - число выстрелов со скоростью (origin + i) * RESOLUTION
+    private int[] counts = new int[0];
+    private int origin;
+    private int count;
+
+    public void add(float velocity) {
+        int key = key(velocity);
+        ensureKey(key);
+        counts[key - origin]++;
+        count++;
+    }
+
+    /**
+     * Убирает ранее добавленную скорость.
+     */
+    public void remove(float velocity) {
+        int index = key(velocity) - origin;
+        if (index < 0 || index >= counts.length || counts[index] == 0) {
+            throw new IllegalStateException("Скорости " + velocity + " нет в гистограмме");
+        }
+        counts[index]--;
+        count--;
+    }
+
+    public void clear() {
+        Arrays.fill(counts, 0);
+        count = 0;
+    }
+
+    /**
+     * Копирует счетчики другой гистограммы, например посчитанной в фоне.
+     */
+    public void set(VelocityHistogram other) {
+        counts = other.counts.clone();
+        origin = other.origin;
+        count = other.count;
+    }
+
+    /**
+     * Добавляет выстрелы другой гистограммы, например другой сессии.
+     */
+    public void merge(VelocityHistogram other) {
+        for (int i = 0; i < other.counts.length; i++) {
+            if (other.counts[i] == 0) {
+                continue;
+            }
+            int key = other.origin + i;
+            ensureKey(key);
+            counts[key - origin] += other.counts[i];
+        }
+        count += other.count;
+    }
+
+    public void resetToVelocities(ShotCursor shots) {
+        clear();
+        for (int i = 0; i < shots.getCount(); i++) {
+            add(shots.moveTo(i).velocity());
+        }
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * @return наименьшая скорость с точностью {@link #RESOLUTION}, 0 для пустой гистограммы
+     */
+    public float getMin() {
+        for (int i = 0; i < counts.length && count > 0; i++) {
+            if (counts[i] > 0) {
+                return (origin + i) * RESOLUTION;
+            }
+        }
+        return 0f;
+    }
+
+    /**
+     * @return наибольшая скорость с точностью {@link #RESOLUTION}, 0 для пустой гистограммы
+     */
+    public float getMax() {
+        for (int i = counts.length - 1; i >= 0 && count > 0; i--) {
+            if (counts[i] > 0) {
+                return (origin + i) * RESOLUTION;
+            }
+        }
+        return 0f;
+    }
+
+    /**
+     * Процентиль по ближайшему рангу: скорость выстрела номер {@code ceil(q * n)} в порядке
+     * возрастания. Совпадает с сортировкой истории с точностью до {@link #RESOLUTION}.
+     *
+     * @param q доля от 0 до 1: 0.5 - медиана, 0.05 и 0.95 - P5 и P95
+     * @return скорость, 0 для пустой гистограммы
+     */
+    public float getQuantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("q вне [0, 1]: " + q);
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length && count > 0; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return (origin + i) * RESOLUTION;
+            }
+        }
+        return 0f;
+    }
+
+    public float getMean() {
+        return (float) (meanKey() * RESOLUTION);
+    }
+
+    /**
+     * Выборочное SD по счетчикам, как у {@link RunningStats#getStandardDeviation()}.
+     */
+    public float getStandardDeviation() {
+        if (count < 2) {
+            return 0f;
+        }
+        double mean = meanKey();
+        double squares = 0;
+        for (int i = 0; i < counts.length; i++) {
+            double delta = origin + i - mean;
+            squares += counts[i] * delta * delta;
+        }
+        return (float) (Math.sqrt(squares / (count - 1)) * RESOLUTION);
+    }
+
+    /**
+     * @return размер в байтах, который займет {@link #writeTo}
+     */
+    public int serializedSize() {
+        return 4 + 4 + 4 * Math.max(0, lastUsed() - firstUsed() + 1);
+    }
+
+    /**
+     * Пишет счетчики без пустых краев: первый ключ, число счетчиков и сами счетчики.
+     */
+    public void writeTo(ByteBuffer buffer) {
+        int first = firstUsed();
+        int last = lastUsed();
+        if (first > last) {
+            buffer.putInt(0).putInt(0);
+            return;
+        }
+        buffer.putInt(origin + first).putInt(last - first + 1);
+        for (int i = first; i <= last; i++) {
+            buffer.putInt(counts[i]);
+        }
+    }
+
+    /**
+     * Читает счетчики, записанные {@link #writeTo}.
+     *
+     * @throws IllegalArgumentException если данные испорчены
+     */
+    public static VelocityHistogram readFrom(ByteBuffer buffer) {
+        VelocityHistogram histogram = new VelocityHistogram();
+        try {
+            int first = buffer.getInt();
+            int length = buffer.getInt();
+            if (length < 0 || first < 0 || length > MAX_KEY + 1 - first) {
+                throw new IllegalArgumentException("Счетчики вне диапазона: " + first + "+" + length);
+            }
+            histogram.counts = new int[length];
+            histogram.origin = first;
+            for (int i = 0; i < length; i++) {
+                int value = buffer.getInt();
+                if (value < 0) {
+                    throw new IllegalArgumentException("Отрицательный счетчик " + value);
+                }
+                histogram.counts[i] = value;
+                histogram.count += value;
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Счетчики обрезаны", e);
+        }
+        return histogram;
+    }
+
+    /**
+     * Собирает экранные корзины {@code [from + i * binWidth, from + (i + 1) * binWidth)}.
+     * Скорости левее первой и правее последней корзины попадают в крайние корзины,
+     * чтобы ни один выстрел не пропал с экрана.
+     *
+     * @param binWidth ширина корзины, кратная {@link #RESOLUTION}
+     * @return наибольшее число выстрелов в одной корзине
+     */
+    public int rebin(float from, float binWidth, int[] bins, int binCount) {
+        if (binCount <= 0 || binCount > bins.length) {
+            throw new IllegalArgumentException("binCount " + binCount + ", bins " + bins.length);
+        }
+        int width = Math.max(1, Math.round(binWidth / RESOLUTION));
+        int fromKey = Math.round(from / RESOLUTION);
+        Arrays.fill(bins, 0, binCount, 0);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            int bin = Math.floorDiv(origin + i - fromKey, width);
+            bin = Math.max(0, Math.min(binCount - 1, bin));
+            bins[bin] += counts[i];
+        }
+        int max = 0;
+        for (int i = 0; i < binCount; i++) {
+            max = Math.max(max, bins[i]);
+        }
+        return max;
+    }
+
+    /**
+     * Подбирает ширину экранной корзины: наименьшую из ряда 0.1, 0.2, 0.5, 1, 2, 5...,
+     * при которой {@code spread} укладывается в {@code maxBins} корзин.
+     */
+    public static float binWidthFor(float spread, int maxBins) {
+        int needed = (int) Math.ceil(spread / RESOLUTION / maxBins);
+        for (int scale = 1; ; scale *= 10) {
+            for (int step : NICE_STEPS) {
+                if (step * scale >= needed) {
+                    return step * scale * RESOLUTION;
+                }
+            }
+        }
+    }
+
+    private double meanKey() {
+        if (count == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (int i = 0; i < counts.length; i++) {
+            sum += (double) counts[i] * (origin + i);
+        }
+        return sum / count;
+    }
+
+    private int firstUsed() {
+        int i = 0;
+        while (i < counts.length && counts[i] == 0) {
+            i++;
+        }
+        return i;
+    }
+
+    private int lastUsed() {
+        int i = counts.length - 1;
+        while (i >= 0 && counts[i] == 0) {
+            i--;
+        }
+        return i;
+    }
+
+    /** Число счетчиков, для проверки границ в тестах */
+    int capacity() {
+        return counts.length;
+    }
+
+    private static int key(float velocity) {
+        return Math.max(0, Math.min(MAX_KEY, Math.round(velocity / RESOLUTION)));
+    }
+
+    private void ensureKey(int key) {
+        if (counts.length == 0) {
+            counts = new int[INITIAL_CAPACITY];
+            origin = Math.max(0,
+                    Math.min(key - INITIAL_CAPACITY / 2, MAX_KEY + 1 - INITIAL_CAPACITY));
+            return;
+        }
+        int end = origin + counts.length;
+        if (key >= origin && key < end) {
+            return;
+        }
+        // Растем удвоением в сторону новой скорости, как ShotStore, не выходя за [0, MAX_KEY]
+        int low = Math.min(origin, key);
+        int high = Math.max(end, key + 1);
+        int length = Math.min(Math.max(counts.length * 2, high - low), MAX_KEY + 1);
+        int newOrigin = key < origin ? Math.max(0, high - length)
+                : Math.min(low, MAX_KEY + 1 - length);
+        int[] grown = new int[length];
+        System.arraycopy(counts, 0, grown, origin - newOrigin, counts.length);
+        counts = grown;
+        origin = newOrigin;
+    }
+}
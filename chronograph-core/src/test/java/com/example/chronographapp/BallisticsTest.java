@@ -0,0 +1,48 @@
+package com.example.chronographapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BallisticsTest {
+
+    @Test
+    public void energy_matchesFirmwareFormula() {
+        // 0.25 г, 150 м/с: 0.00025 * 22500 / 2
+        assertEquals(2.8125f, Ballistics.energyJoules(0.25f, 150f), 1e-6f);
+        assertEquals(0f, Ballistics.energyJoules(0.25f, 0f), 0f);
+    }
+
+    @Test
+    public void inverseFunctions_roundTrip() {
+        float energy = Ballistics.energyJoules(0.36f, 127.4f);
+
+        assertEquals(127.4f, Ballistics.velocityFor(0.36f, energy), 1e-3f);
+        assertEquals(0.36f, Ballistics.massGramsFor(127.4f, energy), 1e-5f);
+    }
+
+    @Test
+    public void degenerateInputs_returnZero() {
+        assertEquals(0f, Ballistics.velocityFor(0f, 2f), 0f);
+        assertEquals(0f, Ballistics.velocityFor(0.25f, 0f), 0f);
+        assertEquals(0f, Ballistics.massGramsFor(0f, 2f), 0f);
+    }
+
+    @Test
+    public void bulkEnergies_matchScalarBitForBit() {
+        float[] velocities = new float[1000];
+        for (int i = 0; i < velocities.length; i++) {
+            velocities[i] = 80f + i * 0.173f;
+        }
+        float[] energies = new float[velocities.length];
+
+        Ballistics.energies(0.36f, velocities, energies, velocities.length);
+
+        for (int i = 0; i < velocities.length; i++) {
+            assertEquals(Ballistics.energyJoules(0.36f, velocities[i]), energies[i], 0f);
+        }
+        // На месте: колонка скоростей превращается в колонку энергий
+        Ballistics.energies(0.36f, velocities, velocities, velocities.length);
+        assertArrayEquals(energies, velocities, 0f);
+    }
+}
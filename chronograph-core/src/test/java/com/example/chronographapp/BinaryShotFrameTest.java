@@ -0,0 +1,42 @@
+package com.example.chronographapp;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class BinaryShotFrameTest {
+
+    @Test
+    public void crc16_matchesCcittFalseCheckValue() {
+        byte[] check = "123456789".getBytes(StandardCharsets.US_ASCII);
+
+        assertEquals(0x29B1, BinaryShotFrame.crc16(check, 0, check.length));
+    }
+
+    @Test
+    public void encode_roundTrips() {
+        byte[] data = new byte[BinaryShotFrame.LENGTH + 2];
+
+        int end = BinaryShotFrame.encode(65_535, 0xFFFF_FFFEL, data, 2);
+
+        assertEquals(data.length, end);
+        assertEquals(BinaryShotFrame.SYNC, data[2]);
+        assertTrue(BinaryShotFrame.isValid(data, 2));
+        assertEquals(65_535, BinaryShotFrame.sequence(data, 2));
+        assertEquals(0xFFFF_FFFEL, BinaryShotFrame.ticks(data, 2));
+    }
+
+    @Test
+    public void anySingleBitFlip_isDetected() {
+        byte[] data = new byte[BinaryShotFrame.LENGTH];
+        BinaryShotFrame.encode(1234, 10_000, data, 0);
+
+        for (int bit = 8; bit < data.length * 8; bit++) {
+            data[bit / 8] ^= 1 << (bit % 8);
+            assertFalse("bit " + bit, BinaryShotFrame.isValid(data, 0));
+            data[bit / 8] ^= 1 << (bit % 8);
+        }
+    }
+}
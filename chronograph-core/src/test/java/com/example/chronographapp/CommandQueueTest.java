@@ -0,0 +1,205 @@
+package com.example.chronographapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CommandQueueTest {
+
+    private static final long ACK_TIMEOUT_MILLIS = 50;
+    private static final int MAX_ATTEMPTS = 3;
+
+    /** Канал, который можно "подключать" и "отключать" */
+    private static class FakeWriter implements CommandQueue.Writer {
+        volatile boolean connected;
+        final List<String> written = new ArrayList<>();
+
+        @Override
+        public synchronized boolean write(byte[] bytes) {
+            if (!connected) {
+                return false;
+            }
+            written.add(new String(bytes, StandardCharsets.US_ASCII));
+            return true;
+        }
+
+        synchronized List<String> written() {
+            return new ArrayList<>(written);
+        }
+    }
+
+    private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+    private final FakeWriter writer = new FakeWriter();
+    private ScheduledExecutorService executor;
+    private CommandQueue queue;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        queue = new CommandQueue(writer,
+                (command, delivery, attempt) -> events.add(command + " " + delivery + " " + attempt),
+                Runnable::run, executor, ACK_TIMEOUT_MILLIS, MAX_ATTEMPTS);
+    }
+
+    @After
+    public void tearDown() {
+        queue.shutdown();
+    }
+
+    private String nextEvent() throws InterruptedException {
+        String event = events.poll(2, TimeUnit.SECONDS);
+        assertNotNull("нет события доставки", event);
+        return event;
+    }
+
+    @Test
+    public void acknowledgedCommand_isSentOnce() throws Exception {
+        writer.connected = true;
+
+        queue.submit("MASS:0.25");
+        assertEquals("MASS:0.25 SENT 1", nextEvent());
+        queue.onAck("MASS:0.25");
+        assertEquals("MASS:0.25 ACKNOWLEDGED 1", nextEvent());
+
+        Thread.sleep(3 * ACK_TIMEOUT_MILLIS);
+        assertEquals(List.of("MASS:0.25\n"), writer.written());
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void commandsWhileDisconnected_coalesceToLatest() throws Exception {
+        queue.submit("MASS:0.25");
+        queue.submit("MASS:0.28");
+        queue.submit("MASS:0.30");
+        assertEquals("MASS:0.25 QUEUED 0", nextEvent());
+        assertEquals("MASS:0.25 SUPERSEDED 0", nextEvent());
+        assertEquals("MASS:0.28 QUEUED 0", nextEvent());
+        assertEquals("MASS:0.28 SUPERSEDED 0", nextEvent());
+        assertEquals("MASS:0.30 QUEUED 0", nextEvent());
+
+        writer.connected = true;
+        queue.onConnected();
+        assertEquals("MASS:0.30 SENT 1", nextEvent());
+        assertEquals(List.of("MASS:0.30\n"), writer.written());
+    }
+
+    @Test
+    public void missingAck_retriesThenFails() throws Exception {
+        writer.connected = true;
+
+        queue.submit("MASS:0.25");
+
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            assertEquals("MASS:0.25 SENT " + attempt, nextEvent());
+        }
+        assertEquals("MASS:0.25 FAILED " + MAX_ATTEMPTS, nextEvent());
+        assertEquals(MAX_ATTEMPTS, writer.written().size());
+    }
+
+    @Test
+    public void commandsWhileConnected_keepOneInFlightPerKey() throws Exception {
+        writer.connected = true;
+
+        queue.submit("MASS:0.25");
+        queue.submit("MASS:0.28");
+        queue.submit("MASS:0.30");
+        assertEquals("MASS:0.25 SENT 1", nextEvent());
+        assertEquals("MASS:0.28 WAITING 0", nextEvent());
+        assertEquals("MASS:0.28 SUPERSEDED 0", nextEvent());
+        assertEquals("MASS:0.30 WAITING 0", nextEvent());
+
+        queue.onAck("MASS:0.25");
+        assertEquals("MASS:0.25 ACKNOWLEDGED 1", nextEvent());
+        assertEquals("MASS:0.30 SENT 1", nextEvent());
+        queue.onAck("MASS:0.30");
+        assertEquals("MASS:0.30 ACKNOWLEDGED 1", nextEvent());
+
+        // Промежуточная масса в канал так и не попала
+        assertEquals(List.of("MASS:0.25\n", "MASS:0.30\n"), writer.written());
+    }
+
+    @Test
+    public void waitingCommand_replacesRetryOfStaleOne() throws Exception {
+        writer.connected = true;
+
+        queue.submit("MASS:0.25");
+        assertEquals("MASS:0.25 SENT 1", nextEvent());
+        queue.submit("MASS:0.30");
+        assertEquals("MASS:0.30 WAITING 0", nextEvent());
+
+        // Подтверждения 0.25 нет: по таймауту уходит не повтор, а новая масса
+        assertEquals("MASS:0.25 SUPERSEDED 1", nextEvent());
+        assertEquals("MASS:0.30 SENT 1", nextEvent());
+        queue.onAck("MASS:0.25");
+        queue.onAck("MASS:0.30");
+        assertEquals("MASS:0.30 ACKNOWLEDGED 1", nextEvent());
+        assertEquals(List.of("MASS:0.25\n", "MASS:0.30\n"), writer.written());
+    }
+
+    @Test
+    public void repeatedCommand_isNotSentAgain() throws Exception {
+        writer.connected = true;
+
+        queue.submit("MODE:BIN");
+        assertEquals("MODE:BIN SENT 1", nextEvent());
+        queue.submit("MODE:TXT");
+        assertEquals("MODE:TXT WAITING 0", nextEvent());
+        // Вернулись к команде, что уже в канале: ждущая больше не нужна
+        queue.submit("MODE:BIN");
+        assertEquals("MODE:TXT SUPERSEDED 0", nextEvent());
+
+        queue.onAck("MODE:BIN");
+        assertEquals("MODE:BIN ACKNOWLEDGED 1", nextEvent());
+        Thread.sleep(3 * ACK_TIMEOUT_MILLIS);
+        assertEquals(List.of("MODE:BIN\n"), writer.written());
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void differentKeys_areDeliveredIndependently() throws Exception {
+        writer.connected = true;
+
+        queue.submit("MASS:0.25");
+        queue.submit("UNITS:FPS");
+        assertEquals("MASS:0.25 SENT 1", nextEvent());
+        assertEquals("UNITS:FPS SENT 1", nextEvent());
+        queue.onAck("UNITS:FPS");
+        assertEquals("UNITS:FPS ACKNOWLEDGED 1", nextEvent());
+        queue.onAck("MASS:0.25");
+        assertEquals("MASS:0.25 ACKNOWLEDGED 1", nextEvent());
+    }
+
+    @Test
+    public void reconnect_resendsUnacknowledgedWithFreshAttempts() throws Exception {
+        writer.connected = true;
+        queue.submit("MASS:0.25");
+        assertEquals("MASS:0.25 SENT 1", nextEvent());
+
+        // Разрыв: повтор по таймауту некуда писать
+        writer.connected = false;
+        assertEquals("MASS:0.25 QUEUED 1", nextEvent());
+
+        writer.connected = true;
+        queue.onConnected();
+        assertEquals("MASS:0.25 SENT 1", nextEvent());
+        queue.onAck("MASS:0.25");
+        assertEquals("MASS:0.25 ACKNOWLEDGED 1", nextEvent());
+    }
+
+    @Test
+    public void keyOf_isPrefixBeforeColon() {
+        assertEquals("MASS", CommandQueue.keyOf("MASS:0.25"));
+        assertEquals("RESET", CommandQueue.keyOf("RESET"));
+    }
+}
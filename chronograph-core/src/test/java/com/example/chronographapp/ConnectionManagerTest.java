@@ -0,0 +1,286 @@
+package com.example.chronographapp;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ConnectionManagerTest {
+
+    private static final long WAIT_MILLIS = 2_000;
+
+    /**
+     * Поддельный сокет: тест подкладывает байты и рвет соединение, когда нужно.
+     */
+    private static class FakeTransport implements ChronographTransport {
+        private static final byte[] CLOSED = new byte[0];
+        private static final byte[] BROKEN = new byte[0];
+
+        final BlockingQueue<byte[]> incoming = new LinkedBlockingQueue<>();
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        volatile boolean closed;
+
+        void receive(String text) {
+            incoming.add(text.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        void breakLink() {
+            incoming.add(BROKEN);
+        }
+
+        @Override
+        public void connect() {
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    byte[] one = new byte[1];
+                    return read(one, 0, 1) < 0 ? -1 : one[0];
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    byte[] chunk;
+                    try {
+                        chunk = incoming.take();
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                    if (chunk == CLOSED || chunk == BROKEN) {
+                        throw new IOException(chunk == CLOSED ? "socket closed" : "link lost");
+                    }
+                    System.arraycopy(chunk, 0, buffer, offset, chunk.length);
+                    return chunk.length;
+                }
+            };
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return written;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            incoming.add(CLOSED);
+        }
+    }
+
+    /**
+     * Выдает заранее подготовленные каналы и исключения по очереди.
+     */
+    private static class FakeFactory implements ChronographTransport.Factory {
+        final BlockingQueue<Object> outcomes = new LinkedBlockingQueue<>();
+        final AtomicInteger created = new AtomicInteger();
+
+        @Override
+        public ChronographTransport create() throws IOException {
+            created.incrementAndGet();
+            Object outcome = outcomes.poll();
+            if (outcome instanceof IOException) {
+                throw (IOException) outcome;
+            }
+            if (outcome instanceof RuntimeException) {
+                throw (RuntimeException) outcome;
+            }
+            if (outcome == null) {
+                throw new IOException("устройство не отвечает");
+            }
+            return (ChronographTransport) outcome;
+        }
+    }
+
+    private static class Recorder implements ConnectionManager.Listener, ConnectionManager.DataSink,
+            ShotFrameDecoder.Listener {
+        final BlockingQueue<ConnectionManager.State> states = new LinkedBlockingQueue<>();
+        final List<Long> delays = Collections.synchronizedList(new ArrayList<>());
+        final BlockingQueue<Exception> failures = new LinkedBlockingQueue<>();
+        final BlockingQueue<Integer> shots = new LinkedBlockingQueue<>();
+        final ShotFrameDecoder decoder = new ShotFrameDecoder(this);
+
+        @Override
+        public void onStateChanged(ConnectionManager.State state, int attempt, long retryDelayMillis) {
+            if (state == ConnectionManager.State.BACKOFF) {
+                delays.add(retryDelayMillis);
+            }
+            states.add(state);
+        }
+
+        @Override
+        public void onFailed(Exception e) {
+            failures.add(e);
+        }
+
+        @Override
+        public void onConnected() {
+            decoder.reset();
+        }
+
+        @Override
+        public void onData(byte[] buffer, int length) {
+            decoder.feed(buffer, 0, length);
+        }
+
+        @Override
+        public void onShot(int shotNumber, float velocity, float energy) {
+            shots.add(shotNumber);
+        }
+
+        void await(ConnectionManager.State expected) throws InterruptedException {
+            while (true) {
+                ConnectionManager.State state = states.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                assertNotNull("не дождались " + expected, state);
+                if (state == expected) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final FakeFactory factory = new FakeFactory();
+    private final Recorder recorder = new Recorder();
+    private final ConnectionManager manager = new ConnectionManager(factory, recorder, recorder,
+            Runnable::run, executor, 5, 40, new Random(1));
+
+    @After
+    public void tearDown() {
+        manager.shutdown();
+    }
+
+    @Test
+    public void connect_deliversDecodedShots() throws Exception {
+        FakeTransport link = new FakeTransport();
+        factory.outcomes.add(link);
+
+        manager.connect();
+        recorder.await(ConnectionManager.State.CONNECTED);
+        link.receive("Shot #1\nSpeed: 150.00\nEnergy: 2.80\n");
+
+        assertEquals(Integer.valueOf(1), recorder.shots.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+        assertTrue(manager.send("MASS:0.25\n".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals("MASS:0.25\n", link.written.toString("US-ASCII"));
+    }
+
+    @Test
+    public void dropMidFrame_reconnectsAndDecodesNextShot() throws Exception {
+        FakeTransport first = new FakeTransport();
+        FakeTransport second = new FakeTransport();
+        factory.outcomes.add(first);
+        factory.outcomes.add(second);
+
+        manager.connect();
+        recorder.await(ConnectionManager.State.CONNECTED);
+        // Связь рвется посреди кадра
+        first.receive("Shot #1\nSpeed: 15");
+        first.breakLink();
+
+        recorder.await(ConnectionManager.State.BACKOFF);
+        recorder.await(ConnectionManager.State.CONNECTED);
+        assertTrue(first.closed);
+
+        second.receive("Shot #2\nSpeed: 151.00\nEnergy: 2.90\n");
+        // Обрывок первого кадра не склеился с новым
+        assertEquals(Integer.valueOf(2), recorder.shots.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+        assertTrue(recorder.shots.isEmpty());
+    }
+
+    @Test
+    public void failedAttempts_backOffAndResetAfterSuccess() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            factory.outcomes.add(new IOException("нет ответа"));
+        }
+        FakeTransport link = new FakeTransport();
+        factory.outcomes.add(link);
+
+        manager.connect();
+        recorder.await(ConnectionManager.State.CONNECTED);
+        assertEquals(5, factory.created.get());
+
+        List<Long> delays = new ArrayList<>(recorder.delays);
+        assertEquals(4, delays.size());
+        for (int attempt = 0; attempt < delays.size(); attempt++) {
+            long exponential = Math.min(40, 5L << attempt);
+            long delay = delays.get(attempt);
+            assertTrue("попытка " + attempt + ": " + delay,
+                    delay >= exponential / 2 && delay <= exponential);
+        }
+
+        // После успешного подключения пауза снова начинается с минимальной
+        recorder.delays.clear();
+        link.breakLink();
+        recorder.await(ConnectionManager.State.BACKOFF);
+        assertTrue(recorder.delays.get(0) <= 5);
+    }
+
+    @Test
+    public void disconnectDuringBackoff_stopsRetrying() throws Exception {
+        manager.connect();
+        recorder.await(ConnectionManager.State.BACKOFF);
+
+        manager.disconnect();
+        recorder.await(ConnectionManager.State.IDLE);
+        int attempts = factory.created.get();
+
+        Thread.sleep(100);
+        assertEquals(attempts, factory.created.get());
+        assertEquals(ConnectionManager.State.IDLE, manager.getState());
+    }
+
+    @Test
+    public void disconnectWhileConnected_closesLinkWithoutRetry() throws Exception {
+        FakeTransport link = new FakeTransport();
+        factory.outcomes.add(link);
+        manager.connect();
+        recorder.await(ConnectionManager.State.CONNECTED);
+
+        manager.disconnect();
+        recorder.await(ConnectionManager.State.IDLE);
+
+        assertTrue(link.closed);
+        assertEquals(1, factory.created.get());
+        assertFalse(manager.send(new byte[]{1}));
+    }
+
+    @Test
+    public void securityException_isNotRetried() throws Exception {
+        factory.outcomes.add(new SecurityException("нет BLUETOOTH_CONNECT"));
+
+        manager.connect();
+
+        assertTrue(recorder.failures.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS) instanceof SecurityException);
+        recorder.await(ConnectionManager.State.IDLE);
+        Thread.sleep(50);
+        assertEquals(1, factory.created.get());
+    }
+
+    @Test
+    public void backoffDelay_growsUpToMaximum() {
+        assertEquals(250, ConnectionManager.backoffDelay(0, 500, 30_000, 0.0));
+        assertEquals(500, ConnectionManager.backoffDelay(0, 500, 30_000, 1.0));
+        assertEquals(3_000, ConnectionManager.backoffDelay(3, 500, 30_000, 0.5));
+        assertEquals(30_000, ConnectionManager.backoffDelay(12, 500, 30_000, 1.0));
+        // Большой номер попытки не переполняет сдвиг
+        assertEquals(15_000, ConnectionManager.backoffDelay(1_000, 500, 30_000, 0.0));
+    }
+}
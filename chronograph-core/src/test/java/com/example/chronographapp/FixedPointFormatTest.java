@@ -0,0 +1,69 @@
+package com.example.chronographapp;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class FixedPointFormatTest {
+
+    @Test
+    public void format_roundsAndPads() {
+        assertEquals("152.3", format(152.3f, 1, '.'));
+        assertEquals("152,30", format(152.3f, 2, ','));
+        assertEquals("0.05", format(0.05f, 2, '.'));
+        assertEquals("-3.5", format(-3.46f, 1, '.'));
+        assertEquals("0.0", format(-0.01f, 1, '.'));
+        assertEquals("10.0", format(9.96f, 1, '.'));
+        assertEquals("7", format(7.4f, 0, '.'));
+        assertEquals("NaN", format(Float.NaN, 2, '.'));
+    }
+
+    @Test
+    public void format_staysWithinHalfStepOfRandomValues() {
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            float value = (random.nextFloat() - 0.5f) * 2000f;
+            int decimals = random.nextInt(4);
+            String text = format(value, decimals, '.');
+            double parsed = Double.parseDouble(text);
+            assertEquals(text, value, parsed, 0.5 / Math.pow(10, decimals) + 1e-9);
+            int dot = text.indexOf('.');
+            assertEquals(text, decimals, dot < 0 ? 0 : text.length() - dot - 1);
+        }
+    }
+
+    @Test
+    public void formatLong_handlesSignAndExtremes() {
+        char[] buffer = new char[FixedPointFormat.MAX_LENGTH];
+        assertEquals("0", new String(buffer, 0, FixedPointFormat.formatLong(0, buffer, 0)));
+        assertEquals("-42", new String(buffer, 0, FixedPointFormat.formatLong(-42, buffer, 0)));
+        assertEquals(String.valueOf(Long.MAX_VALUE),
+                new String(buffer, 0, FixedPointFormat.formatLong(Long.MAX_VALUE, buffer, 0)));
+        assertEquals(String.valueOf(Long.MIN_VALUE),
+                new String(buffer, 0, FixedPointFormat.formatLong(Long.MIN_VALUE, buffer, 0)));
+    }
+
+    @Test
+    public void formatTimeOfDay_appliesZoneOffset() {
+        char[] buffer = new char[8];
+        long millis = 1_700_000_000_000L;
+
+        FixedPointFormat.formatTimeOfDay(millis, TimeZone.getTimeZone("UTC"), buffer, 0);
+        assertEquals("22:13:20", new String(buffer));
+
+        FixedPointFormat.formatTimeOfDay(millis, TimeZone.getTimeZone("Europe/Moscow"), buffer, 0);
+        assertEquals("01:13:20", new String(buffer));
+
+        FixedPointFormat.formatTimeOfDay(-1_000L, TimeZone.getTimeZone("UTC"), buffer, 0);
+        assertEquals("23:59:59", new String(buffer));
+    }
+
+    private static String format(float value, int decimals, char separator) {
+        char[] buffer = new char[FixedPointFormat.MAX_LENGTH];
+        int length = FixedPointFormat.format(value, decimals, separator, buffer, 0);
+        return new String(buffer, 0, length);
+    }
+}
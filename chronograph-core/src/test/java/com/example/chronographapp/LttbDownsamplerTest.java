@@ -0,0 +1,86 @@
+package com.example.chronographapp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class LttbDownsamplerTest {
+
+    @Test
+    public void shortSeries_keepsEveryPoint() {
+        float[] values = {300f, 301f, 299f, 302f};
+        int[] out = new int[8];
+
+        int count = LttbDownsampler.downsample(values, 0, values.length, 8, out);
+
+        assertEquals(4, count);
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, out[i]);
+        }
+    }
+
+    @Test
+    public void longSeries_isBoundedByThreshold() {
+        float[] values = new float[50_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 300f + (float) Math.sin(i * 0.01);
+        }
+        int[] out = new int[400];
+
+        int count = LttbDownsampler.downsample(values, 0, values.length, 400, out);
+
+        assertEquals(400, count);
+        assertEquals(0, out[0]);
+        assertEquals(values.length - 1, out[count - 1]);
+        for (int i = 1; i < count; i++) {
+            assertTrue("индексы по возрастанию", out[i] > out[i - 1]);
+        }
+    }
+
+    @Test
+    public void singleOutlier_survivesDownsampling() {
+        float[] values = new float[10_000];
+        Arrays.fill(values, 300f);
+        // Один выстрел с недобором пороха должен остаться на графике
+        values[6_543] = 250f;
+        int[] out = new int[100];
+
+        int count = LttbDownsampler.downsample(values, 0, values.length, 100, out);
+
+        boolean found = false;
+        for (int i = 0; i < count; i++) {
+            found |= out[i] == 6_543;
+        }
+        assertTrue(found);
+    }
+
+    @Test
+    public void subRange_returnsAbsoluteIndices() {
+        float[] values = new float[1_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i % 7;
+        }
+        int[] out = new int[20];
+
+        int count = LttbDownsampler.downsample(values, 200, 700, 20, out);
+
+        assertEquals(20, count);
+        assertEquals(200, out[0]);
+        assertEquals(699, out[count - 1]);
+        for (int i = 0; i < count; i++) {
+            assertTrue(out[i] >= 200 && out[i] < 700);
+        }
+    }
+
+    @Test
+    public void emptyRange_selectsNothing() {
+        assertEquals(0, LttbDownsampler.downsample(new float[5], 3, 3, 10, new int[10]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooSmallThreshold_isRejected() {
+        LttbDownsampler.downsample(new float[10], 0, 10, 2, new int[2]);
+    }
+}
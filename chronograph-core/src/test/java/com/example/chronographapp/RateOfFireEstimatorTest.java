@@ -0,0 +1,102 @@
+package com.example.chronographapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RateOfFireEstimatorTest {
+
+    private static final long MILLIS = 1_000_000L;
+    private static final float EPS = 1e-2f;
+
+    @Test
+    public void singleShot_hasNoRate() {
+        RateOfFireEstimator estimator = new RateOfFireEstimator();
+
+        estimator.onShot(5_000 * MILLIS);
+
+        assertEquals(0f, estimator.getInstantRpm(), 0f);
+        assertEquals(0f, estimator.getAverageRpm(), 0f);
+    }
+
+    @Test
+    public void steadyFullAuto_matchesCyclicRate() {
+        RateOfFireEstimator estimator = new RateOfFireEstimator(4, 2_000 * MILLIS);
+
+        // 100 мс между выстрелами - 600 выстр./мин
+        for (int i = 0; i < 20; i++) {
+            estimator.onShot(1_000 * MILLIS + i * 100 * MILLIS);
+        }
+
+        assertEquals(600f, estimator.getInstantRpm(), EPS);
+        assertEquals(600f, estimator.getAverageRpm(), EPS);
+    }
+
+    @Test
+    public void average_coversOnlyLastWindow() {
+        RateOfFireEstimator estimator = new RateOfFireEstimator(4, 2_000 * MILLIS);
+        long time = 0;
+
+        // Медленное начало, затем 4 интервала по 50 мс
+        for (int i = 0; i < 5; i++) {
+            estimator.onShot(time += 500 * MILLIS);
+        }
+        assertEquals(120f, estimator.getAverageRpm(), EPS);
+        for (int i = 0; i < 4; i++) {
+            estimator.onShot(time += 50 * MILLIS);
+        }
+
+        assertEquals(1200f, estimator.getInstantRpm(), EPS);
+        assertEquals(1200f, estimator.getAverageRpm(), EPS);
+    }
+
+    @Test
+    public void partialWindow_averagesAvailableIntervals() {
+        RateOfFireEstimator estimator = new RateOfFireEstimator(8, 2_000 * MILLIS);
+
+        estimator.onShot(0);
+        estimator.onShot(100 * MILLIS);
+        estimator.onShot(300 * MILLIS);
+
+        assertEquals(300f, estimator.getInstantRpm(), EPS);
+        // 2 интервала за 300 мс
+        assertEquals(400f, estimator.getAverageRpm(), EPS);
+    }
+
+    @Test
+    public void longPause_startsNewString() {
+        RateOfFireEstimator estimator = new RateOfFireEstimator(4, 2_000 * MILLIS);
+
+        estimator.onShot(0);
+        estimator.onShot(100 * MILLIS);
+        estimator.onShot(5_000 * MILLIS);
+
+        assertEquals(0f, estimator.getAverageRpm(), 0f);
+        estimator.onShot(5_200 * MILLIS);
+        assertEquals(300f, estimator.getAverageRpm(), EPS);
+    }
+
+    @Test
+    public void sameTimestamp_isIgnored() {
+        RateOfFireEstimator estimator = new RateOfFireEstimator();
+
+        estimator.onShot(0);
+        estimator.onShot(100 * MILLIS);
+        estimator.onShot(100 * MILLIS);
+
+        assertEquals(600f, estimator.getInstantRpm(), EPS);
+        assertEquals(600f, estimator.getAverageRpm(), EPS);
+    }
+
+    @Test
+    public void reset_forgetsString() {
+        RateOfFireEstimator estimator = new RateOfFireEstimator();
+        estimator.onShot(0);
+        estimator.onShot(100 * MILLIS);
+
+        estimator.reset();
+        estimator.onShot(150 * MILLIS);
+
+        assertEquals(0f, estimator.getAverageRpm(), 0f);
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.chronographapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RunningStatsTest {
+
+    @Test
+    public void empty_returnsZeros() {
+        RunningStats stats = new RunningStats();
+        assertTrue(stats.isEmpty());
+        assertEquals(0f, stats.getMean(), 0f);
+        assertEquals(0f, stats.getStandardDeviation(), 0f);
+        assertEquals(0f, stats.getExtremeSpread(), 0f);
+    }
+
+    @Test
+    public void knownSeries_matchesHandCalculation() {
+        RunningStats stats = new RunningStats();
+        for (float v : new float[]{150f, 152f, 148f, 151f, 149f}) {
+            stats.add(v);
+        }
+
+        assertEquals(5, stats.getCount());
+        assertEquals(150f, stats.getMean(), 1e-5f);
+        // Выборочная дисперсия: (0 + 4 + 4 + 1 + 1) / 4
+        assertEquals(2.5f, stats.getVariance(), 1e-5f);
+        assertEquals((float) Math.sqrt(2.5), stats.getStandardDeviation(), 1e-5f);
+        assertEquals(148f, stats.getMin(), 0f);
+        assertEquals(152f, stats.getMax(), 0f);
+        assertEquals(4f, stats.getExtremeSpread(), 0f);
+    }
+
+    @Test
+    public void removeExtremes_recoversMinAndMax() {
+        List<Float> values = new ArrayList<>();
+        RunningStats stats = new RunningStats(values::get);
+        for (float v : new float[]{150f, 152f, 148f, 152f, 149f}) {
+            values.add(v);
+            stats.add(v);
+        }
+
+        values.remove(148f);
+        stats.remove(148f);
+        assertEquals(149f, stats.getMin(), 0f);
+
+        // Дубликат максимума: удаление одного оставляет второй
+        values.remove(152f);
+        stats.remove(152f);
+        assertEquals(152f, stats.getMax(), 0f);
+        values.remove(152f);
+        stats.remove(152f);
+        assertEquals(150f, stats.getMax(), 0f);
+
+        assertEquals(2, stats.getCount());
+        assertEquals(149.5f, stats.getMean(), 1e-5f);
+    }
+
+    @Test
+    public void removingInnerValues_neverRescans() {
+        int[] reads = {0};
+        List<Float> values = new ArrayList<>();
+        RunningStats stats = new RunningStats(index -> {
+            reads[0]++;
+            return values.get(index);
+        });
+        for (int i = 0; i < 1_000; i++) {
+            values.add(100f + i % 50);
+            stats.add(100f + i % 50);
+        }
+
+        for (int i = 0; i < 500; i++) {
+            // Крайние 100 и 149 не трогаем
+            float value = 101f + i % 48;
+            values.remove(value);
+            stats.remove(value);
+        }
+
+        assertEquals(100f, stats.getMin(), 0f);
+        assertEquals(149f, stats.getMax(), 0f);
+        assertEquals(0, reads[0]);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void addOnlyStats_rejectRemovingLastExtreme() {
+        RunningStats stats = new RunningStats();
+        stats.add(150f);
+        stats.add(152f);
+        stats.remove(152f);
+    }
+
+    @Test
+    public void removeLast_leavesEmpty() {
+        RunningStats stats = new RunningStats();
+        stats.add(150f);
+        stats.remove(150f);
+
+        assertTrue(stats.isEmpty());
+        stats.add(140f);
+        assertEquals(140f, stats.getMin(), 0f);
+        assertEquals(140f, stats.getMax(), 0f);
+    }
+
+    @Test
+    public void randomAddsAndRemoves_matchFullRecalculation() {
+        Random random = new Random(42);
+        List<Float> values = new ArrayList<>();
+        RunningStats stats = new RunningStats(values::get);
+
+        for (int step = 0; step < 20_000; step++) {
+            if (!values.isEmpty() && random.nextInt(3) == 0) {
+                // Источник уже без удаленного значения, как история в ShotRepository
+                stats.remove(values.remove(random.nextInt(values.size())));
+            } else {
+                float value = 120f + random.nextInt(800) / 10f;
+                values.add(value);
+                stats.add(value);
+            }
+
+            if (step % 97 == 0) {
+                assertMatches(values, stats);
+            }
+        }
+        assertMatches(values, stats);
+    }
+
+    @Test
+    public void resetToVelocities_readsCursorColumn() {
+        ShotStore store = new ShotStore();
+        store.add(1, 150f, 2.8f, 1L);
+        store.add(2, 154f, 3.0f, 2L);
+
+        RunningStats velocities = new RunningStats();
+        velocities.resetToVelocities(store.cursor());
+        RunningStats energies = new RunningStats();
+        energies.resetToEnergies(store.cursor());
+
+        assertEquals(152f, velocities.getMean(), 1e-5f);
+        assertEquals(4f, velocities.getExtremeSpread(), 0f);
+        assertEquals(2.9f, energies.getMean(), 1e-5f);
+    }
+
+    private static void assertMatches(List<Float> values, RunningStats stats) {
+        assertEquals(values.size(), stats.getCount());
+        if (values.isEmpty()) {
+            return;
+        }
+
+        double sum = 0;
+        float min = Float.MAX_VALUE, max = -Float.MAX_VALUE;
+        for (float v : values) {
+            sum += v;
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+        }
+        double mean = sum / values.size();
+        double squares = 0;
+        for (float v : values) {
+            squares += (v - mean) * (v - mean);
+        }
+        double sd = values.size() > 1 ? Math.sqrt(squares / (values.size() - 1)) : 0;
+
+        assertEquals(mean, stats.getMean(), 1e-3);
+        assertEquals(sd, stats.getStandardDeviation(), 1e-3);
+        assertEquals(min, stats.getMin(), 0f);
+        assertEquals(max, stats.getMax(), 0f);
+    }
+
+    @Test
+    public void set_copiesStateIncludingExtremes() {
+        RunningStats source = new RunningStats();
+        for (float value : new float[]{3f, 9f, 1f, 7f, 9f}) {
+            source.add(value);
+        }
+        source.remove(9f);
+
+        List<Float> values = new ArrayList<>(List.of(3f, 9f, 1f, 7f));
+        RunningStats copy = new RunningStats(values::get);
+        copy.add(100f);
+        copy.set(source);
+        source.add(50f);
+
+        assertEquals(4, copy.getCount());
+        assertEquals(20.0, copy.getSum(), 1e-9);
+        assertEquals(1f, copy.getMin(), 0f);
+        assertEquals(9f, copy.getMax(), 0f);
+        values.remove(9f);
+        copy.remove(9f);
+        assertEquals(7f, copy.getMax(), 0f);
+    }
+}
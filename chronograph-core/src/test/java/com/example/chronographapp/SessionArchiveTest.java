@@ -0,0 +1,210 @@
+package com.example.chronographapp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SessionArchiveTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void closedSession_isIndexedWithStatistics() throws IOException {
+        File dir = folder.newFolder("sessions");
+        SessionArchive archive = new SessionArchive(dir);
+        SessionSummary session = archive.startSession(1_000L, 0.25f, "98:D3:31:FB:12:34");
+
+        writeShots(archive, session.getId(), 150f, 160f, 170f);
+        ShotStore store = new ShotStore();
+        archive.loadSession(session.getId(), store);
+        SessionSummary closed = archive.closeActiveSession(2_000L, store);
+
+        assertNull(archive.getActiveSession());
+        assertEquals(3, closed.getShotCount());
+        assertEquals(150f, closed.getMinVelocity(), 0f);
+        assertEquals(170f, closed.getMaxVelocity(), 0f);
+        assertEquals(160f, closed.getMeanVelocity(), 1e-4f);
+
+        List<SessionSummary> sessions = new SessionArchive(dir).listSessions();
+        assertEquals(1, sessions.size());
+        SessionSummary stored = sessions.get(0);
+        assertEquals(session.getId(), stored.getId());
+        assertEquals(1_000L, stored.getStartMillis());
+        assertEquals(2_000L, stored.getEndMillis());
+        assertEquals(0.25f, stored.getMass(), 0f);
+        assertEquals("98:D3:31:FB:12:34", stored.getDevice());
+        assertEquals(160f, stored.getMeanVelocity(), 1e-4f);
+    }
+
+    @Test
+    public void emptySession_isNotIndexed() throws IOException {
+        File dir = folder.newFolder("sessions");
+        SessionArchive archive = new SessionArchive(dir);
+        SessionSummary session = archive.startSession(1_000L, 0.25f, "");
+        writeShots(archive, session.getId());
+
+        assertNull(archive.closeActiveSession(2_000L, new ShotStore()));
+        assertTrue(archive.listSessions().isEmpty());
+        assertFalse(archive.getJournalFile(session.getId()).exists());
+    }
+
+    @Test
+    public void closeFromJournal_countsShotsOnDisk() throws IOException {
+        File dir = folder.newFolder("sessions");
+        SessionArchive archive = new SessionArchive(dir);
+        SessionSummary session = archive.startSession(1_000L, 0.25f, "");
+        writeShots(archive, session.getId(), 150f, 160f, 170f, 180f);
+
+        SessionSummary closed = archive.closeActiveSession(2_000L);
+
+        assertNull(archive.getActiveSession());
+        assertEquals(4, closed.getShotCount());
+        assertEquals(165f, closed.getMeanVelocity(), 1e-4f);
+        assertEquals(1f, closed.getMeanEnergy(), 0f);
+        assertEquals(1, archive.listSessions().size());
+
+        // Пустой журнал в индекс не попадает
+        SessionSummary empty = archive.startSession(3_000L, 0.25f, "");
+        writeShots(archive, empty.getId());
+        assertNull(archive.closeActiveSession(4_000L));
+        assertFalse(archive.getJournalFile(empty.getId()).exists());
+        assertNull(archive.closeActiveSession(5_000L));
+    }
+
+    @Test
+    public void crashAfterIndexAppend_doesNotReopenClosedSession() throws IOException {
+        File dir = folder.newFolder("sessions");
+        SessionArchive archive = new SessionArchive(dir);
+        SessionSummary session = archive.startSession(1_000L, 0.25f, "");
+        writeShots(archive, session.getId(), 150f, 160f);
+        File activeFile = new File(dir, "active.session");
+        byte[] description = Files.readAllBytes(activeFile.toPath());
+
+        archive.closeActiveSession(2_000L);
+        // Процесс погиб до удаления описания открытой сессии
+        Files.write(activeFile.toPath(), description);
+
+        SessionArchive restarted = new SessionArchive(dir);
+        assertNull(restarted.getActiveSession());
+        assertFalse(activeFile.exists());
+        SessionSummary next = restarted.startSession(1_500L, 0.25f, "");
+        assertTrue(next.getId() > session.getId());
+        assertEquals(1, restarted.listSessions().size());
+    }
+
+    @Test
+    public void closedSession_keepsHistogramWithoutJournal() throws IOException {
+        File dir = folder.newFolder("sessions");
+        SessionArchive archive = new SessionArchive(dir);
+        SessionSummary session = archive.startSession(1_000L, 0.25f, "");
+        writeShots(archive, session.getId(), 150f, 160f, 160f, 170f);
+        archive.closeActiveSession(2_000L);
+        assertTrue(archive.getHistogramFile(session.getId()).exists());
+
+        // Счетчики читаются из своего файла, журнал для этого не нужен
+        assertTrue(archive.getJournalFile(session.getId()).delete());
+        VelocityHistogram histogram = new SessionArchive(dir).loadHistogram(session.getId());
+
+        assertEquals(4, histogram.getCount());
+        assertEquals(160f, histogram.getQuantile(0.5), 1e-4f);
+        assertEquals(170f, histogram.getMax(), 1e-4f);
+        assertEquals(8.165f, histogram.getStandardDeviation(), 1e-3f);
+    }
+
+    @Test
+    public void missingOrDamagedHistogram_isRebuiltFromJournal() throws IOException {
+        File dir = folder.newFolder("sessions");
+        SessionArchive archive = new SessionArchive(dir);
+        SessionSummary session = archive.startSession(1_000L, 0.25f, "");
+        writeShots(archive, session.getId(), 150f, 160f, 170f);
+        archive.closeActiveSession(2_000L);
+        File file = archive.getHistogramFile(session.getId());
+
+        // Сессия закрыта до появления файлов счетчиков
+        assertTrue(file.delete());
+        assertEquals(3, archive.loadHistogram(session.getId()).getCount());
+        assertTrue(file.exists());
+
+        Files.write(file.toPath(), new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+        assertEquals(3, archive.loadHistogram(session.getId()).getCount());
+        assertEquals(3, archive.loadHistogram(session.getId()).getCount());
+    }
+
+    @Test
+    public void activeSession_survivesRestart() throws IOException {
+        File dir = folder.newFolder("sessions");
+        SessionArchive archive = new SessionArchive(dir);
+        SessionSummary session = archive.startSession(5_000L, 0.20f, "");
+        archive.updateActiveSession(0.28f, "HC-05");
+
+        SessionSummary resumed = new SessionArchive(dir).getActiveSession();
+        assertNotNull(resumed);
+        assertEquals(session.getId(), resumed.getId());
+        assertEquals(0.28f, resumed.getMass(), 0f);
+        assertEquals("HC-05", resumed.getDevice());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void startSession_failsWhileAnotherIsOpen() throws IOException {
+        SessionArchive archive = new SessionArchive(folder.newFolder("sessions"));
+        archive.startSession(1_000L, 0.25f, "");
+        archive.startSession(2_000L, 0.25f, "");
+    }
+
+    @Test
+    public void findSession_usesIncreasingIds() throws IOException {
+        SessionArchive archive = new SessionArchive(folder.newFolder("sessions"));
+        long[] ids = new long[50];
+        for (int i = 0; i < ids.length; i++) {
+            // Часы могут идти назад - id все равно должны расти
+            SessionSummary session = archive.startSession(1_000L, 0.25f, "");
+            ids[i] = session.getId();
+            ShotStore store = new ShotStore();
+            store.add(1, 100f + i, 1f, 1_000L);
+            archive.closeActiveSession(1_000L, store);
+        }
+
+        for (int i = 1; i < ids.length; i++) {
+            assertTrue(ids[i] > ids[i - 1]);
+        }
+        for (int i = 0; i < ids.length; i++) {
+            SessionSummary found = archive.findSession(ids[i]);
+            assertNotNull(found);
+            assertEquals(100f + i, found.getMeanVelocity(), 0f);
+        }
+        assertNull(archive.findSession(ids[ids.length - 1] + 1));
+        assertNull(archive.findSession(0L));
+    }
+
+    @Test
+    public void longDeviceName_isTruncated() throws IOException {
+        SessionArchive archive = new SessionArchive(folder.newFolder("sessions"));
+        String device = "Хронограф-с-очень-длинным-именем";
+        archive.startSession(1_000L, 0.25f, device);
+        ShotStore store = new ShotStore();
+        store.add(1, 150f, 2.8f, 1_000L);
+        archive.closeActiveSession(2_000L, store);
+
+        String stored = archive.listSessions().get(0).getDevice();
+        assertTrue(device.startsWith(stored));
+        assertTrue(stored.length() > 0);
+    }
+
+    private static void writeShots(SessionArchive archive, long sessionId, float... velocities)
+            throws IOException {
+        File file = archive.getJournalFile(sessionId);
+        try (ShotJournal journal = ShotJournal.open(file, 4, null)) {
+            for (int i = 0; i < velocities.length; i++) {
+                journal.append(i + 1, velocities[i], 1f, 1_000L + i);
+            }
+        }
+    }
+}
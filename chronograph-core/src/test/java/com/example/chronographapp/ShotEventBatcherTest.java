@@ -0,0 +1,73 @@
+package com.example.chronographapp;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ShotEventBatcherTest {
+
+    @Test
+    public void onlyFirstOfferSchedulesDrain() {
+        ShotEventBatcher batcher = new ShotEventBatcher();
+
+        assertTrue(batcher.offer(1, 150f, 2.8f, 1_001L));
+        for (int i = 2; i <= 100; i++) {
+            assertFalse(batcher.offer(i, 150f, 2.8f, 1_000L + i));
+        }
+
+        int[] expected = {1};
+        int drained = batcher.drainTo((shotNumber, velocity, energy, timeMillis) -> {
+            // Время выстрела сохраняется таким, каким его сняли при декодировании
+            assertEquals(1_000L + shotNumber, timeMillis);
+            assertEquals(expected[0]++, shotNumber);
+        });
+        assertEquals(100, drained);
+
+        // После разбора следующая пачка снова требует планирования
+        assertTrue(batcher.offer(101, 150f, 2.8f, 1_101L));
+    }
+
+    @Test
+    public void emptyDrain_returnsZero() {
+        ShotEventBatcher batcher = new ShotEventBatcher();
+        assertEquals(0, batcher.drainTo((shotNumber, velocity, energy, timeMillis) -> fail()));
+    }
+
+    @Test
+    public void concurrentProducer_losesNothing() throws Exception {
+        ShotEventBatcher batcher = new ShotEventBatcher();
+        int total = 200_000;
+        AtomicInteger schedules = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < total; i++) {
+                if (batcher.offer(i, i, 0f, i)) {
+                    schedules.incrementAndGet();
+                }
+            }
+            done.countDown();
+        });
+        producer.start();
+
+        int[] next = {0};
+        ShotEventBatcher.Sink sink = (shotNumber, velocity, energy, timeMillis) -> {
+            assertEquals(next[0], shotNumber);
+            assertEquals(shotNumber, timeMillis);
+            next[0]++;
+        };
+        int drains = 0;
+        while (done.getCount() > 0 || next[0] < total) {
+            if (batcher.drainTo(sink) > 0) {
+                drains++;
+            }
+        }
+        producer.join();
+
+        assertEquals(total, next[0]);
+        assertTrue(drains <= schedules.get());
+    }
+}
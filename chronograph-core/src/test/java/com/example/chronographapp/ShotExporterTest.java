@@ -0,0 +1,130 @@
+package com.example.chronographapp;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class ShotExporterTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File journalOf(int count) throws IOException {
+        File file = folder.newFile();
+        try (ShotJournal journal = ShotJournal.open(file, 1024, e -> fail(e.toString()))) {
+            for (int i = 0; i < count; i++) {
+                journal.append(i + 1, 100f + (i % 1000) / 10f, (i % 500) / 100f,
+                        1_700_000_000_000L + i * 1000L);
+            }
+        }
+        return file;
+    }
+
+    @Test
+    public void csv_writesHeaderAndRows() throws IOException {
+        File journal = journalOf(2);
+        StringWriter out = new StringWriter();
+
+        assertEquals(2, ShotExporter.exportCsv(journal, out, ',', UTC));
+
+        // 1_700_000_000 с = 14.11.2023 22:13:20 UTC
+        assertEquals(ShotExporter.CSV_HEADER
+                        + "1;22:13:20;100,0;0,00\n"
+                        + "2;22:13:21;100,1;0,01\n",
+                out.toString());
+    }
+
+    @Test
+    public void columns_layoutIsReadable() throws IOException {
+        File journal = journalOf(3);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(3, ShotExporter.exportColumns(journal, out));
+
+        ByteBuffer data = ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(ShotExporter.COLUMNS_HEADER_SIZE + 3 * (4 + 4 + 4 + 8), data.remaining());
+        assertEquals(ShotExporter.COLUMNS_MAGIC, data.getInt());
+        assertEquals(ShotExporter.COLUMNS_VERSION, data.getShort());
+        assertEquals(ShotExporter.COLUMN_COUNT, data.getShort());
+        assertEquals(3, data.getInt());
+        data.getInt();
+
+        for (int i = 0; i < 3; i++) assertEquals(i + 1, data.getInt());
+        for (int i = 0; i < 3; i++) assertEquals(100f + i / 10f, data.getFloat(), 0f);
+        for (int i = 0; i < 3; i++) assertEquals(i / 100f, data.getFloat(), 0f);
+        for (int i = 0; i < 3; i++) assertEquals(1_700_000_000_000L + i * 1000L, data.getLong());
+    }
+
+    @Test
+    public void hundredThousandRows_constantMemory() throws IOException {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        int rows = 100_000;
+        File journal = journalOf(rows);
+        CountingStream sink = new CountingStream();
+
+        // Прогрев
+        exportCsv(journal, new CountingStream());
+
+        long tid = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(tid);
+        long started = System.nanoTime();
+        assertEquals(rows, exportCsv(journal, sink));
+        long csvMillis = (System.nanoTime() - started) / 1_000_000;
+        long allocated = threads.getThreadAllocatedBytes(tid) - before;
+
+        CountingStream columnSink = new CountingStream();
+        assertEquals(rows, ShotExporter.exportColumns(journal, columnSink));
+
+        assertEquals(ShotExporter.COLUMNS_HEADER_SIZE + rows * 20L, columnSink.count);
+        // Буферы фиксированного размера, а не копия всего файла
+        assertTrue("выделено " + allocated + " байт при выводе " + sink.count,
+                allocated < 1024 * 1024 && allocated < sink.count / 4);
+        assertTrue("CSV " + csvMillis + " мс", csvMillis < 5_000);
+    }
+
+    private static int exportCsv(File journal, OutputStream out) throws IOException {
+        Writer writer = new java.io.BufferedWriter(
+                new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        int count = ShotExporter.exportCsv(journal, writer, '.', UTC);
+        writer.flush();
+        return count;
+    }
+
+    private static class CountingStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,423 @@
+package com.example.chronographapp;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class ShotFrameDecoderTest {
+
+    private static final float EPS = 1e-4f;
+
+    private static class RecordingListener implements ShotFrameDecoder.Listener {
+        final int[] numbers = new int[16];
+        final float[] velocities = new float[16];
+        final float[] energies = new float[16];
+        int count;
+
+        @Override
+        public void onShot(int shotNumber, float velocity, float energy) {
+            if (count < numbers.length) {
+                numbers[count] = shotNumber;
+                velocities[count] = velocity;
+                energies[count] = energy;
+            }
+            count++;
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void singleFrame_isDecoded() {
+        RecordingListener listener = new RecordingListener();
+        ShotFrameDecoder decoder = new ShotFrameDecoder(listener);
+
+        byte[] data = bytes("Shot #7\r\nSpeed: 152.34\r\nEnergy: 2.90\r\n");
+        decoder.feed(data, 0, data.length);
+
+        assertEquals(1, listener.count);
+        assertEquals(7, listener.numbers[0]);
+        assertEquals(152.34f, listener.velocities[0], EPS);
+        assertEquals(2.90f, listener.energies[0], EPS);
+        assertEquals(0, decoder.getMalformedCount());
+    }
+
+    @Test
+    public void splitFrame_isDecodedAtEveryBoundary() {
+        byte[] data = bytes("Shot #1\nSpeed: 98.5\nEnergy: 1.21\n");
+
+        for (int split = 1; split < data.length; split++) {
+            RecordingListener listener = new RecordingListener();
+            ShotFrameDecoder decoder = new ShotFrameDecoder(listener);
+
+            decoder.feed(data, 0, split);
+            decoder.feed(data, split, data.length - split);
+
+            assertEquals("split at " + split, 1, listener.count);
+            assertEquals(98.5f, listener.velocities[0], EPS);
+            assertEquals(1.21f, listener.energies[0], EPS);
+        }
+    }
+
+    @Test
+    public void byteByByte_isDecoded() {
+        RecordingListener listener = new RecordingListener();
+        ShotFrameDecoder decoder = new ShotFrameDecoder(listener);
+
+        byte[] data = bytes("Shot #3\nSpeed: 120.0\nEnergy: 1.80\n");
+        for (int i = 0; i < data.length; i++) {
+            decoder.feed(data, i, 1);
+        }
+
+        assertEquals(1, listener.count);
+        assertEquals(3, listener.numbers[0]);
+    }
+
+    @Test
+    public void coalescedFrames_allEmitted() {
+        RecordingListener listener = new RecordingListener();
+        ShotFrameDecoder decoder = new ShotFrameDecoder(listener);
+
+        byte[] data = bytes("Shot #1\nSpeed: 150.1\nEnergy: 2.81\n"
+                + "Shot #2\nSpeed: 151.2\nEnergy: 2.85\n"
+                + "Shot #3\nSpeed: 149.9\nEnergy: 2.80\n");
+        decoder.feed(data, 0, data.length);
+
+        assertEquals(3, listener.count);
+        assertEquals(1, listener.numbers[0]);
+        assertEquals(2, listener.numbers[1]);
+        assertEquals(3, listener.numbers[2]);
+        assertEquals(151.2f, listener.velocities[1], EPS);
+        assertEquals(2.80f, listener.energies[2], EPS);
+    }
+
+    @Test
+    public void garbage_isCountedAndSkipped() {
+        RecordingListener listener = new RecordingListener();
+        ShotFrameDecoder decoder = new ShotFrameDecoder(listener);
+
+        byte[] data = bytes("Chronograph ready\n"
+                + "Shot #1\nSpeed: 1x0\nEnergy: 2.0\n"
+                + "Shot #2\nSpeed: 140.0\nEnergy: 1.96\n");
+        decoder.feed(data, 0, data.length);
+
+        assertEquals(1, listener.count);
+        assertEquals(2, listener.numbers[0]);
+        assertEquals(2, decoder.getMalformedCount());
+    }
+
+    @Test
+    public void overlongLine_isDropped() {
+        RecordingListener listener = new RecordingListener();
+        ShotFrameDecoder decoder = new ShotFrameDecoder(listener);
+
+        StringBuilder noise = new StringBuilder();
+        for (int i = 0; i < ShotFrameDecoder.MAX_LINE_LENGTH * 3; i++) {
+            noise.append('x');
+        }
+        byte[] head = bytes(noise.substring(0, 10));
+        byte[] tail = bytes(noise.substring(10) + "\nShot #5\nSpeed: 100\nEnergy: 1.25\n");
+        decoder.feed(head, 0, head.length);
+        decoder.feed(tail, 0, tail.length);
+
+        assertEquals(1, listener.count);
+        assertEquals(5, listener.numbers[0]);
+        assertEquals(100f, listener.velocities[0], EPS);
+    }
+
+    @Test
+    public void parseDecimal_matchesFloatParse() {
+        String[] samples = {"0", "1", "152.34", "0.05", "-3.5", "+7.25", "999999.9", "12."};
+        for (String sample : samples) {
+            byte[] data = bytes(sample);
+            assertEquals(sample, Float.parseFloat(sample),
+                    ShotFrameDecoder.parseDecimal(data, 0, data.length), EPS);
+        }
+        byte[] bad = bytes("1.2.3");
+        assertTrue(Float.isNaN(ShotFrameDecoder.parseDecimal(bad, 0, bad.length)));
+    }
+
+    @Test
+    public void steadyState_doesNotAllocate() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        RecordingListener listener = new RecordingListener();
+        ShotFrameDecoder decoder = new ShotFrameDecoder(listener);
+
+        // Нарезка куска специально не совпадает с границами кадров
+        byte[] data = bytes("Shot #12\r\nSpeed: 152.30\r\nEnergy: 2.90\r\n"
+                + "Shot #13\r\nSpeed: 151.80\r\nEnergy: 2.88\r\n");
+        int chunk = 17;
+
+        for (int i = 0; i < 20_000; i++) {
+            feedInChunks(decoder, data, chunk);
+        }
+
+        long tid = Thread.currentThread().getId();
+        int rounds = 50_000;
+        long before = threads.getThreadAllocatedBytes(tid);
+        for (int i = 0; i < rounds; i++) {
+            feedInChunks(decoder, data, chunk);
+        }
+        long allocated = threads.getThreadAllocatedBytes(tid) - before;
+
+        assertEquals(2 * (20_000 + rounds), listener.count);
+        // Допускаем шум самого замера, но не байты на выстрел
+        assertTrue("allocated " + allocated + " bytes for " + (2 * rounds) + " shots",
+                allocated < 1024);
+    }
+
+    private static final String BINARY_ACK = "OK:BIN 16000000 100\r\n";
+
+    private static ShotFrameDecoder binaryDecoder(RecordingListener listener) {
+        ShotFrameDecoder decoder = new ShotFrameDecoder(listener);
+        decoder.setMassGrams(0.25f);
+        byte[] ack = bytes(BINARY_ACK);
+        decoder.feed(ack, 0, ack.length);
+        assertTrue(decoder.isBinaryMode());
+        return decoder;
+    }
+
+    private static byte[] binaryFrames(int firstSequence, long... ticks) {
+        byte[] data = new byte[ticks.length * BinaryShotFrame.LENGTH];
+        for (int i = 0; i < ticks.length; i++) {
+            BinaryShotFrame.encode(firstSequence + i, ticks[i], data, i * BinaryShotFrame.LENGTH);
+        }
+        return data;
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] result = new byte[first.length + second.length];
+        System.arraycopy(first, 0, result, 0, first.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    @Test
+    public void binaryAck_switchesModeInsideChunk() {
+        RecordingListener listener = new RecordingListener();
+        ShotFrameDecoder decoder = new ShotFrameDecoder(listener);
+        decoder.setMassGrams(0.25f);
+
+        // 0.1 м за 10000 тактов при 16 МГц - 160 м/с
+        byte[] data = concat(bytes("Shot #1\nSpeed: 98.5\nEnergy: 1.21\n" + BINARY_ACK),
+                binaryFrames(2, 10_000));
+        decoder.feed(data, 0, data.length);
+
+        assertTrue(decoder.isBinaryMode());
+        assertEquals(2, listener.count);
+        assertEquals(98.5f, listener.velocities[0], EPS);
+        assertEquals(2, listener.numbers[1]);
+        assertEquals(160f, listener.velocities[1], EPS);
+        assertEquals(Ballistics.energyJoules(0.25f, 160f), listener.energies[1], EPS);
+    }
+
+    @Test
+    public void binaryFrame_isDecodedAtEveryBoundary() {
+        byte[] data = binaryFrames(40, 10_000, 12_500);
+
+        for (int split = 1; split < data.length; split++) {
+            RecordingListener listener = new RecordingListener();
+            ShotFrameDecoder decoder = binaryDecoder(listener);
+
+            decoder.feed(data, 0, split);
+            decoder.feed(data, split, data.length - split);
+
+            assertEquals("split at " + split, 2, listener.count);
+            assertEquals(41, listener.numbers[1]);
+            assertEquals(128f, listener.velocities[1], EPS);
+        }
+    }
+
+    @Test
+    public void binaryCorruption_isCountedAndResynced() {
+        RecordingListener listener = new RecordingListener();
+        ShotFrameDecoder decoder = binaryDecoder(listener);
+
+        byte[] data = binaryFrames(1, 10_000, 10_000, 10_000);
+        data[BinaryShotFrame.LENGTH + 4] ^= 0x10;
+        // Шум с ложным синхробайтом перед первым кадром
+        byte[] stream = concat(new byte[]{0x00, BinaryShotFrame.SYNC, 0x13}, data);
+
+        for (int chunk : new int[]{stream.length, 4, 1}) {
+            listener.count = 0;
+            decoder.reset();
+            byte[] ack = bytes(BINARY_ACK);
+            decoder.feed(ack, 0, ack.length);
+            long crcErrorsBefore = decoder.getCrcErrorCount();
+
+            feedInChunks(decoder, stream, chunk);
+
+            assertEquals("chunk " + chunk, 2, listener.count);
+            assertEquals(1, listener.numbers[0]);
+            assertEquals(3, listener.numbers[1]);
+            assertTrue(decoder.getCrcErrorCount() - crcErrorsBefore >= 1);
+            assertTrue(decoder.isBinaryMode());
+        }
+    }
+
+    @Test
+    public void binaryAckWithoutCalibration_staysInText() {
+        RecordingListener listener = new RecordingListener();
+        ShotFrameDecoder decoder = new ShotFrameDecoder(listener);
+
+        byte[] data = bytes("OK:BIN\nShot #5\nSpeed: 120.0\nEnergy: 1.80\n");
+        decoder.feed(data, 0, data.length);
+
+        assertFalse(decoder.isBinaryMode());
+        assertEquals(1, decoder.getMalformedCount());
+        assertEquals(1, listener.count);
+        assertEquals(5, listener.numbers[0]);
+    }
+
+    @Test
+    public void binaryMode_fallsBackToTextWhenDeviceRestarts() {
+        RecordingListener listener = new RecordingListener();
+        ShotFrameDecoder decoder = binaryDecoder(listener);
+
+        // Перезапущенный хронограф шлет приветствие и снова текстовые кадры;
+        // приветствия хватает, чтобы разборщик успел вернуться к тексту
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5; i++) {
+            text.append("Chronograph ready\n");
+        }
+        text.append("Shot #1\nSpeed: 101.0\nEnergy: 1.28\n");
+        byte[] data = bytes(text.toString());
+        feedInChunks(decoder, data, 7);
+
+        assertFalse(decoder.isBinaryMode());
+        assertEquals(1, listener.count);
+        assertEquals(101f, listener.velocities[0], EPS);
+    }
+
+    @Test
+    public void reset_returnsToText() {
+        RecordingListener listener = new RecordingListener();
+        ShotFrameDecoder decoder = binaryDecoder(listener);
+
+        decoder.reset();
+        byte[] data = bytes("Shot #9\nSpeed: 99.0\nEnergy: 1.22\n");
+        decoder.feed(data, 0, data.length);
+
+        assertFalse(decoder.isBinaryMode());
+        assertEquals(1, listener.count);
+        assertEquals(9, listener.numbers[0]);
+    }
+
+    private static byte[] textFrames(int... numbers) {
+        StringBuilder text = new StringBuilder();
+        for (int number : numbers) {
+            text.append("Shot #").append(number).append("\nSpeed: 150.00\nEnergy: 2.81\n");
+        }
+        return bytes(text.toString());
+    }
+
+    @Test
+    public void sequenceGap_countsDroppedShots() {
+        RecordingListener listener = new RecordingListener();
+        ShotFrameDecoder decoder = new ShotFrameDecoder(listener);
+
+        byte[] data = textFrames(1, 2, 5, 6, 10);
+        decoder.feed(data, 0, data.length);
+
+        assertEquals(5, listener.count);
+        assertEquals(5, decoder.getDecodedCount());
+        assertEquals(5, decoder.getDroppedCount());
+        assertEquals(0, decoder.getDuplicateCount());
+        assertEquals(0, decoder.getSequenceResetCount());
+    }
+
+    @Test
+    public void duplicateShot_isCountedAndNotDelivered() {
+        RecordingListener listener = new RecordingListener();
+        ShotFrameDecoder decoder = new ShotFrameDecoder(listener);
+
+        byte[] data = textFrames(7, 8, 8, 9);
+        decoder.feed(data, 0, data.length);
+
+        assertEquals(3, listener.count);
+        assertEquals(9, listener.numbers[2]);
+        assertEquals(1, decoder.getDuplicateCount());
+        assertEquals(0, decoder.getDroppedCount());
+    }
+
+    @Test
+    public void deviceRestart_isCountedAsResetNotLoss() {
+        RecordingListener listener = new RecordingListener();
+        ShotFrameDecoder decoder = new ShotFrameDecoder(listener);
+
+        byte[] data = textFrames(41, 42, 1, 2, 30, 12);
+        decoder.feed(data, 0, data.length);
+
+        assertEquals(6, listener.count);
+        assertEquals(2, decoder.getSequenceResetCount());
+        assertEquals(27, decoder.getDroppedCount());
+    }
+
+    @Test
+    public void binarySequence_wrapsWithoutLoss() {
+        RecordingListener listener = new RecordingListener();
+        ShotFrameDecoder decoder = binaryDecoder(listener);
+
+        byte[] data = concat(binaryFrames(65_534, 10_000, 10_000, 10_000),
+                binaryFrames(3, 10_000));
+        decoder.feed(data, 0, data.length);
+
+        // 65534, 65535, 0, затем 3: потеряны 1 и 2
+        assertEquals(4, listener.count);
+        assertEquals(0, listener.numbers[2]);
+        assertEquals(2, decoder.getDroppedCount());
+        assertEquals(0, decoder.getSequenceResetCount());
+    }
+
+    @Test
+    public void reset_startsSequenceAnew() {
+        RecordingListener listener = new RecordingListener();
+        ShotFrameDecoder decoder = new ShotFrameDecoder(listener);
+
+        byte[] first = textFrames(3);
+        decoder.feed(first, 0, first.length);
+        decoder.reset();
+        byte[] second = textFrames(20);
+        decoder.feed(second, 0, second.length);
+
+        assertEquals(2, listener.count);
+        assertEquals(0, decoder.getDroppedCount());
+    }
+
+    @Test
+    public void commandAck_isReportedInTextAndBetweenBinaryFrames() {
+        RecordingListener listener = new RecordingListener();
+        ShotFrameDecoder decoder = new ShotFrameDecoder(listener);
+        StringBuilder acks = new StringBuilder();
+        decoder.setAckListener(command -> acks.append(command).append(';'));
+        decoder.setMassGrams(0.25f);
+
+        byte[] text = bytes("OK:MASS:0.25\r\n" + BINARY_ACK);
+        byte[] binary = concat(concat(binaryFrames(1, 10_000), bytes("OK:MASS:0.30\n")),
+                binaryFrames(2, 10_000));
+        byte[] data = concat(text, binary);
+        feedInChunks(decoder, data, 5);
+
+        assertEquals("MASS:0.25;MODE:BIN;MASS:0.30;", acks.toString());
+        assertEquals(2, listener.count);
+        assertTrue(decoder.isBinaryMode());
+    }
+
+    private static void feedInChunks(ShotFrameDecoder decoder, byte[] data, int chunk) {
+        for (int offset = 0; offset < data.length; offset += chunk) {
+            decoder.feed(data, offset, Math.min(chunk, data.length - offset));
+        }
+    }
+}
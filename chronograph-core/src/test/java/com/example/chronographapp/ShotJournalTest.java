@@ -0,0 +1,295 @@
+package com.example.chronographapp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.*;
+
+public class ShotJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void millionRecords_roundTripQuickly() throws IOException {
+        File file = folder.newFile("session.journal");
+        int count = 1_000_000;
+
+        long started = System.nanoTime();
+        try (ShotJournal journal = ShotJournal.open(file, 1024, e -> fail(e.toString()))) {
+            for (int i = 0; i < count; i++) {
+                journal.append(i + 1, 100f + (i % 1000) / 10f, i % 50 / 10f, 1_700_000_000_000L + i);
+            }
+        }
+        long written = System.nanoTime();
+
+        assertEquals(ShotJournal.HEADER_SIZE + (long) count * ShotJournal.RECORD_SIZE, file.length());
+
+        ShotStore store = new ShotStore();
+        assertEquals(count, ShotJournal.load(file, store));
+        long loaded = System.nanoTime();
+
+        assertEquals(count, store.size());
+        for (int i = 0; i < count; i += 9973) {
+            assertEquals(i + 1, store.getShotNumber(i));
+            assertEquals(100f + (i % 1000) / 10f, store.getVelocity(i), 0f);
+            assertEquals(i % 50 / 10f, store.getEnergy(i), 0f);
+            assertEquals(1_700_000_000_000L + i, store.getTimeMillis(i));
+        }
+
+        long writeMillis = (written - started) / 1_000_000;
+        long loadMillis = (loaded - written) / 1_000_000;
+        // Щедрый порог, чтобы тест не мигал на медленных машинах CI
+        assertTrue("запись " + writeMillis + " мс", writeMillis < 5_000);
+        assertTrue("загрузка " + loadMillis + " мс", loadMillis < 5_000);
+    }
+
+    @Test
+    public void reopen_appendsAfterExistingRecords() throws IOException {
+        File file = folder.newFile("session.journal");
+        try (ShotJournal journal = ShotJournal.open(file, 4, null)) {
+            journal.append(1, 150f, 2.8f, 10L);
+            journal.append(2, 151f, 2.9f, 20L);
+        }
+        try (ShotJournal journal = ShotJournal.open(file, 4, null)) {
+            journal.append(3, 152f, 3.0f, 30L);
+        }
+
+        ShotStore store = new ShotStore();
+        assertEquals(3, ShotJournal.load(file, store));
+        assertEquals(3, store.getShotNumber(2));
+        assertEquals(152f, store.getVelocity(2), 0f);
+    }
+
+    @Test
+    public void tornRecord_isDiscarded() throws IOException {
+        File file = folder.newFile("session.journal");
+        try (ShotJournal journal = ShotJournal.open(file, 4, null)) {
+            journal.append(1, 150f, 2.8f, 10L);
+            journal.append(2, 151f, 2.9f, 20L);
+        }
+        // Имитируем гибель процесса посреди записи
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 7);
+        }
+
+        ShotStore store = new ShotStore();
+        assertEquals(1, ShotJournal.load(file, store));
+
+        try (ShotJournal journal = ShotJournal.open(file, 4, null)) {
+            journal.append(3, 152f, 3.0f, 30L);
+        }
+        store.clear();
+        assertEquals(2, ShotJournal.load(file, store));
+        assertEquals(3, store.getShotNumber(1));
+    }
+
+    @Test
+    public void read_streamsAcrossChunksAndSkipsTornTail() throws IOException {
+        File file = folder.newFile("session.journal");
+        int count = ShotJournal.READ_CHUNK_RECORDS * 2 + 5;
+        try (ShotJournal journal = ShotJournal.open(file, 64, null)) {
+            for (int i = 0; i < count; i++) {
+                journal.append(i + 1, 150f, 2.8f, i);
+            }
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+
+        int[] next = {1};
+        assertEquals(count - 1, ShotJournal.read(file, (n, v, e, t) -> {
+            assertEquals(next[0]++, n);
+            assertEquals(n - 1, t);
+        }));
+        assertEquals(count - 1, ShotJournal.recordCount(file));
+        assertEquals(10, ShotJournal.read(file, 10, (n, v, e, t) -> { }));
+        assertEquals(0, ShotJournal.read(new File(folder.getRoot(), "missing"), (n, v, e, t) -> { }));
+    }
+
+    @Test
+    public void removeRecordAndReset_replaceContents() throws Exception {
+        File file = folder.newFile("session.journal");
+        try (ShotJournal journal = ShotJournal.open(file, 2, e -> fail(e.toString()))) {
+            for (int i = 1; i <= 5; i++) {
+                journal.append(i, 140f + i, 2f, i);
+            }
+            // Пятая запись еще в буфере: удаление сначала отдает ее на диск
+            journal.removeRecord(1);
+            journal.append(6, 146f, 2f, 6);
+            journal.sync().get();
+        }
+
+        ShotStore store = new ShotStore();
+        assertEquals(5, ShotJournal.load(file, store));
+        assertArrayEquals(new int[]{1, 3, 4, 5, 6}, shotNumbers(store));
+        assertFalse(new File(file.getPath() + ShotJournal.TEMP_SUFFIX).exists());
+
+        try (ShotJournal journal = ShotJournal.open(file, 2, null)) {
+            journal.reset();
+        }
+        store.clear();
+        assertEquals(0, ShotJournal.load(file, store));
+    }
+
+    @Test
+    public void removeRecord_leavesJournalIntactUntilRename() throws Exception {
+        File file = folder.newFile("session.journal");
+        try (ShotJournal journal = ShotJournal.open(file, 1, null)) {
+            for (int i = 1; i <= 3; i++) {
+                journal.append(i, 140f + i, 2f, i);
+            }
+            journal.sync().get();
+        }
+        // Процесс погиб, не успев переименовать недописанную копию
+        File temp = new File(file.getPath() + ShotJournal.TEMP_SUFFIX);
+        try (RandomAccessFile raf = new RandomAccessFile(temp, "rw")) {
+            raf.write(new byte[7]);
+        }
+
+        ShotStore store = new ShotStore();
+        assertEquals(3, ShotJournal.load(file, store));
+
+        // Следующее удаление перезаписывает остаток копии
+        try (ShotJournal journal = ShotJournal.open(file, 1, e -> fail(e.toString()))) {
+            journal.removeRecord(2);
+        }
+        store.clear();
+        assertEquals(2, ShotJournal.load(file, store));
+        assertArrayEquals(new int[]{1, 2}, shotNumbers(store));
+    }
+
+    @Test
+    public void removeRecordAfterRecompute_keepsNewEnergies() throws Exception {
+        File file = folder.newFile("session.journal");
+        try (ShotJournal journal = ShotJournal.open(file, 4, e -> fail(e.toString()))) {
+            for (int i = 1; i <= 6; i++) {
+                journal.append(i, 140f + i, Ballistics.energyJoules(0.25f, 140f + i), i);
+            }
+            // Удаление приходит раньше, чем пересчет в памяти успевает примениться
+            journal.recomputeEnergies(0.30f);
+            journal.removeRecord(2);
+        }
+
+        ShotStore store = new ShotStore();
+        assertEquals(5, ShotJournal.load(file, store));
+        assertArrayEquals(new int[]{1, 2, 4, 5, 6}, shotNumbers(store));
+        for (int i = 0; i < store.size(); i++) {
+            assertEquals(Ballistics.energyJoules(0.30f, store.getVelocity(i)), store.getEnergy(i), 0f);
+        }
+    }
+
+    @Test
+    public void removeMissingRecord_isReported() throws Exception {
+        File file = folder.newFile("session.journal");
+        IOException[] reported = new IOException[1];
+        try (ShotJournal journal = ShotJournal.open(file, 4, e -> reported[0] = e)) {
+            journal.append(1, 150f, 2.8f, 10L);
+            journal.removeRecord(1);
+            journal.sync().get();
+        }
+
+        assertNotNull(reported[0]);
+        assertEquals(1, ShotJournal.load(file, new ShotStore()));
+    }
+
+    @Test
+    public void unknownVersion_isRejected() throws IOException {
+        File file = folder.newFile("session.journal");
+        try (ShotJournal journal = ShotJournal.open(file, 2, null)) {
+            journal.append(1, 150f, 2.8f, 10L);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(4);
+            raf.writeShort(ShotJournal.VERSION + 1);
+        }
+
+        try {
+            ShotJournal.load(file, new ShotStore());
+            fail("ожидалось IOException");
+        } catch (IOException expected) {
+            // чужая версия не читается
+        }
+
+        // Открытие на запись начинает журнал заново, а чужой файл откладывает целиком
+        long length = file.length();
+        try (ShotJournal journal = ShotJournal.open(file, 2, null)) {
+            journal.append(7, 150f, 2.8f, 10L);
+        }
+        ShotStore store = new ShotStore();
+        assertEquals(1, ShotJournal.load(file, store));
+        assertEquals(7, store.getShotNumber(0));
+        File bad = new File(file.getPath() + ShotJournal.BAD_SUFFIX);
+        assertEquals(length, bad.length());
+        try (RandomAccessFile raf = new RandomAccessFile(bad, "r")) {
+            raf.seek(4);
+            assertEquals(ShotJournal.VERSION + 1, raf.readShort());
+        }
+    }
+
+    @Test
+    public void damagedHeader_isSetAsideInsteadOfWiped() throws IOException {
+        File file = folder.newFile("session.journal");
+        try (ShotJournal journal = ShotJournal.open(file, 2, null)) {
+            journal.append(1, 150f, 2.8f, 10L);
+            journal.append(2, 151f, 2.9f, 20L);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.writeInt(0xDEADBEEF);
+        }
+
+        try (ShotJournal journal = ShotJournal.open(file, 2, null)) {
+            journal.append(3, 152f, 3.0f, 30L);
+        }
+
+        ShotStore store = new ShotStore();
+        assertEquals(1, ShotJournal.load(file, store));
+        assertEquals(3, store.getShotNumber(0));
+        // Записи поврежденного файла целы, испорчен только заголовок
+        File bad = new File(file.getPath() + ShotJournal.BAD_SUFFIX);
+        assertEquals(ShotJournal.HEADER_SIZE + 2 * ShotJournal.RECORD_SIZE, bad.length());
+    }
+
+    @Test
+    public void missingFile_loadsNothing() throws IOException {
+        assertEquals(0, ShotJournal.load(new File(folder.getRoot(), "absent"), new ShotStore()));
+    }
+
+    @Test
+    public void recomputeEnergies_rewritesEveryRecordInPlace() throws Exception {
+        File file = folder.newFile("session.journal");
+        int count = 10_000;
+        try (ShotJournal journal = ShotJournal.open(file, 64, e -> fail(e.toString()))) {
+            for (int i = 0; i < count / 2; i++) {
+                journal.append(i + 1, 100f + i % 300, 0f, i);
+            }
+            journal.recomputeEnergies(0.30f);
+            // Записи после пересчета уже с новой энергией и не сдвигаются
+            for (int i = count / 2; i < count; i++) {
+                journal.append(i + 1, 100f + i % 300, Ballistics.energyJoules(0.30f, 100f + i % 300), i);
+            }
+            journal.sync().get();
+        }
+
+        ShotStore store = new ShotStore();
+        assertEquals(count, ShotJournal.load(file, store));
+        for (int i = 0; i < count; i++) {
+            assertEquals(i + 1, store.getShotNumber(i));
+            assertEquals(Ballistics.energyJoules(0.30f, store.getVelocity(i)), store.getEnergy(i), 0f);
+            assertEquals(i, store.getTimeMillis(i));
+        }
+    }
+
+    private static int[] shotNumbers(ShotStore store) {
+        int[] numbers = new int[store.size()];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = store.getShotNumber(i);
+        }
+        return numbers;
+    }
+}
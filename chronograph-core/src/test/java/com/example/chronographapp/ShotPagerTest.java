@@ -0,0 +1,231 @@
+package com.example.chronographapp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class ShotPagerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Фоновый поток, который выполняет загрузки только по команде теста.
+     */
+    private static class ManualExecutor implements Executor {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        int runAll() {
+            int count = 0;
+            while (!tasks.isEmpty()) {
+                tasks.poll().run();
+                count++;
+            }
+            return count;
+        }
+    }
+
+    private static class RecordingListener implements ShotPager.Listener {
+        final List<int[]> loaded = new ArrayList<>();
+        final List<IOException> failed = new ArrayList<>();
+
+        @Override
+        public void onPageLoaded(int firstPosition, int count) {
+            loaded.add(new int[]{firstPosition, count});
+        }
+
+        @Override
+        public void onPageFailed(int firstPosition, IOException e) {
+            failed.add(e);
+        }
+    }
+
+    private File journal(String name, int count) throws IOException {
+        File file = folder.newFile(name);
+        try (ShotJournal journal = ShotJournal.open(file, 4096, e -> fail(e.toString()))) {
+            for (int i = 0; i < count; i++) {
+                journal.append(i + 1, 100f + (i % 1000) / 10f, i % 50 / 10f, 1_700_000_000_000L + i);
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Открывает список и ждет первую страницу, как экран истории.
+     */
+    private static long firstPageNanos(File file, RecordingListener listener) {
+        ManualExecutor loads = new ManualExecutor();
+        long started = System.nanoTime();
+        ShotPager pager = new ShotPager(file, ShotJournal.recordCount(file), loads, Runnable::run,
+                listener);
+        assertNull(pager.get(0));
+        loads.runAll();
+        ShotCursor first = pager.get(0);
+        long elapsed = System.nanoTime() - started;
+
+        assertNotNull(first);
+        assertEquals(1, first.shotNumber());
+        // Первая страница и предзагрузка следующей, остальной журнал не читался
+        assertTrue(pager.getLoadedPageCount() <= 2);
+        return elapsed;
+    }
+
+    @Test
+    public void firstPage_costsTheSameForSmallAndHugeArchive() throws IOException {
+        File small = journal("small.journal", 100);
+        File huge = journal("huge.journal", 1_000_000);
+
+        // Прогрев JIT, чтобы первое измерение не проигрывало второму
+        for (int i = 0; i < 20; i++) {
+            firstPageNanos(small, new RecordingListener());
+            firstPageNanos(huge, new RecordingListener());
+        }
+        firstPageNanos(small, new RecordingListener());
+        long hugeMicros = firstPageNanos(huge, new RecordingListener()) / 1_000;
+
+        // Щедрый порог: полная загрузка 1M занимает сотни миллисекунд
+        assertTrue("1M: " + hugeMicros + " мкс", hugeMicros < 50_000);
+    }
+
+    @Test
+    public void scrollingWholeArchive_keepsBoundedPageWindow() throws IOException {
+        int count = 100_000;
+        File file = journal("session.journal", count);
+        ManualExecutor loads = new ManualExecutor();
+        RecordingListener listener = new RecordingListener();
+        ShotPager pager = new ShotPager(file, count, 256, 8, loads, Runnable::run, listener);
+
+        int maxPages = 0;
+        for (int position = 0; position < count; position += 7) {
+            ShotCursor shot = pager.get(position);
+            if (shot == null) {
+                loads.runAll();
+                shot = pager.get(position);
+            }
+            assertEquals(position + 1, shot.shotNumber());
+            assertEquals(100f + (position % 1000) / 10f, shot.velocity(), 0f);
+            assertEquals(1_700_000_000_000L + position, shot.timeMillis());
+            maxPages = Math.max(maxPages, pager.getLoadedPageCount());
+        }
+
+        assertTrue("страниц в памяти " + maxPages, maxPages <= 8);
+        assertTrue(listener.failed.isEmpty());
+    }
+
+    @Test
+    public void prefetch_loadsNextPageBeforeScrollReachesIt() throws IOException {
+        File file = journal("session.journal", 1_000);
+        ManualExecutor loads = new ManualExecutor();
+        RecordingListener listener = new RecordingListener();
+        ShotPager pager = new ShotPager(file, 1_000, 100, 4, loads, Runnable::run, listener);
+
+        pager.get(0);
+        loads.runAll();
+        assertFalse(pager.isLoaded(100));
+
+        // Половина страницы до края - следующая уже читается
+        assertNotNull(pager.get(60));
+        assertEquals(1, loads.runAll());
+        assertTrue(pager.isLoaded(100));
+        assertArrayEquals(new int[]{100, 100}, listener.loaded.get(listener.loaded.size() - 1));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedPage() throws IOException {
+        File file = journal("session.journal", 1_000);
+        ManualExecutor loads = new ManualExecutor();
+        ShotPager pager = new ShotPager(file, 1_000, 100, 3, loads, Runnable::run,
+                new RecordingListener());
+
+        // Первая и последняя страницы соседей для предзагрузки не имеют
+        pager.get(10);
+        loads.runAll();
+        pager.get(960);
+        loads.runAll();
+        // Страница 0 использована заново и стала свежее страницы 9
+        assertNotNull(pager.get(10));
+
+        // Вторая половина страницы 5 тянет за собой страницу 6
+        pager.get(560);
+        loads.runAll();
+
+        assertEquals(3, pager.getLoadedPageCount());
+        assertTrue(pager.isLoaded(0));
+        assertTrue(pager.isLoaded(500));
+        assertTrue(pager.isLoaded(600));
+        assertFalse("вытесняется самая давняя страница", pager.isLoaded(900));
+    }
+
+    @Test
+    public void close_dropsPendingLoads() throws IOException {
+        File file = journal("session.journal", 1_000);
+        ManualExecutor loads = new ManualExecutor();
+        RecordingListener listener = new RecordingListener();
+        ShotPager pager = new ShotPager(file, 1_000, loads, Runnable::run, listener);
+
+        assertNull(pager.get(0));
+        pager.close();
+        loads.runAll();
+
+        assertTrue(listener.loaded.isEmpty());
+        assertEquals(0, pager.getLoadedPageCount());
+    }
+
+    @Test
+    public void missingJournal_reportsFailure() {
+        File missing = new File(folder.getRoot(), "missing.journal");
+        ManualExecutor loads = new ManualExecutor();
+        RecordingListener listener = new RecordingListener();
+        ShotPager pager = new ShotPager(missing, 10, loads, Runnable::run, listener);
+
+        assertNull(pager.get(0));
+        loads.runAll();
+
+        assertEquals(1, listener.failed.size());
+        assertFalse(pager.isLoaded(0));
+    }
+
+    @Test
+    public void failedPage_isNotRequestedAgainUntilRetry() throws IOException {
+        File file = new File(folder.getRoot(), "late.journal");
+        ManualExecutor loads = new ManualExecutor();
+        RecordingListener listener = new RecordingListener();
+        ShotPager pager = new ShotPager(file, 10, loads, Runnable::run, listener);
+
+        assertNull(pager.get(0));
+        loads.runAll();
+        assertTrue(pager.isFailed(0));
+
+        // Каждая перепривязка строки не должна заново читать файл и сообщать об ошибке
+        for (int i = 0; i < 10; i++) {
+            assertNull(pager.get(i));
+        }
+        assertEquals(0, loads.runAll());
+        assertEquals(1, listener.failed.size());
+
+        // Журнал появился, повтор по явной команде
+        Files.copy(journal("source.journal", 10).toPath(), file.toPath());
+        assertEquals(1, pager.retryFailed());
+        assertEquals(1, loads.runAll());
+        assertFalse(pager.isFailed(0));
+        assertNotNull(pager.get(9));
+        assertEquals(1, listener.loaded.size());
+        assertEquals(0, pager.retryFailed());
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.chronographapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ShotStoreTest {
+
+    private static void addShots(ShotStore store, int from, int to) {
+        for (int i = from; i <= to; i++) {
+            store.add(i, 100f + i, i / 10f, 1_000L * i);
+        }
+    }
+
+    @Test
+    public void add_growsAndKeepsOrder() {
+        ShotStore store = new ShotStore();
+        addShots(store, 1, 1000);
+
+        assertEquals(1000, store.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i + 1, store.getShotNumber(i));
+            assertEquals(101f + i, store.getVelocity(i), 0f);
+            assertEquals((i + 1) / 10f, store.getEnergy(i), 0f);
+            assertEquals(1_000L * (i + 1), store.getTimeMillis(i));
+        }
+    }
+
+    @Test
+    public void cursor_readsColumnsWithoutObjects() {
+        ShotStore store = new ShotStore(100);
+        addShots(store, 1, 150);
+
+        ShotCursor cursor = store.cursor();
+        assertEquals(100, cursor.getCount());
+        // Логический индекс поверх кольца: 0 - самый старый выстрел
+        assertSame(cursor, cursor.moveTo(0));
+        assertEquals(51, cursor.shotNumber());
+        assertEquals(151f, cursor.velocity(), 0f);
+        assertEquals(5.1f, cursor.energy(), 0f);
+        assertEquals(51_000L, cursor.timeMillis());
+
+        cursor.moveTo(99);
+        assertEquals(99, cursor.getPosition());
+        assertEquals(150, cursor.shotNumber());
+        assertEquals(new ShotData(150, 250f, 15f, 150_000L), ShotData.of(cursor));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void cursor_rejectsMissingRow() {
+        ShotStore store = new ShotStore();
+        addShots(store, 1, 3);
+        store.cursor().moveTo(3);
+    }
+
+    @Test
+    public void copy_isIndependentAndUnwrapsRing() {
+        ShotStore ring = new ShotStore(100);
+        addShots(ring, 1, 250);
+
+        ShotStore copy = ring.copy();
+        assertEquals(0, copy.getMaxSize());
+        assertEquals(100, copy.size());
+        assertEquals(151, copy.getShotNumber(0));
+
+        ring.add(251, 1f, 1f, 1L);
+        addShots(copy, 300, 300);
+        assertEquals(152, ring.getShotNumber(0));
+        assertEquals(151, copy.getShotNumber(0));
+        assertEquals(300, copy.getShotNumber(100));
+
+        ShotStore tail = new ShotStore();
+        tail.appendFrom(ring, 98);
+        assertEquals(2, tail.size());
+        assertEquals(250, tail.getShotNumber(0));
+        assertEquals(251, tail.getShotNumber(1));
+    }
+
+    @Test
+    public void snapshot_ignoresLaterChangesOfSource() {
+        ShotStore store = new ShotStore();
+        addShots(store, 1, 100);
+        ShotStore snapshot = store.snapshot();
+
+        addShots(store, 101, 300);
+        store.remove(0);
+        store.setEnergies(new float[store.size()], store.size());
+
+        assertEquals(100, snapshot.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i + 1, snapshot.getShotNumber(i));
+            assertEquals((i + 1) / 10f, snapshot.getEnergy(i), 0f);
+        }
+        assertEquals(299, store.size());
+        assertEquals(2, store.getShotNumber(0));
+        assertEquals(0f, store.getEnergy(0), 0f);
+
+        store.clear();
+        addShots(store, 7, 7);
+        assertEquals(1, snapshot.getShotNumber(0));
+        assertEquals(7, store.getShotNumber(0));
+    }
+
+    @Test
+    public void changedSnapshot_leavesSourceAlone() {
+        ShotStore store = new ShotStore();
+        addShots(store, 1, 10);
+        ShotStore snapshot = store.snapshot();
+
+        // Дописывание в снимок не должно затереть строки, которые допишет источник
+        snapshot.add(99, 1f, 1f, 1L);
+        addShots(store, 11, 11);
+        snapshot.remove(0);
+
+        assertEquals(11, store.size());
+        assertEquals(1, store.getShotNumber(0));
+        assertEquals(11, store.getShotNumber(10));
+        assertEquals(10, snapshot.size());
+        assertEquals(99, snapshot.getShotNumber(9));
+    }
+
+    @Test
+    public void snapshotOfFullRing_survivesEviction() {
+        ShotStore store = new ShotStore(5);
+        addShots(store, 1, 7);
+        ShotStore snapshot = store.snapshot();
+
+        addShots(store, 8, 9);
+
+        assertEquals(5, snapshot.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i + 3, snapshot.getShotNumber(i));
+            assertEquals(i + 5, store.getShotNumber(i));
+        }
+    }
+
+    @Test
+    public void bounded_evictsOldest() {
+        ShotStore store = new ShotStore(100);
+        addShots(store, 1, 250);
+
+        assertEquals(100, store.size());
+        assertEquals(151, store.getShotNumber(0));
+        assertEquals(250, store.getShotNumber(99));
+        assertEquals(250_000L, store.getTimeMillis(99));
+    }
+
+    @Test
+    public void remove_worksAcrossRingWrap() {
+        ShotStore store = new ShotStore(8);
+        addShots(store, 1, 12);
+        // В кольце лежат 5..12, голова не в нуле
+
+        store.remove(2);
+        assertEquals(7, store.size());
+        int[] expected = {5, 6, 8, 9, 10, 11, 12};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], store.getShotNumber(i));
+        }
+
+        addShots(store, 13, 14);
+        assertEquals(8, store.size());
+        assertEquals(6, store.getShotNumber(0));
+        assertEquals(14, store.getShotNumber(7));
+    }
+
+    @Test
+    public void wrap_adoptsArrays() {
+        int[] numbers = {1, 2, 3};
+        float[] velocities = {150f, 151f, 152f};
+        float[] energies = {2.8f, 2.85f, 2.9f};
+        long[] times = {10L, 20L, 30L};
+
+        ShotStore store = ShotStore.wrap(numbers, velocities, energies, times);
+        assertEquals(3, store.size());
+        assertEquals(151f, store.getVelocity(1), 0f);
+
+        store.add(4, 153f, 2.95f, 40L);
+        assertEquals(4, store.size());
+        assertEquals(3, store.getShotNumber(2));
+        assertEquals(40L, store.getTimeMillis(3));
+    }
+
+    @Test
+    public void clear_empties() {
+        ShotStore store = new ShotStore(4);
+        addShots(store, 1, 6);
+        store.clear();
+
+        assertTrue(store.isEmpty());
+        addShots(store, 7, 8);
+        assertEquals(7, store.getShotNumber(0));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void get_outOfRange_throws() {
+        ShotStore store = new ShotStore();
+        addShots(store, 1, 3);
+        store.getVelocity(3);
+    }
+
+    @Test
+    public void energyColumn_roundTripsAcrossRingWrap() {
+        ShotStore store = new ShotStore(8);
+        for (int i = 1; i <= 13; i++) {
+            store.add(i, 100f + i, 1f, i);
+        }
+
+        float[] column = store.copyVelocities();
+        assertEquals(8, column.length);
+        assertEquals(106f, column[0], 0f);
+        assertEquals(113f, column[7], 0f);
+
+        for (int i = 0; i < column.length; i++) {
+            column[i] = column[i] / 100f;
+        }
+        store.setEnergies(column, 6);
+
+        assertEquals(1.06f, store.getEnergy(0), 1e-6f);
+        assertEquals(1.11f, store.getEnergy(5), 1e-6f);
+        // Выстрелы за пределами count не тронуты
+        assertEquals(1f, store.getEnergy(6), 0f);
+        assertEquals(106f, store.getVelocity(0), 0f);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.chronographapp;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class ShotTimeFormatterTest {
+
+    private static final TimeZone MOSCOW = TimeZone.getTimeZone("Europe/Moscow");
+
+    @Test
+    public void format_matchesSimpleDateFormat() {
+        ShotTimeFormatter formatter = new ShotTimeFormatter(MOSCOW);
+        SimpleDateFormat reference = new SimpleDateFormat("HH:mm:ss", Locale.US);
+        reference.setTimeZone(MOSCOW);
+
+        for (long millis = 1_700_000_000_000L; millis < 1_700_000_000_000L + 200_000_000L;
+             millis += 997_331L) {
+            assertEquals(reference.format(new Date(millis)), formatter.format(millis));
+        }
+    }
+
+    @Test
+    public void sameSecond_reusesString() {
+        ShotTimeFormatter formatter = new ShotTimeFormatter(MOSCOW);
+        String first = formatter.format(1_700_000_000_100L);
+
+        assertSame(first, formatter.format(1_700_000_000_900L));
+        assertNotSame(first, formatter.format(1_700_000_001_000L));
+    }
+
+    @Test
+    public void concurrentUse_isConsistent() throws Exception {
+        ShotTimeFormatter formatter = new ShotTimeFormatter(MOSCOW);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int shift = t;
+            futures.add(pool.submit(() -> {
+                SimpleDateFormat reference = new SimpleDateFormat("HH:mm:ss", Locale.US);
+                reference.setTimeZone(MOSCOW);
+                for (int i = 0; i < 50_000; i++) {
+                    long millis = 1_700_000_000_000L + (i + shift) % 7 * 1_000L + i % 1000;
+                    assertEquals(reference.format(new Date(millis)), formatter.format(millis));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void shotData_formatsLazilyFromCapturedTime() {
+        ShotData shot = new ShotData(7, 150f, 2.8f, 1_700_000_000_000L);
+        assertEquals(1_700_000_000_000L, shot.getTimeInMillis());
+        assertEquals(ShotTimeFormatter.getDefault().format(1_700_000_000_000L), shot.getTimestamp());
+        assertSame(shot.getTimestamp(), shot.getTimestamp());
+    }
+}
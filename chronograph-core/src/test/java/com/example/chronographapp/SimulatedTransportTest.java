@@ -0,0 +1,204 @@
+package com.example.chronographapp;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SimulatedTransportTest {
+
+    private static final float MASS_GRAMS = 0.25f;
+
+    private static SimulatedTransport synthetic(int shotsPerSecond, int maxChunk, long seed) {
+        Random random = new Random(seed);
+        return new SimulatedTransport(
+                SimulatedTransport.syntheticFrames(150f, 3f, MASS_GRAMS, random),
+                shotsPerSecond, maxChunk, random);
+    }
+
+    /**
+     * Читает поток, пока не наберется {@code shots} выстрелов.
+     */
+    private static int[] decode(InputStream input, int shots) throws IOException {
+        int[] numbers = new int[shots];
+        int[] count = {0};
+        ShotFrameDecoder decoder = new ShotFrameDecoder((shotNumber, velocity, energy) -> {
+            if (count[0] < shots) {
+                numbers[count[0]] = shotNumber;
+            }
+            count[0]++;
+        });
+        byte[] buffer = new byte[1024];
+        while (count[0] < shots) {
+            int read = input.read(buffer, 0, buffer.length);
+            if (read < 0) {
+                break;
+            }
+            decoder.feed(buffer, 0, read);
+        }
+        assertEquals(0, decoder.getMalformedCount());
+        return Arrays.copyOf(numbers, Math.min(count[0], shots));
+    }
+
+    @Test
+    public void randomChunks_decodeEveryShot() throws IOException {
+        SimulatedTransport transport = synthetic(0, 7, 42);
+        transport.connect();
+
+        int[] numbers = decode(transport.getInputStream(), 10_000);
+
+        assertEquals(10_000, numbers.length);
+        for (int i = 0; i < numbers.length; i++) {
+            assertEquals(i + 1, numbers[i]);
+        }
+    }
+
+    @Test
+    public void recording_replaysFramesThenEnds() throws IOException {
+        byte[] recording = ("Shot #7\nSpeed: 150.10\nEnergy: 2.81\n"
+                + "Shot #8\nSpeed: 151.20\nEnergy: 2.85\n"
+                + "Shot #9\nSpeed: 149.90\nEnergy: 2.80\n").getBytes(StandardCharsets.US_ASCII);
+        SimulatedTransport transport = new SimulatedTransport(
+                SimulatedTransport.recordedFrames(recording, false), 0, 5, new Random(1));
+        transport.connect();
+
+        assertArrayEquals(new int[]{7, 8, 9}, decode(transport.getInputStream(), 10));
+        assertEquals(-1, transport.getInputStream().read(new byte[16], 0, 16));
+    }
+
+    @Test
+    public void fixedRate_pacesShots() throws IOException {
+        SimulatedTransport transport = synthetic(1_000, 64, 7);
+        transport.connect();
+
+        long started = System.nanoTime();
+        decode(transport.getInputStream(), 200);
+        long millis = (System.nanoTime() - started) / 1_000_000;
+
+        // Первый выстрел сразу, остальные 199 - через миллисекунду каждый
+        assertTrue("200 выстрелов за " + millis + " мс", millis >= 190);
+    }
+
+    @Test
+    public void close_wakesWaitingReader() throws Exception {
+        SimulatedTransport transport = synthetic(1, 64, 3);
+        transport.connect();
+        InputStream input = transport.getInputStream();
+        decode(input, 1);
+
+        CountDownLatch failed = new CountDownLatch(1);
+        Thread reader = new Thread(() -> {
+            try {
+                input.read(new byte[16], 0, 16);
+            } catch (IOException e) {
+                failed.countDown();
+            }
+        });
+        reader.start();
+        Thread.sleep(50);
+        transport.close();
+
+        assertTrue(failed.await(1, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Конвейер приложения без экрана: симулятор - менеджер соединения - разбор -
+     * пачки по кадрам 60 Гц.
+     */
+    @Test
+    public void commands_areAcknowledgedBetweenFrames() throws Exception {
+        // Выстрел раз в секунду: подтверждение приходит, не дожидаясь следующего кадра
+        SimulatedTransport transport = synthetic(1, 64, 3);
+        transport.connect();
+        StringBuilder acks = new StringBuilder();
+        ShotFrameDecoder decoder = new ShotFrameDecoder((shotNumber, velocity, energy) -> { });
+        decoder.setAckListener(command -> acks.append(command).append(';'));
+
+        InputStream input = transport.getInputStream();
+        byte[] buffer = new byte[256];
+        transport.getOutputStream().write("MODE:BIN\nMASS:0.30\n".getBytes(StandardCharsets.US_ASCII));
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+        while (acks.length() == 0 && System.nanoTime() < deadline) {
+            decoder.feed(buffer, 0, input.read(buffer, 0, buffer.length));
+        }
+
+        assertEquals("MASS:0.30;", acks.toString());
+        assertFalse(decoder.isBinaryMode());
+        assertEquals("MODE:BIN\nMASS:0.30\n", transport.getReceivedCommands());
+    }
+
+    @Test
+    public void pipelineThroughput_onPlainJvm() throws Exception {
+        int shots = 200_000;
+        ShotEventBatcher batcher = new ShotEventBatcher();
+        ShotFrameDecoder decoder = new ShotFrameDecoder((shotNumber, velocity, energy) ->
+                batcher.offer(shotNumber, velocity, energy, 0L));
+        ConnectionManager.DataSink sink = new ConnectionManager.DataSink() {
+            @Override
+            public void onConnected() {
+                decoder.reset();
+            }
+
+            @Override
+            public void onData(byte[] buffer, int length) {
+                decoder.feed(buffer, 0, length);
+            }
+        };
+        ConnectionManager.Listener listener = new ConnectionManager.Listener() {
+            @Override
+            public void onStateChanged(ConnectionManager.State state, int attempt, long retryDelayMillis) {
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                fail(e.toString());
+            }
+        };
+
+        AtomicInteger received = new AtomicInteger();
+        AtomicInteger lastNumber = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+        ShotEventBatcher.Sink screen = (shotNumber, velocity, energy, timeMillis) -> {
+            assertEquals(lastNumber.get() + 1, shotNumber);
+            lastNumber.set(shotNumber);
+            if (received.incrementAndGet() == shots) {
+                done.countDown();
+            }
+        };
+
+        ScheduledExecutorService frames = Executors.newSingleThreadScheduledExecutor();
+        frames.scheduleAtFixedRate(() -> batcher.drainTo(screen), 16, 16, TimeUnit.MILLISECONDS);
+
+        ChronographTransport.Factory factory = () -> new SimulatedTransport(
+                SimulatedTransport.recordedFrames(recording(shots), false), 0, 64, new Random(5));
+        ConnectionManager manager = new ConnectionManager(factory, sink, listener, Runnable::run,
+                Executors.newSingleThreadScheduledExecutor(), 1_000, 1_000, new Random(5));
+
+        manager.connect();
+        assertTrue("выстрелов получено " + received.get(), done.await(30, TimeUnit.SECONDS));
+        manager.shutdown();
+        frames.shutdownNow();
+
+        assertEquals(0, decoder.getMalformedCount());
+    }
+
+    private static byte[] recording(int shots) {
+        StringBuilder text = new StringBuilder(shots * 40);
+        for (int i = 1; i <= shots; i++) {
+            text.append("Shot #").append(i)
+                    .append("\nSpeed: ").append(140 + i % 40).append(".50")
+                    .append("\nEnergy: 2.").append(i % 90 + 10).append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,318 @@
+package com.example.chronographapp;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class VelocityHistogramTest {
+
+    private static final float EPS = 1e-4f;
+    // Ключи от 0 до MAX_VELOCITY / RESOLUTION включительно
+    private static final int MAX_KEYS =
+            Math.round(VelocityHistogram.MAX_VELOCITY / VelocityHistogram.RESOLUTION) + 1;
+
+    @Test
+    public void addAndRemove_keepCounts() {
+        VelocityHistogram histogram = new VelocityHistogram();
+        histogram.add(300.1f);
+        histogram.add(300.1f);
+        histogram.add(301.4f);
+
+        histogram.remove(300.1f);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(300.1f, histogram.getMin(), EPS);
+        assertEquals(301.4f, histogram.getMax(), EPS);
+    }
+
+    @Test
+    public void rangeGrowsInBothDirections() {
+        VelocityHistogram histogram = new VelocityHistogram();
+        histogram.add(300f);
+        // Далеко за начальные 64 счетчика в обе стороны
+        histogram.add(150.5f);
+        histogram.add(420.3f);
+        histogram.add(299.9f);
+
+        assertEquals(4, histogram.getCount());
+        assertEquals(150.5f, histogram.getMin(), EPS);
+        assertEquals(420.3f, histogram.getMax(), EPS);
+
+        int[] bins = new int[3];
+        histogram.rebin(100f, 100f, bins, 3);
+        // 420.3 правее последней корзины и попадает в нее
+        assertArrayEquals(new int[]{1, 1, 2}, bins);
+    }
+
+    @Test
+    public void rebin_matchesDirectCount() {
+        Random random = new Random(7);
+        float[] velocities = new float[20_000];
+        VelocityHistogram histogram = new VelocityHistogram();
+        for (int i = 0; i < velocities.length; i++) {
+            // Одна десятая, как в кадре хронографа
+            velocities[i] = Math.round((280 + random.nextGaussian() * 4) * 10) / 10f;
+            histogram.add(velocities[i]);
+        }
+
+        float from = 270f;
+        float width = 0.5f;
+        int[] bins = new int[40];
+        int max = histogram.rebin(from, width, bins, bins.length);
+
+        int[] expected = new int[40];
+        for (float velocity : velocities) {
+            int bin = (int) Math.floor((velocity - from) / width + 1e-3);
+            expected[Math.max(0, Math.min(39, bin))]++;
+        }
+        assertArrayEquals(expected, bins);
+        int expectedMax = 0;
+        for (int value : expected) {
+            expectedMax = Math.max(expectedMax, value);
+        }
+        assertEquals(expectedMax, max);
+    }
+
+    @Test
+    public void rebin_afterRemovals_matchesRemainingShots() {
+        VelocityHistogram histogram = new VelocityHistogram();
+        for (int i = 0; i < 100; i++) {
+            histogram.add(250f + i * 0.1f);
+        }
+        for (int i = 0; i < 100; i += 2) {
+            histogram.remove(250f + i * 0.1f);
+        }
+
+        int[] bins = new int[10];
+        histogram.rebin(250f, 1f, bins, 10);
+
+        for (int bin : bins) {
+            assertEquals(5, bin);
+        }
+    }
+
+    @Test
+    public void outOfRangeShots_landInEdgeBins() {
+        VelocityHistogram histogram = new VelocityHistogram();
+        histogram.add(100f);
+        histogram.add(300f);
+        histogram.add(900f);
+
+        int[] bins = new int[4];
+        histogram.rebin(290f, 5f, bins, 4);
+
+        assertArrayEquals(new int[]{1, 0, 1, 1}, bins);
+    }
+
+    @Test
+    public void glitchVelocity_isClampedInsteadOfGrowingWithoutBound() {
+        VelocityHistogram histogram = new VelocityHistogram();
+        histogram.add(1e9f);
+        histogram.add(-5f);
+
+        assertEquals(VelocityHistogram.MAX_VELOCITY, histogram.getMax(), EPS);
+        assertEquals(0f, histogram.getMin(), EPS);
+        histogram.remove(1e9f);
+        assertEquals(1, histogram.getCount());
+    }
+
+    @Test
+    public void velocitiesNearMaxVelocity_stayInsideKeyRange() {
+        // Первый выстрел у самого верха: начальные счетчики не должны вылезти за MAX_KEY
+        VelocityHistogram histogram = new VelocityHistogram();
+        histogram.add(1999.9f);
+        histogram.add(VelocityHistogram.MAX_VELOCITY);
+        assertEquals(64, histogram.capacity());
+        // Рост вниз до нуля упирается в оба края сразу
+        histogram.add(0f);
+        histogram.add(1999.8f);
+
+        assertEquals(4, histogram.getCount());
+        assertEquals(MAX_KEYS, histogram.capacity());
+        assertEquals(0f, histogram.getMin(), EPS);
+        assertEquals(VelocityHistogram.MAX_VELOCITY, histogram.getMax(), EPS);
+        assertEquals(1999.9f, histogram.getQuantile(0.75), EPS);
+
+        VelocityHistogram merged = new VelocityHistogram();
+        merged.add(5f);
+        merged.merge(histogram);
+        assertEquals(5, merged.getCount());
+        assertTrue(merged.capacity() <= MAX_KEYS);
+        assertEquals(VelocityHistogram.MAX_VELOCITY, merged.getMax(), EPS);
+
+        histogram.remove(VelocityHistogram.MAX_VELOCITY);
+        histogram.remove(0f);
+        assertEquals(1999.8f, histogram.getMin(), EPS);
+        assertEquals(1999.9f, histogram.getMax(), EPS);
+    }
+
+    @Test
+    public void meanAndDeviation_matchRunningStats() {
+        Random random = new Random(11);
+        VelocityHistogram histogram = new VelocityHistogram();
+        RunningStats stats = new RunningStats();
+        for (int i = 0; i < 5_000; i++) {
+            float velocity = Math.round((150 + random.nextGaussian() * 3) * 10) / 10f;
+            histogram.add(velocity);
+            stats.add(velocity);
+        }
+
+        assertEquals(stats.getMean(), histogram.getMean(), 1e-3f);
+        assertEquals(stats.getStandardDeviation(), histogram.getStandardDeviation(), 1e-3f);
+        assertEquals(0f, new VelocityHistogram().getStandardDeviation(), 0f);
+    }
+
+    @Test
+    public void writeAndRead_keepCountsWithoutEmptyEdges() {
+        VelocityHistogram histogram = new VelocityHistogram();
+        histogram.add(280.4f);
+        histogram.add(280.4f);
+        histogram.add(291.7f);
+        histogram.add(150f);
+        histogram.remove(150f);
+
+        ByteBuffer data = ByteBuffer.allocate(histogram.serializedSize());
+        histogram.writeTo(data);
+        assertFalse(data.hasRemaining());
+        // Пустой хвост после удаления 150 не пишется
+        assertEquals(8 + 4 * (2917 - 2804 + 1), data.capacity());
+
+        data.flip();
+        VelocityHistogram read = VelocityHistogram.readFrom(data);
+        assertEquals(3, read.getCount());
+        assertEquals(280.4f, read.getMin(), EPS);
+        assertEquals(291.7f, read.getMax(), EPS);
+        assertEquals(280.4f, read.getQuantile(0.5), EPS);
+
+        VelocityHistogram empty = new VelocityHistogram();
+        ByteBuffer emptyData = ByteBuffer.allocate(empty.serializedSize());
+        empty.writeTo(emptyData);
+        emptyData.flip();
+        assertTrue(VelocityHistogram.readFrom(emptyData).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void readFrom_rejectsTruncatedCounts() {
+        ByteBuffer data = ByteBuffer.allocate(12);
+        data.putInt(2800).putInt(5).putInt(1);
+        data.flip();
+        VelocityHistogram.readFrom(data);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void removingMissingVelocity_isRejected() {
+        VelocityHistogram histogram = new VelocityHistogram();
+        histogram.add(300f);
+        histogram.remove(301f);
+    }
+
+    @Test
+    public void binWidthFor_picksNiceSteps() {
+        assertEquals(0.1f, VelocityHistogram.binWidthFor(0f, 30), EPS);
+        assertEquals(0.2f, VelocityHistogram.binWidthFor(5f, 30), EPS);
+        assertEquals(0.5f, VelocityHistogram.binWidthFor(12f, 30), EPS);
+        assertEquals(1f, VelocityHistogram.binWidthFor(25f, 30), EPS);
+        assertEquals(5f, VelocityHistogram.binWidthFor(120f, 30), EPS);
+    }
+
+    @Test
+    public void set_copiesIndependently() {
+        VelocityHistogram source = new VelocityHistogram();
+        source.add(300f);
+        VelocityHistogram copy = new VelocityHistogram();
+
+        copy.set(source);
+        source.add(310f);
+
+        assertEquals(1, copy.getCount());
+        assertEquals(300f, copy.getMax(), EPS);
+    }
+
+    @Test
+    public void quantiles_matchSortedHistory() {
+        Random random = new Random(11);
+        int n = 100_000;
+        float[] velocities = new float[n];
+        VelocityHistogram histogram = new VelocityHistogram();
+        for (int i = 0; i < n; i++) {
+            velocities[i] = Math.round((95 + random.nextGaussian() * 1.5) * 10) / 10f;
+            histogram.add(velocities[i]);
+        }
+        float[] sorted = velocities.clone();
+        Arrays.sort(sorted);
+
+        for (double q : new double[]{0, 0.05, 0.25, 0.5, 0.75, 0.95, 1}) {
+            float exact = sorted[Math.max(0, (int) Math.ceil(q * n) - 1)];
+            assertEquals("q=" + q, exact, histogram.getQuantile(q), EPS);
+        }
+    }
+
+    @Test
+    public void quantiles_ofUnroundedVelocities_stayWithinHalfStep() {
+        Random random = new Random(3);
+        int n = 10_001;
+        float[] velocities = new float[n];
+        VelocityHistogram histogram = new VelocityHistogram();
+        for (int i = 0; i < n; i++) {
+            velocities[i] = 180f + random.nextFloat() * 40f;
+            histogram.add(velocities[i]);
+        }
+        Arrays.sort(velocities);
+
+        for (double q : new double[]{0.05, 0.5, 0.95}) {
+            float exact = velocities[(int) Math.ceil(q * n) - 1];
+            assertEquals(exact, histogram.getQuantile(q), VelocityHistogram.RESOLUTION / 2 + EPS);
+        }
+    }
+
+    @Test
+    public void quantiles_followRemovals() {
+        VelocityHistogram histogram = new VelocityHistogram();
+        for (int i = 1; i <= 5; i++) {
+            histogram.add(300f + i);
+        }
+        assertEquals(303f, histogram.getQuantile(0.5), EPS);
+
+        histogram.remove(301f);
+        histogram.remove(302f);
+
+        // Остались 303, 304, 305
+        assertEquals(304f, histogram.getQuantile(0.5), EPS);
+        assertEquals(303f, histogram.getQuantile(0.05), EPS);
+        assertEquals(305f, histogram.getQuantile(0.95), EPS);
+    }
+
+    @Test
+    public void merge_matchesSortedUnionOfSessions() {
+        Random random = new Random(5);
+        VelocityHistogram merged = new VelocityHistogram();
+        float[] all = new float[30_000];
+        int n = 0;
+        // Три сессии с разной пулей: диапазоны почти не пересекаются
+        for (float mean : new float[]{120f, 180f, 150f}) {
+            VelocityHistogram session = new VelocityHistogram();
+            for (int i = 0; i < 10_000; i++) {
+                float velocity = Math.round((mean + random.nextGaussian() * 5) * 10) / 10f;
+                session.add(velocity);
+                all[n++] = velocity;
+            }
+            merged.merge(session);
+        }
+        Arrays.sort(all);
+
+        assertEquals(all.length, merged.getCount());
+        for (double q : new double[]{0.05, 0.5, 0.95}) {
+            float exact = all[(int) Math.ceil(q * all.length) - 1];
+            assertEquals("q=" + q, exact, merged.getQuantile(q), EPS);
+        }
+    }
+
+    @Test
+    public void emptyHistogram_hasZeroQuantiles() {
+        assertEquals(0f, new VelocityHistogram().getQuantile(0.5), 0f);
+    }
+}
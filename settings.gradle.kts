@@ -21,4 +21,6 @@ dependencyResolutionManagement {
 
 rootProject.name = "ChronographApp"
 include(":app")
+include(":chronograph-core")
+include(":benchmarks")
  
\ No newline at end of file